@@ -1,9 +1,17 @@
 package com.moustass;
 
+import com.moustass.watch.HeadlessLauncher;
 import javafx.application.Application;
 
+import java.util.Arrays;
+
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // headless mode: sign the files dropped in the watched folders, without UI
+        if (Arrays.asList(args).contains("--watch")) {
+            HeadlessLauncher.main(args);
+            return;
+        }
         Application.launch(MainApplication.class, args);
     }
 }
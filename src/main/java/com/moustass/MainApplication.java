@@ -1,20 +1,49 @@
 package com.moustass;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import com.moustass.cache.KeyPairPool;
+import com.moustass.config.AppConfig;
+import com.moustass.config.DatabaseConfig;
 import com.moustass.config.InitialData;
+import com.moustass.migrations.DatabaseMigrator;
+import com.moustass.service.AuditLogWriter;
+import com.moustass.storage.StorageMigration;
 
 public class MainApplication extends Application {
+    private static final long MIGRATION_STOP_TIMEOUT_SECONDS = 10;
+
+    private StorageMigration storageMigration;
+
     @Override
     public void start(Stage stage) throws IOException {
+        // start generating key pairs for account creation in the background
+        KeyPairPool.getInstance().warmUp();
+
+        // bring the schema up to date before any query
+        DatabaseMigrator.migrate(DatabaseConfig.getDataSource());
+
         // create default admin if missing
         InitialData.initDefaultAdmin();
 
+        // move stored files to the sharded layout while the application runs
+        if (Boolean.parseBoolean(AppConfig.getInstance().getProperty("storage.migration.enabled"))) {
+            storageMigration = StorageMigration.startInBackground(error -> Platform.runLater(() -> {
+                Alert a = new Alert(Alert.AlertType.ERROR);
+                a.setHeaderText(null);
+                a.setContentText("Échec de la migration du stockage : " + error.getMessage());
+                a.show();
+            }));
+        }
+
         FXMLLoader fxmlLoader = new FXMLLoader(MainApplication.class.getResource("/com/moustass/login-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 850, 575);
         Image icon = new Image(getClass().getResourceAsStream("/images/mus.png"));
@@ -24,4 +53,16 @@ public class MainApplication extends Application {
         stage.setScene(scene);
         stage.show();
     }
+
+    @Override
+    public void stop() throws InterruptedException {
+        // let the storage migration finish its current file while the database is still open
+        if (storageMigration != null) {
+            storageMigration.cancel();
+            storageMigration.await(MIGRATION_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        // write the queued audit entries, then close the pooled database connections
+        AuditLogWriter.shutdown();
+        DatabaseConfig.shutdown();
+    }
 }
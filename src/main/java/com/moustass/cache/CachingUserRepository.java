@@ -0,0 +1,287 @@
+package com.moustass.cache;
+
+import com.moustass.config.AppConfig;
+import com.moustass.config.UnitOfWork;
+import com.moustass.model.User;
+import com.moustass.model.UserSummary;
+import com.moustass.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link UserRepository} keeping the users it reads in memory.
+ * <p>
+ * Users and their summaries are kept by identifier for
+ * {@code cache.user.ttl.ms} milliseconds (one minute by default), and at
+ * most {@code cache.user.size} of each (256 by default), evicting the least
+ * recently used ones. Writes through this repository ({@link #insert},
+ * {@link #updatePassword}, {@link #deleteById})
+ * invalidate the user they change, including its key in
+ * {@link PublicKeyCache} and its outcomes in {@link RootSignatureCache},
+ * once the enclosing {@link UnitOfWork} has ended; the time to live bounds
+ * how long a change made by another instance of the application goes
+ * unnoticed.
+ * </p>
+ * <p>
+ * {@link #findByUsername(String)} is not cached: it is used to
+ * authenticate, and must see the current password. Cached users are
+ * copied on the way in and out, so callers may modify them.
+ * </p>
+ */
+public class CachingUserRepository extends UserRepository {
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final long DEFAULT_TTL_MILLIS = 60_000;
+    private static CachingUserRepository instance;
+
+    private final UserRepository delegate;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Integer, Entry<User>> users;
+    private final Map<Integer, Entry<UserSummary>> summaries;
+    private final Map<String, Integer> ids;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // bumped on every invalidation so that a load racing with it is not cached
+    private long generation;
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param delegate  the repository reading the database
+     * @param capacity  the maximum number of users kept in memory
+     * @param ttlMillis how long a user is kept, in milliseconds
+     */
+    public CachingUserRepository(UserRepository delegate, int capacity, long ttlMillis) {
+        this(delegate, capacity, ttlMillis, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    CachingUserRepository(UserRepository delegate, int capacity, long ttlMillis, LongSupplier clock) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.users = lru(capacity);
+        this.summaries = lru(capacity);
+        this.ids = lru(capacity);
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared cache, reading the {@code users} table.
+     *
+     * @return the singleton instance of CachingUserRepository
+     */
+    public static synchronized CachingUserRepository getInstance() {
+        if (instance == null) {
+            AppConfig config = AppConfig.getInstance();
+            instance = new CachingUserRepository(new UserRepository(),
+                    config.getIntProperty("cache.user.size", DEFAULT_CAPACITY),
+                    config.getIntProperty("cache.user.ttl.ms", (int) DEFAULT_TTL_MILLIS));
+        }
+        return instance;
+    }
+
+    @Override
+    public User findById(int id) {
+        long loadGeneration;
+        synchronized (this) {
+            User user = fresh(users, id);
+            if (user != null) {
+                hits.increment();
+                return copy(user);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        // loaded outside the lock: a slow database call must not block cache hits
+        User user = delegate.findById(id);
+        if (user != null) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    users.put(id, new Entry<>(copy(user), clock.getAsLong() + ttlMillis));
+                    ids.put(user.getUsername(), id);
+                }
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public UserSummary findSummaryById(int id) {
+        long loadGeneration;
+        synchronized (this) {
+            UserSummary summary = cachedSummary(id);
+            if (summary != null) {
+                hits.increment();
+                return summary;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        UserSummary summary = delegate.findSummaryById(id);
+        cache(summary, loadGeneration);
+        return summary;
+    }
+
+    @Override
+    public UserSummary findSummaryByUsername(String username) {
+        long loadGeneration;
+        synchronized (this) {
+            Integer id = ids.get(username);
+            UserSummary summary = id == null ? null : cachedSummary(id);
+            if (summary != null) {
+                hits.increment();
+                return summary;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        UserSummary summary = delegate.findSummaryByUsername(username);
+        cache(summary, loadGeneration);
+        return summary;
+    }
+
+    // called with the lock held
+    private UserSummary cachedSummary(int id) {
+        UserSummary summary = fresh(summaries, id);
+        if (summary == null) {
+            User user = fresh(users, id);
+            summary = user == null ? null : UserSummary.of(user);
+        }
+        return summary;
+    }
+
+    private synchronized void cache(UserSummary summary, long loadGeneration) {
+        if (summary != null && loadGeneration == generation) {
+            summaries.put(summary.getId(), new Entry<>(summary, clock.getAsLong() + ttlMillis));
+            ids.put(summary.getUsername(), summary.getId());
+        }
+    }
+
+    // called with the lock held
+    private <V> V fresh(Map<Integer, Entry<V>> entries, int id) {
+        Entry<V> entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(id);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private static User copy(User u) {
+        User copy = new User(u.getId(), u.getFirstname(), u.getLastname(), u.getUsername(), u.getPasswordHash(),
+                u.getSalt(), u.getPkPublic(), u.getSkPrivate(), u.getMustChangePwd(), u.getIsAdmin(), u.getCreatedAt());
+        copy.setSignatureAlgorithm(u.getSignatureAlgorithm());
+        return copy;
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public User findPublicKeyById(int id) {
+        return delegate.findPublicKeyById(id);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public boolean insert(User u) {
+        try {
+            return delegate.insert(u);
+        } finally {
+            String username = u.getUsername();
+            UnitOfWork.afterCompletion(() -> invalidate(username));
+        }
+    }
+
+    @Override
+    public boolean updatePassword(User u) throws SQLException {
+        try {
+            return delegate.updatePassword(u);
+        } finally {
+            Integer id = u == null ? null : u.getId();
+            if (id != null) UnitOfWork.afterCompletion(() -> invalidate(id));
+        }
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            UnitOfWork.afterCompletion(() -> invalidate(id));
+        }
+    }
+
+    /**
+     * Removes a user from the cache, its public key from {@link PublicKeyCache}
+     * and the outcomes of its batch signatures from {@link RootSignatureCache}.
+     * <p>
+     * Must be called by any code changing a user without going through this
+     * repository, such as replacing its key pair.
+     * </p>
+     *
+     * @param id the identifier of the user
+     */
+    public synchronized void invalidate(int id) {
+        users.remove(id);
+        summaries.remove(id);
+        ids.values().removeIf(cached -> cached == id);
+        generation++;
+        PublicKeyCache.getInstance().invalidate(id);
+        RootSignatureCache.getInstance().invalidate(id);
+    }
+
+    private synchronized void invalidate(String username) {
+        Integer id = ids.remove(username);
+        if (id != null) {
+            invalidate(id);
+        } else {
+            generation++;
+        }
+    }
+
+    public synchronized int size() {
+        return users.size() + summaries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
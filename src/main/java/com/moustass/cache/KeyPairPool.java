@@ -0,0 +1,149 @@
+package com.moustass.cache;
+
+import com.moustass.config.AppConfig;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.utils.CryptoUtils;
+
+import java.security.KeyPair;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool of pre-generated key pairs, one pool per signature algorithm.
+ * <p>
+ * Generating an RSA-2048 key pair takes from hundreds of milliseconds to
+ * seconds. This pool generates key pairs ahead of time on background
+ * threads, so that account creation can take one immediately. When the
+ * number of available pairs drops to the low-water mark, the pool is
+ * refilled up to its capacity.
+ * </p>
+ * <p>
+ * If the pool is empty, {@link #take()} falls back to generating a key
+ * pair on the calling thread.
+ * </p>
+ */
+public class KeyPairPool {
+    private static final int DEFAULT_SIZE = 8;
+    private static final int DEFAULT_LOW_WATER_MARK = 2;
+    private static final Map<SignatureAlgorithm, KeyPairPool> INSTANCES = new EnumMap<>(SignatureAlgorithm.class);
+
+    private final BlockingQueue<KeyPair> pairs;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final Supplier<KeyPair> generator;
+    private final ExecutorService workers;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Creates a pool. No key pair is generated until {@link #warmUp()} or {@link #take()} is called.
+     *
+     * @param capacity     the number of key pairs kept ready
+     * @param lowWaterMark the number of available pairs under which the pool is refilled
+     * @param threads      the number of background generation threads
+     * @param generator    the key pair generator
+     */
+    public KeyPairPool(int capacity, int lowWaterMark, int threads, Supplier<KeyPair> generator) {
+        this.capacity = Math.max(1, capacity);
+        this.lowWaterMark = Math.min(Math.max(0, lowWaterMark), this.capacity - 1);
+        this.generator = generator;
+        this.pairs = new LinkedBlockingQueue<>(this.capacity);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "keypair-pool-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Returns the shared pool of the default signature algorithm.
+     *
+     * @return the pool of the algorithm configured by {@code signature.algorithm}
+     */
+    public static KeyPairPool getInstance() {
+        return getInstance(defaultAlgorithm());
+    }
+
+    /**
+     * Returns the shared pool of key pairs of a signature algorithm.
+     *
+     * @param algorithm the signature algorithm of the key pairs
+     * @return the pool of that algorithm
+     */
+    public static synchronized KeyPairPool getInstance(SignatureAlgorithm algorithm) {
+        return INSTANCES.computeIfAbsent(algorithm, alg -> {
+            AppConfig config = AppConfig.getInstance();
+            int size = config.getIntProperty("keypool.size", DEFAULT_SIZE);
+            int lowWaterMark = config.getIntProperty("keypool.low.water", DEFAULT_LOW_WATER_MARK);
+            int threads = config.getIntProperty("keypool.threads",
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            return new KeyPairPool(size, lowWaterMark, threads, () -> CryptoUtils.newKeyPair(alg));
+        });
+    }
+
+    /**
+     * Returns the signature algorithm used for new accounts.
+     *
+     * @return the algorithm configured by {@code signature.algorithm}, RSA by default
+     */
+    public static SignatureAlgorithm defaultAlgorithm() {
+        return SignatureAlgorithm.fromName(AppConfig.getInstance().getProperty("signature.algorithm"));
+    }
+
+    /**
+     * Starts filling the pool in the background.
+     */
+    public void warmUp() {
+        refill();
+    }
+
+    /**
+     * Takes a key pair from the pool, or generates one if the pool is empty.
+     *
+     * @return a fresh key pair, never handed out twice
+     */
+    public KeyPair take() {
+        KeyPair kp = pairs.poll();
+        if (pairs.size() + pending.get() <= lowWaterMark) {
+            refill();
+        }
+        return kp != null ? kp : generator.get();
+    }
+
+    /**
+     * Returns the number of key pairs ready to be taken.
+     *
+     * @return the number of available key pairs
+     */
+    public int available() {
+        return pairs.size();
+    }
+
+    /**
+     * Stops the background generation threads.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private synchronized void refill() {
+        int missing = capacity - pairs.size() - pending.get();
+        for (int i = 0; i < missing; i++) {
+            pending.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    pairs.offer(generator.get());
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.moustass.cache;
+
+import com.moustass.config.AppConfig;
+import com.moustass.exception.SignatureRSAException;
+import com.moustass.model.User;
+import com.moustass.repository.UserRepository;
+import com.moustass.utils.CryptoUtils;
+
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Cache of decoded public keys, keyed by user identifier.
+ * <p>
+ * Verifying a signature needs the public key of its author. Loading it
+ * costs a database round trip and the parsing of an X.509 structure, which
+ * dominates the cost of bulk verification. This cache keeps the decoded
+ * {@link PublicKey} objects in memory, evicting the least recently used
+ * entries once its capacity is reached.
+ * </p>
+ * <p>
+ * Users are deleted and changed through {@link CachingUserRepository},
+ * which invalidates their key here. Code changing a key pair by other
+ * means must call {@link CachingUserRepository#invalidate(int)}.
+ * </p>
+ */
+public class PublicKeyCache {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static PublicKeyCache instance;
+
+    private final IntFunction<PublicKey> loader;
+    private final Map<Integer, PublicKey> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // bumped on every invalidation so that a load racing with it is not cached
+    private long generation;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of keys kept in memory
+     * @param loader   the function loading the public key of a user, returning {@code null} if the user does not exist
+     */
+    public PublicKeyCache(int capacity, IntFunction<PublicKey> loader) {
+        this.loader = loader;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, PublicKey> eldest) {
+                boolean evict = size() > capacity;
+                if (evict) evictions.increment();
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared cache, loading keys from the {@code users} table.
+     *
+     * @return the singleton instance of PublicKeyCache
+     */
+    public static synchronized PublicKeyCache getInstance() {
+        if (instance == null) {
+            int capacity = AppConfig.getInstance().getIntProperty("cache.public.key.size", DEFAULT_CAPACITY);
+            UserRepository userRepository = new UserRepository();
+            instance = new PublicKeyCache(capacity, userId -> decode(userRepository.findPublicKeyById(userId)));
+        }
+        return instance;
+    }
+
+    private static PublicKey decode(User signer) {
+        if (signer == null || signer.getPkPublic() == null) {
+            return null;
+        }
+        return CryptoUtils.publicKeyFromBase64(signer.getPkPublic(), signer.getSignatureAlgorithm());
+    }
+
+    /**
+     * Returns the public key of a user, loading it on a cache miss.
+     *
+     * @param userId the identifier of the user
+     * @return the decoded public key
+     * @throws SignatureRSAException if the user does not exist
+     */
+    public PublicKey get(int userId) {
+        long loadGeneration;
+        synchronized (entries) {
+            PublicKey key = entries.get(userId);
+            if (key != null) {
+                hits.increment();
+                return key;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        // loaded outside the lock: a slow database call must not block cache hits
+        PublicKey key = loader.apply(userId);
+        if (key == null) {
+            throw new SignatureRSAException("No public key for user " + userId);
+        }
+        synchronized (entries) {
+            if (loadGeneration == generation) {
+                entries.put(userId, key);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Removes the key of a user, typically after deletion or re-keying.
+     *
+     * @param userId the identifier of the user
+     */
+    public void invalidate(int userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+            generation++;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
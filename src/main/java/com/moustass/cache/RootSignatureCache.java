@@ -0,0 +1,111 @@
+package com.moustass.cache;
+
+import com.moustass.config.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cache of the outcomes of batch root signature checks.
+ * <p>
+ * All the files of a signed batch share the signature of the batch root.
+ * Once this signature has been checked for one file, verifying another
+ * file of the batch only costs the hashes of its inclusion proof. The
+ * outcome depends only on the signer, the algorithm, the root and the
+ * signature, which together form the key of an entry.
+ * </p>
+ */
+public class RootSignatureCache {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static RootSignatureCache instance;
+
+    private final Map<String, Boolean> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of outcomes kept in memory
+     */
+    public RootSignatureCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared cache, sized by {@code cache.root.signature.size}.
+     *
+     * @return the singleton instance of RootSignatureCache
+     */
+    public static synchronized RootSignatureCache getInstance() {
+        if (instance == null) {
+            instance = new RootSignatureCache(
+                    AppConfig.getInstance().getIntProperty("cache.root.signature.size", DEFAULT_CAPACITY));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the outcome of a root signature check, running it on a cache miss.
+     *
+     * @param userId    the identifier of the signer
+     * @param algorithm the name of the signature algorithm
+     * @param root      the Base64-encoded root of the batch
+     * @param signature the Base64-encoded signature of the root
+     * @param check     the signature check, run outside the cache lock
+     * @return {@code true} if the signature of the root is valid
+     */
+    public boolean verify(int userId, String algorithm, String root, String signature, BooleanSupplier check) {
+        String key = userId + ":" + algorithm + ":" + root + ":" + signature;
+        synchronized (entries) {
+            Boolean valid = entries.get(key);
+            if (valid != null) {
+                hits.increment();
+                return valid;
+            }
+        }
+        misses.increment();
+        boolean valid = check.getAsBoolean();
+        synchronized (entries) {
+            entries.put(key, valid);
+        }
+        return valid;
+    }
+
+    /**
+     * Removes the outcomes of the roots signed by a user.
+     * <p>
+     * Called through {@link CachingUserRepository#invalidate(int)} when the
+     * user changes, so that no outcome outlives a replaced key pair.
+     * </p>
+     *
+     * @param userId the identifier of the signer
+     */
+    public void invalidate(int userId) {
+        String prefix = userId + ":";
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,144 @@
+package com.moustass.cache;
+
+import com.moustass.config.AppConfig;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.VerificationCacheEntry;
+import com.moustass.repository.VerificationCacheRepository;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Cache of verification outcomes, keyed by signature and file fingerprint.
+ * <p>
+ * Verifying a file means reading it entirely and checking its signature.
+ * When the file has the same size, modification time and file key as at
+ * its last verification, the previous outcome is returned instead. Entries
+ * are persisted in the {@code verification_cache} table and the most
+ * recently used ones are kept in memory, so that a hit costs one
+ * {@code stat} of the file.
+ * </p>
+ * <p>
+ * The cache is only an optimisation: a database error while reading or
+ * writing an entry is treated as a miss and never fails a verification.
+ * </p>
+ */
+public class VerificationCache {
+    private static final int DEFAULT_CAPACITY = 10_000;
+    private static VerificationCache instance;
+
+    private final IntFunction<VerificationCacheEntry> loader;
+    private final Consumer<VerificationCacheEntry> store;
+    private final Map<Integer, VerificationCacheEntry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of entries kept in memory
+     * @param loader   the function loading the persisted entry of a signature, returning {@code null} if there is none
+     * @param store    the function persisting an entry
+     */
+    public VerificationCache(int capacity, IntFunction<VerificationCacheEntry> loader,
+                             Consumer<VerificationCacheEntry> store) {
+        this.loader = loader;
+        this.store = store;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, VerificationCacheEntry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared cache, persisted in the {@code verification_cache} table.
+     *
+     * @return the singleton instance of VerificationCache
+     */
+    public static synchronized VerificationCache getInstance() {
+        if (instance == null) {
+            int capacity = AppConfig.getInstance().getIntProperty("cache.verification.size", DEFAULT_CAPACITY);
+            VerificationCacheRepository repository = new VerificationCacheRepository();
+            instance = new VerificationCache(capacity, repository::findBySignatureId, repository::save);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the last outcome of a signature if the file has not changed since.
+     *
+     * @param signatureId the identifier of the signature
+     * @param attributes  the current attributes of the signed file
+     * @return the cached outcome, or {@code null} if the file must be verified
+     */
+    public Boolean lookup(int signatureId, BasicFileAttributes attributes) {
+        VerificationCacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(signatureId);
+        }
+        if (entry == null) {
+            entry = load(signatureId);
+        }
+        if (entry != null && entry.matches(attributes.size(), attributes.lastModifiedTime().toMillis(), fileKey(attributes))) {
+            hits.increment();
+            return entry.isOutcome();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Records the outcome of a full verification.
+     *
+     * @param signatureId the identifier of the signature
+     * @param attributes  the attributes of the file, read before the verification
+     * @param outcome     {@code true} if the signature was valid
+     */
+    public void record(int signatureId, BasicFileAttributes attributes, boolean outcome) {
+        VerificationCacheEntry entry = new VerificationCacheEntry(signatureId, attributes.size(),
+                attributes.lastModifiedTime().toMillis(), fileKey(attributes), outcome, LocalDateTime.now());
+        synchronized (entries) {
+            entries.put(signatureId, entry);
+        }
+        try {
+            store.accept(entry);
+        } catch (DatabaseConnectionException e) {
+            // kept in memory only
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private VerificationCacheEntry load(int signatureId) {
+        VerificationCacheEntry entry;
+        try {
+            entry = loader.apply(signatureId);
+        } catch (DatabaseConnectionException e) {
+            return null;
+        }
+        if (entry != null) {
+            synchronized (entries) {
+                entries.putIfAbsent(signatureId, entry);
+            }
+        }
+        return entry;
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        return Objects.toString(attributes.fileKey(), "");
+    }
+}
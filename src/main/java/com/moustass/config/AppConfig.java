@@ -59,4 +59,23 @@ public class AppConfig {
     public String getProperty(String key) {
         return properties.getProperty(key);
     }
+
+    /**
+     * Retrieves the value of an integer configuration property.
+     *
+     * @param key the name of the property to retrieve
+     * @param defaultValue the value returned when the key does not exist or is not a number
+     * @return the integer value associated with the given key, or {@code defaultValue}
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
@@ -0,0 +1,494 @@
+package com.moustass.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of database connections.
+ * <p>
+ * Opening a MySQL connection costs a TCP handshake and an authentication
+ * round trip, which used to dominate the latency of every repository call.
+ * The pool keeps up to {@code db.pool.max.size} connections open and lends
+ * them to the repositories; closing a borrowed connection returns it to
+ * the pool. When every connection is lent, callers wait up to
+ * {@code db.pool.max.wait.ms} milliseconds.
+ * </p>
+ * <p>
+ * A connection idle for more than {@code db.pool.idle.timeout.ms}, or open
+ * for more than {@code db.pool.max.lifetime.ms}, is closed, so that the
+ * pool shrinks when the application is idle and never uses a connection
+ * the server may have dropped. A connection that was idle for a while is
+ * validated before it is lent. A returned connection is rolled back if a
+ * transaction was left open, put back in auto-commit mode, and its
+ * read-only flag and transaction isolation are restored if the borrower
+ * changed them.
+ * </p>
+ * <p>
+ * Once {@link #shutdown()} has run, the shared pool stays closed: it is not
+ * created again, and borrowing a connection fails.
+ * </p>
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final int DEFAULT_MAX_WAIT_MILLIS = 30_000;
+    private static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 600_000;
+    private static final int DEFAULT_MAX_LIFETIME_MILLIS = 1_800_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // a connection used this recently is lent without validation
+    private static final long VALIDATION_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static ConnectionPool instance;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final Semaphore permits;
+    // most recently returned first, so that surplus connections age out
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private volatile long maxWaitNanos;
+
+    /**
+     * Opens a physical connection.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        /**
+         * Opens a new connection to the database.
+         *
+         * @return the connection
+         * @throws SQLException if the connection cannot be opened
+         */
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Snapshot of the metrics of the pool.
+     */
+    public static final class Stats {
+        private final int active;
+        private final int idle;
+        private final long created;
+        private final long borrowed;
+        private final long timeouts;
+        private final long evicted;
+        private final long totalWaitMillis;
+        private final long maxWaitMillis;
+
+        Stats(int active, int idle, long created, long borrowed, long timeouts, long evicted,
+              long totalWaitMillis, long maxWaitMillis) {
+            this.active = active;
+            this.idle = idle;
+            this.created = created;
+            this.borrowed = borrowed;
+            this.timeouts = timeouts;
+            this.evicted = evicted;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        /** @return the number of connections currently lent */
+        public int getActive() {
+            return active;
+        }
+
+        /** @return the number of open connections waiting in the pool */
+        public int getIdle() {
+            return idle;
+        }
+
+        /** @return the number of physical connections opened since the start */
+        public long getCreated() {
+            return created;
+        }
+
+        /** @return the number of connections lent since the start */
+        public long getBorrowed() {
+            return borrowed;
+        }
+
+        /** @return the number of callers that gave up waiting for a connection */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /** @return the number of connections closed because idle, too old or invalid */
+        public long getEvicted() {
+            return evicted;
+        }
+
+        /** @return the total time spent waiting for a connection, in milliseconds */
+        public long getTotalWaitMillis() {
+            return totalWaitMillis;
+        }
+
+        /** @return the longest wait for a connection, in milliseconds */
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /** @return the average wait for a connection, in milliseconds */
+        public double getAverageWaitMillis() {
+            return borrowed == 0 ? 0 : (double) totalWaitMillis / borrowed;
+        }
+    }
+
+    /**
+     * A physical connection and its timestamps.
+     */
+    private static final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt;
+        private long lastUsed;
+        // set by the borrower, restored when the connection is returned
+        private boolean readOnlyChanged;
+        private int defaultIsolation = -1;
+
+        PooledConnection(Connection physical, long now) {
+            this.physical = physical;
+            this.createdAt = now;
+            this.lastUsed = now;
+        }
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory          the factory of the physical connections
+     * @param maxSize          the maximum number of open connections
+     * @param maxWaitMillis    the maximum time to wait for a connection
+     * @param idleTimeoutMillis the time after which an idle connection is closed
+     * @param maxLifetimeMillis the time after which a connection is closed once returned
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long maxWaitMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleTimeoutMillis));
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxLifetimeMillis));
+        this.permits = new Semaphore(this.maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the pool shared by all the repositories, configured by the
+     * {@code db.*} and {@code db.pool.*} properties.
+     *
+     * @return the singleton instance of ConnectionPool
+     */
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            AppConfig config = AppConfig.getInstance();
+            String url = "jdbc:mysql://" + config.getProperty("db.host") + "/" + config.getProperty("db.name");
+            String user = config.getProperty("db.user");
+            String password = config.getProperty("db.password");
+            instance = new ConnectionPool(
+                    () -> DriverManager.getConnection(url, user, password),
+                    config.getIntProperty("db.pool.max.size", DEFAULT_MAX_SIZE),
+                    config.getIntProperty("db.pool.max.wait.ms", DEFAULT_MAX_WAIT_MILLIS),
+                    config.getIntProperty("db.pool.idle.timeout.ms", DEFAULT_IDLE_TIMEOUT_MILLIS),
+                    config.getIntProperty("db.pool.max.lifetime.ms", DEFAULT_MAX_LIFETIME_MILLIS));
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared pool, if it was created. The pool is kept closed
+     * rather than discarded, so that later calls fail instead of opening
+     * new connections.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+        }
+    }
+
+    /**
+     * Borrows a connection. Closing it returns it to the pool.
+     *
+     * @return a connection in auto-commit mode
+     * @throws SQLTimeoutException if no connection was available within {@code db.pool.max.wait.ms}
+     * @throws SQLException if a connection cannot be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("No connection available after " + maxWaitMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create(), System.nanoTime());
+                open.incrementAndGet();
+                created.increment();
+            }
+            borrowed.increment();
+            return proxy(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            long now = System.nanoTime();
+            if (now - pooled.createdAt >= maxLifetimeNanos || now - pooled.lastUsed >= idleTimeoutNanos
+                    || (now - pooled.lastUsed >= VALIDATION_GRACE_NANOS && !isValid(pooled))) {
+                discard(pooled);
+                continue;
+            }
+            return pooled;
+        }
+    }
+
+    private static boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection proxy(PooledConnection pooled) {
+        Object lock = new Object();
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    String name = method.getName();
+                    synchronized (lock) {
+                        if ("close".equals(name)) {
+                            if (!returned[0]) {
+                                returned[0] = true;
+                                giveBack(pooled);
+                            }
+                            return null;
+                        }
+                        if ("isClosed".equals(name)) {
+                            return returned[0] || pooled.physical.isClosed();
+                        }
+                        if (returned[0]) {
+                            throw new SQLException("Connection is closed");
+                        }
+                        if ("setReadOnly".equals(name)) {
+                            pooled.readOnlyChanged = true;
+                        } else if ("setTransactionIsolation".equals(name) && pooled.defaultIsolation < 0) {
+                            pooled.defaultIsolation = pooled.physical.getTransactionIsolation();
+                        }
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        try {
+            if (closed || pooled.physical.isClosed()
+                    || System.nanoTime() - pooled.createdAt >= maxLifetimeNanos) {
+                discard(pooled);
+                return;
+            }
+            // a transaction left open must not leak to the next borrower
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            // so is the session state set for it
+            if (pooled.readOnlyChanged) {
+                pooled.physical.setReadOnly(false);
+                pooled.readOnlyChanged = false;
+            }
+            if (pooled.defaultIsolation >= 0) {
+                pooled.physical.setTransactionIsolation(pooled.defaultIsolation);
+                pooled.defaultIsolation = -1;
+            }
+            pooled.lastUsed = System.nanoTime();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        open.decrementAndGet();
+        evicted.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // already broken
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsed >= idleTimeoutNanos || now - pooled.createdAt >= maxLifetimeNanos) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+        }
+        // closed outside the lock: closing a connection may block on the network
+        expired.forEach(this::discard);
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        if (nanos > maxWaitNanos) {
+            synchronized (this) {
+                if (nanos > maxWaitNanos) {
+                    maxWaitNanos = nanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics of the pool.
+     *
+     * @return a snapshot of the pool usage and wait times
+     */
+    public Stats stats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        return new Stats(maxSize - permits.availablePermits(), idleCount, created.sum(), borrowed.sum(),
+                timeouts.sum(), evicted.sum(), TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    /**
+     * Returns the number of physical connections currently open, lent or idle.
+     *
+     * @return the number of open connections
+     */
+    public int getOpenCount() {
+        return open.get();
+    }
+
+    /**
+     * Closes the idle connections and stops the pool. Lent connections are
+     * closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> remaining;
+        synchronized (idle) {
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        remaining.forEach(this::discard);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool uses the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // no logging
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper of " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -2,41 +2,62 @@ package com.moustass.config;
 
 import com.moustass.exception.DatabaseConnectionException;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Database configuration and connection provider.
+ * <p>
+ * Connections are borrowed from the shared {@link ConnectionPool}: closing
+ * them, as the repositories do with try-with-resources, returns them to the pool.
+ * Inside a {@link UnitOfWork}, the connection of the transaction is returned instead.
+ * </p>
  */
 public class DatabaseConfig {
 
+    static {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            // reported by getConnection() when no driver accepts the URL
+        }
+    }
+
     /**
-     * Creates and returns a connection to the MySQL database.
+     * Borrows a connection to the MySQL database from the shared pool.
      * <p>
      * Database connection parameters (host, database name, user, password) are retrieved from the application configuration.
      * </p>
      *
-     * @return an active {@link Connection} to the database
-     * @throws DatabaseConnectionException if the JDBC driver is not found or if a database access error occurs
+     * @return an active {@link Connection} to the database, to be closed after use
+     * @throws DatabaseConnectionException if no connection can be opened or none becomes available in time
      */
     public Connection getConnection(){
-        AppConfig config = AppConfig.getInstance();
-
-        String databaseName= config.getProperty("db.name");
-        String databaseUser= config.getProperty("db.user");
-        String databasePassword = config.getProperty("db.password");
-        String host = config.getProperty("db.host");
-
-        String url = "jdbc:mysql://" + host + "/"+ databaseName;
-        Connection databaseLink = null;
         try{
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            databaseLink = DriverManager.getConnection(url,databaseUser, databasePassword);
-        } catch (SQLException | ClassNotFoundException e){
+            Connection transaction = UnitOfWork.currentConnection();
+            if (transaction != null) {
+                return transaction;
+            }
+            return ConnectionPool.getInstance().getConnection();
+        } catch (SQLException e){
             throw new DatabaseConnectionException("Erreur de connexion MySQL : " + e.getMessage());
         }
+    }
 
-        return databaseLink;
+    /**
+     * Returns the data source shared by all the repositories.
+     *
+     * @return the connection pool
+     */
+    public static DataSource getDataSource() {
+        return ConnectionPool.getInstance();
+    }
+
+    /**
+     * Closes the pooled connections. Called when the application exits.
+     */
+    public static void shutdown() {
+        ConnectionPool.shutdown();
     }
 }
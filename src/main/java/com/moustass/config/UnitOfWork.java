@@ -0,0 +1,245 @@
+package com.moustass.config;
+
+import com.moustass.exception.DatabaseConnectionException;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several repository calls in a single database transaction.
+ * <p>
+ * While {@link #inTransaction(Work)} runs, every connection returned by
+ * {@link DatabaseConfig#getConnection()} on the same thread is the
+ * connection of the transaction: the repositories join it without any
+ * change. Closing, committing or switching auto-commit on that connection
+ * is ignored, so a repository that manages its own transaction (such as a
+ * batch insert) simply becomes part of the enclosing one; a rollback marks
+ * the whole transaction to be rolled back.
+ * </p>
+ * <p>
+ * The work is committed once, when it returns, and rolled back if it throws.
+ * The connection is only borrowed when the first repository asks for one.
+ * Nested calls join the outermost transaction. Actions registered with
+ * {@link #afterCompletion(Runnable)}, such as cache invalidations, run once
+ * it has ended, so that no other thread reloads what it has not committed yet.
+ * </p>
+ */
+public final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final DataSource dataSource;
+    private Connection connection;
+    private Connection joined;
+    private boolean rollbackOnly;
+    private final List<Runnable> completions = new ArrayList<>();
+
+    /**
+     * Work run in a transaction.
+     *
+     * @param <T> the type of the result
+     * @param <E> the type of the checked exception thrown by the work
+     */
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        /**
+         * Runs the repository calls of the transaction.
+         *
+         * @return the result of the work
+         * @throws E if the work fails, which rolls the transaction back
+         */
+        T execute() throws E;
+    }
+
+    private UnitOfWork(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Runs a work in a transaction on the shared connection pool.
+     *
+     * @param work the repository calls to run
+     * @param <T>  the type of the result
+     * @param <E>  the type of the checked exception thrown by the work
+     * @return the result of the work
+     * @throws E if the work fails
+     * @throws DatabaseConnectionException if the transaction cannot be committed
+     */
+    public static <T, E extends Exception> T inTransaction(Work<T, E> work) throws E {
+        return inTransaction(null, work);
+    }
+
+    /**
+     * Runs a work in a transaction on the given data source.
+     *
+     * @param dataSource the data source of the connection, or {@code null} for the shared pool
+     * @param work       the repository calls to run
+     * @param <T>        the type of the result
+     * @param <E>        the type of the checked exception thrown by the work
+     * @return the result of the work
+     * @throws E if the work fails
+     * @throws DatabaseConnectionException if the transaction cannot be committed
+     */
+    public static <T, E extends Exception> T inTransaction(DataSource dataSource, Work<T, E> work) throws E {
+        if (CURRENT.get() != null) {
+            return work.execute();
+        }
+        UnitOfWork unit = new UnitOfWork(dataSource);
+        CURRENT.set(unit);
+        T result;
+        try {
+            result = work.execute();
+            unit.commit();
+        } catch (Exception | Error e) {
+            unit.rollbackQuietly();
+            unit.end(e);
+            throw e;
+        }
+        unit.end(null);
+        return result;
+    }
+
+    /**
+     * Runs an action once the transaction running on this thread has ended,
+     * committed or rolled back, or right away outside a transaction.
+     * <p>
+     * Every action runs even if another one fails. The first failure is then
+     * thrown by {@link #inTransaction(Work)}, or added to the exception of
+     * the work if the transaction was rolled back.
+     * </p>
+     *
+     * @param action the action to run
+     */
+    public static void afterCompletion(Runnable action) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            action.run();
+        } else {
+            unit.completions.add(action);
+        }
+    }
+
+    /**
+     * Returns the connection of the transaction running on this thread.
+     *
+     * @return the connection shared by the repositories, or {@code null} outside a transaction
+     * @throws SQLException if the connection cannot be borrowed
+     */
+    static Connection currentConnection() throws SQLException {
+        UnitOfWork unit = CURRENT.get();
+        return unit == null ? null : unit.connection();
+    }
+
+    /**
+     * Tells whether a transaction is running on this thread.
+     *
+     * @return {@code true} inside {@link #inTransaction(Work)}
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    private Connection connection() throws SQLException {
+        if (joined == null) {
+            connection = dataSource != null ? dataSource.getConnection() : DatabaseConfig.getDataSource().getConnection();
+            connection.setAutoCommit(false);
+            joined = join(connection);
+        }
+        return joined;
+    }
+
+    private Connection join(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "close", "commit", "setAutoCommit":
+                            // owned by the unit of work
+                            return null;
+                        case "getAutoCommit":
+                            return false;
+                        case "rollback":
+                            if (args == null) {
+                                rollbackOnly = true;
+                                return null;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void commit() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (rollbackOnly) {
+                // rolled back by inTransaction
+                throw new DatabaseConnectionException("Error db : transaction rolled back");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    private void rollbackQuietly() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            // the connection is discarded by the pool
+        }
+    }
+
+    private void end(Throwable outcome) {
+        CURRENT.remove();
+        release();
+        RuntimeException failure = null;
+        for (Runnable action : completions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                if (outcome != null) {
+                    // the failure of the work stays the one reported
+                    outcome.addSuppressed(e);
+                } else if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void release() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            // reset again by the pool
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // already closed
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.moustass.controller;
 
+import com.moustass.cache.CachingUserRepository;
+import com.moustass.cache.KeyPairPool;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.User;
-import com.moustass.repository.UserRepository;
+import com.moustass.model.UserSummary;
 import com.moustass.service.CreateAccountService;
 import com.moustass.session.SessionManager;
 import javafx.fxml.FXML;
@@ -11,13 +14,13 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import javafx.scene.input.MouseEvent;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * JavaFX controller responsible for user account creation.
@@ -41,16 +44,25 @@ public class CreateAccountController {
     @FXML
     private Button createBtn;
 
+    @FXML
+    private ComboBox<SignatureAlgorithm> signatureAlgorithm;
+
     private final CreateAccountService service = new CreateAccountService();
     private Integer performedByUserId = null;
 
+    @FXML
+    public void initialize() {
+        signatureAlgorithm.getItems().setAll(SignatureAlgorithm.values());
+        signatureAlgorithm.setValue(KeyPairPool.defaultAlgorithm());
+    }
+
     @FXML
     protected void onCreate() {
         try {
             boolean adminVerified = false;
             if (performedByUserId != null) {
-                User performer = new UserRepository().findById(performedByUserId);
-                if (performer != null && Boolean.TRUE.equals(performer.getIsAdmin())) {
+                UserSummary performer = CachingUserRepository.getInstance().findSummaryById(performedByUserId);
+                if (performer != null && performer.isAdmin()) {
                     Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
                     confirm.setTitle("Double vérification requise");
                     confirm.setHeaderText(null);
@@ -64,7 +76,8 @@ public class CreateAccountController {
                 }
             }
 
-            User u = service.createAccount(firstname.getText(), lastname.getText(), username.getText(), password.getText(), confirmPassword.getText(), performedByUserId, adminVerified);
+            User u = service.createAccount(firstname.getText(), lastname.getText(), username.getText(), password.getText(), confirmPassword.getText(), performedByUserId, adminVerified,
+                    signatureAlgorithm.getValue());
             Alert a = new Alert(Alert.AlertType.INFORMATION);
             a.setTitle("Compte créé");
             a.setHeaderText(null);
@@ -72,7 +85,7 @@ public class CreateAccountController {
             a.showAndWait();
             // clear fields
             firstname.clear(); lastname.clear(); username.clear(); password.clear(); confirmPassword.clear();
-        } catch (IllegalArgumentException | NoSuchAlgorithmException e) {
+        } catch (IllegalArgumentException e) {
             Alert a = new Alert(Alert.AlertType.ERROR);
             a.setTitle("Erreur");
             a.setHeaderText(null);
@@ -1,11 +1,27 @@
 package com.moustass.controller;
 
+import com.moustass.config.AppConfig;
+import com.moustass.model.DownloadResult;
+import com.moustass.model.SignatureQuery;
+import com.moustass.model.VerificationResult;
+import com.moustass.service.BatchSigningService;
+import com.moustass.service.BulkVerificationService;
+import com.moustass.service.DownloadService;
 import com.moustass.service.SignatureLogService;
 import com.moustass.session.SessionManager;
+import com.moustass.task.BatchSignTask;
+import com.moustass.task.DownloadTask;
+import com.moustass.task.SignFileTask;
+import com.moustass.task.TaskExecutor;
+import com.moustass.task.VerifyFileTask;
+import com.moustass.view.SignaturePager;
 import com.moustass.view.SignatureView;
+import com.moustass.view.TaskListCell;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ListChangeListener;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,25 +30,32 @@ import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SignatureException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * JavaFX controller responsible for Home page.
  */
 public class WelcomeController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_WINDOW_SIZE = 1000;
+
     @FXML
     public Label userConnected;
 
@@ -45,8 +68,27 @@ public class WelcomeController {
     @FXML
     public Button btnSign;
 
-    private File selectedFile;
-    private String currentFileName;
+    @FXML
+    public Button btnVerifyAll;
+
+    @FXML
+    public Label verifyProgress;
+
+    @FXML
+    public CheckBox forceFullVerify;
+
+    @FXML
+    public CheckBox verifyOnDownload;
+
+    @FXML
+    public ListView<Task<?>> taskList;
+
+    @FXML
+    public TextField signatureFilter;
+
+    private BulkVerificationService.Handle bulkVerification;
+
+    private final List<File> selectedFiles = new ArrayList<>();
 
     // Table
     @FXML
@@ -61,13 +103,24 @@ public class WelcomeController {
     @FXML
     TableColumn<SignatureView, String> userNameSignature;
 
+    @FXML
+    TableColumn<SignatureView, String> statusSignature;
+
     @FXML
     private TableColumn<SignatureView, Void> actionColumn;
 
-    private final ObservableList<SignatureView> signatures = FXCollections.observableArrayList();
+    // loads the signatures page by page while the table is scrolled
+    private SignaturePager signaturePager;
+    private final PauseTransition filterDelay = new PauseTransition(Duration.millis(300));
+    // last verification outcome of each signature, kept when the table is reloaded
+    private final Map<Integer, String> verificationStatus = new HashMap<>();
 
     // Service
     private final SignatureLogService signatureLogService = new SignatureLogService();
+    private final BulkVerificationService bulkVerificationService = new BulkVerificationService();
+    private final DownloadService downloadService = new DownloadService();
+    private final BatchSigningService batchSigningService = new BatchSigningService();
+    private final TaskExecutor taskExecutor = TaskExecutor.getInstance();
 
     public void initialize() {
         // Show the user connected
@@ -83,37 +136,114 @@ public class WelcomeController {
         userNameSignature.setCellValueFactory(cellData ->
                 new SimpleObjectProperty<>(cellData.getValue().getUserName()));
 
+        statusSignature.setCellValueFactory(cellData ->
+                new SimpleObjectProperty<>(verificationStatus.get(cellData.getValue().getIdSignature())));
+
         addButtonToTable();
 
+        // Background tasks: sign, verify and download
+        taskList.setItems(taskExecutor.getTasks());
+        taskList.setCellFactory(list -> new TaskListCell());
+
+        signaturePager = new SignaturePager(tableSignature, signatureLogService::findSignatures,
+                AppConfig.getInstance().getIntProperty("signatures.page.size", DEFAULT_PAGE_SIZE),
+                AppConfig.getInstance().getIntProperty("signatures.window.size", DEFAULT_WINDOW_SIZE),
+                error -> showAlert("Erreur de chargement : " + error.getMessage(), Alert.AlertType.ERROR));
+
+        // sorted and filtered by the database: only a window of the rows is in the table
+        for (TableColumn<SignatureView, ?> column : tableSignature.getColumns()) {
+            column.setSortable(column == dateSign);
+        }
+        tableSignature.setSortPolicy(table -> true);
+        tableSignature.getSortOrder().addListener((ListChangeListener<TableColumn<SignatureView, ?>>) change -> loadSignatures());
+        dateSign.sortTypeProperty().addListener((obs, previous, sortType) -> loadSignatures());
+        filterDelay.setOnFinished(event -> loadSignatures());
+        signatureFilter.textProperty().addListener((obs, previous, text) -> filterDelay.playFromStart());
+
         loadSignatures();
-        tableSignature.setItems(signatures);
     }
 
-    private void verifyFile(int idSignature) {
-        try {
-            if(signatureLogService.isFileOk(idSignature)){
+    private void verifyFile(int idSignature, String fileName) {
+        VerifyFileTask task = new VerifyFileTask(signatureLogService, idSignature, fileName, forceFullVerify.isSelected());
+        setStatus(idSignature, "En cours");
+        task.setOnSucceeded(event -> {
+            if (Boolean.TRUE.equals(task.getValue())) {
+                setStatus(idSignature, "OK");
                 showAlert("Fichier ok !", Alert.AlertType.INFORMATION);
-            }else{
+            } else {
+                setStatus(idSignature, "Corrompu");
                 showAlert("Fichier corrompu !", Alert.AlertType.ERROR);
             }
-        }catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException ex){
-            showAlert("Erreur en interne ! " +ex.getMessage(), Alert.AlertType.ERROR);
+        });
+        task.setOnFailed(event -> {
+            setStatus(idSignature, "Erreur");
+            showAlert("Erreur en interne ! " + task.getException().getMessage(), Alert.AlertType.ERROR);
+        });
+        task.setOnCancelled(event -> setStatus(idSignature, null));
+        taskExecutor.submit(task);
+    }
+
+    private void setStatus(int idSignature, String status) {
+        if (status == null) {
+            verificationStatus.remove(idSignature);
+        } else {
+            verificationStatus.put(idSignature, status);
         }
+        tableSignature.refresh();
     }
 
-    public void donwloadFile(int idSignature){
-        File sourceFile = signatureLogService.fileToDownload(idSignature);
+    private static String statusOf(VerificationResult result) {
+        return switch (result.getStatus()) {
+            case OK -> "OK";
+            case CORRUPTED -> "Corrompu";
+            default -> "Erreur";
+        };
+    }
 
-        if (!sourceFile.exists()) {
-            showAlert("Fichier introuvable !!", Alert.AlertType.ERROR);
+    @FXML
+    public void onVerifyAll() {
+        // second click cancels the running verification
+        if (bulkVerification != null && !bulkVerification.isDone()) {
+            bulkVerification.cancel();
             return;
         }
 
+        AtomicInteger failures = new AtomicInteger();
+        btnVerifyAll.setText("Annuler");
+        bulkVerification = bulkVerificationService.verifyAll(new BulkVerificationService.Listener() {
+            @Override
+            public void onResults(List<VerificationResult> results, int done, int total) {
+                results.stream()
+                        .filter(result -> result.getStatus() != VerificationResult.Status.OK)
+                        .forEach(result -> failures.incrementAndGet());
+                // one update of the table per batch of results
+                Platform.runLater(() -> {
+                    verifyProgress.setText(done + " / " + total);
+                    results.forEach(result -> setStatus(result.getSignatureId(), statusOf(result)));
+                });
+            }
+
+            @Override
+            public void onFinished(int done, int total, boolean cancelled) {
+                Platform.runLater(() -> {
+                    btnVerifyAll.setText("Tout vérifier");
+                    String summary = done + " / " + total + " fichiers vérifiés, " + failures.get() + " en erreur";
+                    verifyProgress.setText(summary);
+                    if (!cancelled) {
+                        showAlert(summary, failures.get() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+                    }
+                });
+            }
+        }, forceFullVerify.isSelected());
+    }
+
+    public void donwloadFile(int idSignature, String fileName){
+        // the stored file is looked up by the task: a missing file is reported as an error
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Enregistrer le fichier");
 
         // nom proposé par défaut
-        fileChooser.setInitialFileName(sourceFile.getName());
+        fileChooser.setInitialFileName(fileName);
 
         Window window = tableSignature.getScene().getWindow();
         File destinationFile = fileChooser.showSaveDialog(window);
@@ -122,18 +252,26 @@ public class WelcomeController {
             return; // canceled
         }
 
-        try {
-            Files.copy(
-                    sourceFile.toPath(),
-                    destinationFile.toPath(),
-                    StandardCopyOption.REPLACE_EXISTING
-            );
-
-            showAlert("Téléchargement terminé ✔", Alert.AlertType.INFORMATION);
-
-        } catch (IOException e) {
-            showAlert("Erreur lors du téléchargement : " + e.getMessage(), Alert.AlertType.ERROR);
-        }
+        // copied on a background thread, the UI stays responsive
+        DownloadTask task = new DownloadTask(downloadService, idSignature, destinationFile.toPath(),
+                verifyOnDownload.isSelected());
+        task.setOnSucceeded(event -> {
+            DownloadResult result = task.getValue();
+            switch (result.getStatus()) {
+                case OK -> showAlert("Téléchargement terminé ✔", Alert.AlertType.INFORMATION);
+                case CORRUPTED -> {
+                    setStatus(idSignature, "Corrompu");
+                    showAlert("Fichier corrompu, téléchargement annulé !", Alert.AlertType.ERROR);
+                }
+                case CANCELLED -> {
+                    // cancelled from the task list
+                }
+                default -> showAlert("Erreur lors du téléchargement : " + result.getMessage(), Alert.AlertType.ERROR);
+            }
+        });
+        task.setOnFailed(event ->
+                showAlert("Erreur lors du téléchargement : " + task.getException().getMessage(), Alert.AlertType.ERROR));
+        taskExecutor.submit(task);
     }
 
     @FXML
@@ -141,32 +279,77 @@ public class WelcomeController {
         Window window = btnChooseFile.getScene().getWindow();
 
         FileChooser chooser = new FileChooser();
-        chooser.setTitle("Choisir un fichier à signer");
+        chooser.setTitle("Choisir les fichiers à signer");
+
+        List<File> chosen = chooser.showOpenMultipleDialog(window);
+
+        if (chosen != null) {
+            select(chosen);
+        }
+    }
+
+    @FXML
+    public void onDragOver(DragEvent event) {
+        if (event.getDragboard().hasFiles()) {
+            event.acceptTransferModes(TransferMode.COPY);
+        }
+        event.consume();
+    }
 
-        selectedFile = chooser.showOpenDialog(window);
+    @FXML
+    public void onDragDropped(DragEvent event) {
+        Dragboard dragboard = event.getDragboard();
+        boolean dropped = dragboard.hasFiles();
+        if (dropped) {
+            // files and folders, folders are walked when the batch starts
+            select(dragboard.getFiles());
+        }
+        event.setDropCompleted(dropped);
+        event.consume();
+    }
 
-        if (selectedFile != null) {
-            currentFileName = selectedFile.getName();
-            nameFile.setText(currentFileName);
+    private void select(List<File> files) {
+        selectedFiles.clear();
+        selectedFiles.addAll(files);
+        if (selectedFiles.size() == 1) {
+            nameFile.setText(selectedFiles.get(0).getName());
+        } else {
+            nameFile.setText(selectedFiles.size() + " éléments sélectionnés");
         }
     }
 
     @FXML
     public void onSaveFile() {
-        if (currentFileName == null) {
+        if (selectedFiles.isEmpty()) {
             showAlert("No file selected", Alert.AlertType.ERROR);
             return;
         }
 
-        try {
-            this.signatureLogService.saveFile(selectedFile);
-            refreshTable();
-            showAlert("file saved", Alert.AlertType.INFORMATION);
-            selectedFile = null;
-            nameFile.setText("");
-        }catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException ex){
-            showAlert(ex.getMessage(), Alert.AlertType.ERROR);
+        // signed in the background: other files can be chosen and queued meanwhile
+        File single = selectedFiles.get(0);
+        if (selectedFiles.size() == 1 && single.isFile()) {
+            SignFileTask task = new SignFileTask(signatureLogService, single);
+            task.setOnSucceeded(event -> {
+                refreshTable();
+                showAlert("file saved", Alert.AlertType.INFORMATION);
+            });
+            task.setOnFailed(event -> showAlert(task.getException().getMessage(), Alert.AlertType.ERROR));
+            taskExecutor.submit(task);
+        } else {
+            BatchSignTask task = new BatchSignTask(batchSigningService,
+                    selectedFiles.stream().map(File::toPath).toList());
+            task.setOnSucceeded(event -> {
+                refreshTable();
+                String summary = task.getValue() + " fichier(s) signé(s), " + task.getFailed() + " en erreur";
+                showAlert(summary, task.getFailed() == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+            });
+            task.setOnCancelled(event -> refreshTable());
+            task.setOnFailed(event -> showAlert(task.getException().getMessage(), Alert.AlertType.ERROR));
+            taskExecutor.submit(task);
         }
+
+        selectedFiles.clear();
+        nameFile.setText("");
     }
 
     private void showAlert(String msg, Alert.AlertType typeAlert) {
@@ -177,9 +360,9 @@ public class WelcomeController {
     }
 
     public void loadSignatures(){
-        signatures.addAll(
-                signatureLogService.findAllSignatures()
-        );
+        boolean oldestFirst = tableSignature.getSortOrder().contains(dateSign)
+                && dateSign.getSortType() == TableColumn.SortType.ASCENDING;
+        signaturePager.reload(new SignatureQuery(signatureFilter.getText(), null, !oldestFirst));
     }
 
     private void addButtonToTable() {
@@ -202,12 +385,12 @@ public class WelcomeController {
 
                                 btnDonwload.setOnAction(event -> {
                                     SignatureView signature = getTableView().getItems().get(getIndex());
-                                    donwloadFile(signature.getIdSignature());
+                                    donwloadFile(signature.getIdSignature(), signature.getFileName());
                                 });
 
                                 btnVerify.setOnAction(event -> {
                                     SignatureView signature = getTableView().getItems().get(getIndex());
-                                    verifyFile(signature.getIdSignature());
+                                    verifyFile(signature.getIdSignature(), signature.getFileName());
                                 });
                             }
 
@@ -230,17 +413,17 @@ public class WelcomeController {
 
 
     private void refreshTable() {
-        ObservableList<SignatureView> data = tableSignature.getItems();
-
-        data.clear();
-        loadSignatures();
-        tableSignature.setItems(signatures);
+        signaturePager.refresh();
     }
 
     public void onLogout(ActionEvent actionEvent) throws IOException {
         boolean hasConfirmed = showConfirmDialog("Voulez vous vraiment vous déconnecter ?");
 
         if(hasConfirmed){
+            // queued tasks would run on behalf of the next user
+            taskExecutor.cancelAll();
+            signaturePager.close();
+            if (bulkVerification != null) bulkVerification.cancel();
             SessionManager.logout();
 
             java.net.URL fxmlUrl = getClass().getResource("/com/moustass/login-view.fxml");
@@ -0,0 +1,209 @@
+package com.moustass.migrations;
+
+import com.moustass.config.AppConfig;
+import com.moustass.exception.DatabaseConnectionException;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleReader;
+import java.lang.module.ResolvedModule;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Applies the versioned SQL migrations of this package with Flyway.
+ * <p>
+ * Migrations are the {@code V<n>__<description>.sql} resources next to
+ * this class. They are applied at startup, in order, and recorded in the
+ * {@code flyway_schema_history} table, so each one runs once per database.
+ * </p>
+ * <p>
+ * Databases created before Flyway was used have the schema but no history:
+ * they are baselined at {@code db.migration.baseline.version} (1 by default,
+ * the schema of {@code V1__create_schema.sql} they were created with), and
+ * only the later migrations are run.
+ * </p>
+ * <p>
+ * Flyway cannot list the resources of a named module, so the scripts are
+ * listed here, from the module or from the directory or jar of this class,
+ * and handed to Flyway.
+ * </p>
+ */
+public final class DatabaseMigrator {
+    private static final String PATH = "com/moustass/migrations/";
+    static final String DEFAULT_BASELINE_VERSION = "1";
+
+    private DatabaseMigrator() {
+    }
+
+    /**
+     * Migrates the configured database, unless {@code db.migration.enabled} is {@code false}.
+     *
+     * @param dataSource the data source of the database
+     * @return the number of migrations applied
+     * @throws DatabaseConnectionException if a migration fails
+     */
+    public static int migrate(DataSource dataSource) {
+        AppConfig config = AppConfig.getInstance();
+        if ("false".equalsIgnoreCase(config.getProperty("db.migration.enabled"))) {
+            return 0;
+        }
+        String baseline = config.getProperty("db.migration.baseline.version");
+        return migrate(dataSource, baseline == null || baseline.isBlank() ? DEFAULT_BASELINE_VERSION : baseline.trim());
+    }
+
+    /**
+     * Migrates a database.
+     *
+     * @param dataSource      the data source of the database
+     * @param baselineVersion the version of a schema created without Flyway
+     * @return the number of migrations applied
+     * @throws DatabaseConnectionException if a migration fails
+     */
+    public static int migrate(DataSource dataSource, String baselineVersion) {
+        try {
+            return Flyway.configure(DatabaseMigrator.class.getClassLoader())
+                    .dataSource(dataSource)
+                    .resourceProvider(new ScriptProvider(scripts()))
+                    .baselineOnMigrate(true)
+                    .baselineVersion(baselineVersion)
+                    .load()
+                    .migrate()
+                    .migrationsExecuted;
+        } catch (FlywayException | IOException | UncheckedIOException e) {
+            throw new DatabaseConnectionException("Error db : migration failed, " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the file names of the SQL scripts of this package.
+     *
+     * @return the names of the scripts, such as {@code V1__create_schema.sql}
+     * @throws IOException if the module or the jar cannot be read
+     */
+    static List<String> scripts() throws IOException {
+        Module module = DatabaseMigrator.class.getModule();
+        if (module.isNamed() && module.getLayer() != null) {
+            Optional<ResolvedModule> resolved = module.getLayer().configuration().findModule(module.getName());
+            if (resolved.isPresent()) {
+                try (ModuleReader reader = resolved.get().reference().open(); Stream<String> names = reader.list()) {
+                    return names.filter(name -> name.startsWith(PATH))
+                            .map(name -> name.substring(PATH.length()))
+                            .filter(DatabaseMigrator::isScript)
+                            .sorted()
+                            .toList();
+                }
+            }
+        }
+        // class path: the directory or the jar this class was loaded from
+        Path location;
+        try {
+            location = Path.of(DatabaseMigrator.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (Files.isDirectory(location)) {
+            return list(location.resolve(PATH));
+        }
+        try (FileSystem jar = FileSystems.newFileSystem(location)) {
+            return list(jar.getPath(PATH));
+        }
+    }
+
+    private static List<String> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(DatabaseMigrator::isScript)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isScript(String name) {
+        return name.endsWith(".sql") && name.indexOf('/') < 0;
+    }
+
+    /**
+     * Serves the listed scripts to Flyway.
+     */
+    private static final class ScriptProvider implements ResourceProvider {
+        private final List<LoadableResource> resources;
+
+        ScriptProvider(List<String> names) {
+            this.resources = names.stream().<LoadableResource>map(Script::new).toList();
+        }
+
+        @Override
+        public LoadableResource getResource(String name) {
+            return resources.stream()
+                    .filter(r -> r.getRelativePath().equals(name) || r.getAbsolutePath().equals(name))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+            return resources.stream()
+                    .filter(r -> r.getFilename().startsWith(prefix))
+                    .filter(r -> Arrays.stream(suffixes).anyMatch(r.getFilename()::endsWith))
+                    .toList();
+        }
+    }
+
+    /**
+     * A script read from the resources of this package.
+     */
+    private static final class Script extends LoadableResource {
+        private final String name;
+
+        Script(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Reader read() {
+            InputStream in = DatabaseMigrator.class.getResourceAsStream("/" + PATH + name);
+            if (in == null) {
+                throw new UncheckedIOException(new IOException("Migration not found: " + name));
+            }
+            return new InputStreamReader(in, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return PATH + name;
+        }
+
+        @Override
+        public String getAbsolutePathOnDisk() {
+            return PATH + name;
+        }
+
+        @Override
+        public String getFilename() {
+            return name;
+        }
+
+        @Override
+        public String getRelativePath() {
+            return name;
+        }
+    }
+}
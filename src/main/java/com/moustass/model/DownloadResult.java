@@ -0,0 +1,79 @@
+package com.moustass.model;
+
+/**
+ * Represents the outcome of the download of one signed file.
+ * <p>
+ * Reports whether the file was exported, whether its signature was
+ * checked on the way, and the throughput of the copy.
+ * </p>
+ */
+public class DownloadResult {
+    private final int signatureId;
+    private final Status status;
+    private final long bytes;
+    private final long elapsedMillis;
+    private final boolean verified;
+    private final String message;
+
+    /**
+     * Enumeration of possible download outcomes.
+     */
+    public enum Status {
+        OK,
+        CORRUPTED,
+        CANCELLED,
+        ERROR
+    }
+
+    /**
+     * Creates a new download result.
+     *
+     * @param signatureId   the identifier of the downloaded signature
+     * @param status        the outcome of the download
+     * @param bytes         the number of bytes copied
+     * @param elapsedMillis the duration of the download in milliseconds
+     * @param verified      {@code true} if the signature was checked during the copy
+     * @param message       additional information, typically the error message
+     */
+    public DownloadResult(int signatureId, Status status, long bytes, long elapsedMillis, boolean verified, String message) {
+        this.signatureId = signatureId;
+        this.status = status;
+        this.bytes = bytes;
+        this.elapsedMillis = elapsedMillis;
+        this.verified = verified;
+        this.message = message;
+    }
+
+    public int getSignatureId() {
+        return signatureId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the average throughput of the copy.
+     *
+     * @return the number of bytes copied per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? bytes * 1000.0 : bytes * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,103 @@
+package com.moustass.model;
+
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.MerkleHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proof that a file hash belongs to a signed batch.
+ * <p>
+ * The files of a batch are the leaves of a Merkle tree whose root alone
+ * is signed. The proof gives the position of the file in the batch and
+ * the hashes of its siblings, which are enough to recompute the root.
+ * It is stored as {@code index:size:sibling,sibling,...}, the hashes
+ * being Base64-encoded.
+ * </p>
+ */
+public class InclusionProof {
+    private final int index;
+    private final int size;
+    private final List<byte[]> siblings;
+
+    /**
+     * Creates a proof.
+     *
+     * @param index    the position of the file in the batch
+     * @param size     the number of files of the batch
+     * @param siblings the hashes of the siblings, from the leaf up
+     */
+    public InclusionProof(int index, int size, List<byte[]> siblings) {
+        this.index = index;
+        this.size = size;
+        this.siblings = List.copyOf(siblings);
+    }
+
+    /**
+     * Returns the leaf of a file hash in a batch tree.
+     *
+     * @param fileHash the signed hash of the file
+     * @return the leaf hash
+     */
+    public static byte[] leafOf(byte[] fileHash) {
+        return MerkleHasher.batchLeafHash(fileHash);
+    }
+
+    /**
+     * Recomputes the root of the batch from the hash of the file.
+     *
+     * @param fileHash the hash of the file
+     * @return the root of the batch, or {@code null} if the proof is malformed
+     */
+    public byte[] root(byte[] fileHash) {
+        return MerkleHasher.rootFromProof(leafOf(fileHash), index, size, siblings);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<byte[]> getSiblings() {
+        return siblings;
+    }
+
+    /**
+     * Encodes the proof for storage.
+     *
+     * @return the proof as {@code index:size:sibling,...}
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(index).append(':').append(size).append(':');
+        for (int i = 0; i < siblings.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(CryptoUtils.b64(siblings.get(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a stored proof.
+     *
+     * @param encoded the proof as returned by {@link #encode()}
+     * @return the proof
+     * @throws IllegalArgumentException if the proof is malformed
+     */
+    public static InclusionProof decode(String encoded) {
+        String[] parts = encoded.split(":", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed inclusion proof");
+        }
+        List<byte[]> siblings = new ArrayList<>();
+        if (!parts[2].isEmpty()) {
+            for (String sibling : parts[2].split(",")) {
+                siblings.add(CryptoUtils.fromB64(sibling));
+            }
+        }
+        return new InclusionProof(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), siblings);
+    }
+}
@@ -0,0 +1,68 @@
+package com.moustass.model;
+
+/**
+ * Represents the digital signature algorithms supported by the application.
+ * <p>
+ * The algorithm is chosen per user when its key pair is generated and is
+ * stored with every signature, so that verification can dispatch on it.
+ * All algorithms sign the SHA-256 digest of the file content.
+ * </p>
+ */
+public enum SignatureAlgorithm {
+    RSA_SHA256("SHA256withRSA", "RSA"),
+    ECDSA_P256("SHA256withECDSA", "EC"),
+    ED25519("Ed25519", "Ed25519");
+
+    private final String jcaName;
+    private final String keyAlgorithm;
+
+    SignatureAlgorithm(String jcaName, String keyAlgorithm) {
+        this.jcaName = jcaName;
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    /**
+     * Returns the JCA name of the signature scheme applied to the file content.
+     *
+     * @return the JCA signature name
+     */
+    public String getJcaName() {
+        return jcaName;
+    }
+
+    /**
+     * Returns the JCA name of the key algorithm.
+     *
+     * @return the key algorithm name, used by key factories and generators
+     */
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * Parses a stored algorithm name.
+     * <p>
+     * Rows written before the algorithm was stored have no value and are
+     * considered as {@link #RSA_SHA256}.
+     * </p>
+     *
+     * @param name the stored name, possibly {@code null}
+     * @return the corresponding algorithm
+     */
+    public static SignatureAlgorithm fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return RSA_SHA256;
+        }
+        return valueOf(name.trim());
+    }
+
+    /**
+     * Returns the given algorithm, or {@link #RSA_SHA256} if it is {@code null}.
+     *
+     * @param algorithm the algorithm, possibly {@code null}
+     * @return a non-null algorithm
+     */
+    public static SignatureAlgorithm orDefault(SignatureAlgorithm algorithm) {
+        return algorithm != null ? algorithm : RSA_SHA256;
+    }
+}
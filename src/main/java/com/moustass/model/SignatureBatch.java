@@ -0,0 +1,98 @@
+package com.moustass.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a batch of files signed with a single signature.
+ * <p>
+ * The signature covers the root of a Merkle tree built over the hashes
+ * of the files. Each file of the batch keeps its {@link InclusionProof}
+ * in its signature log entry.
+ * </p>
+ */
+public class SignatureBatch {
+    private Integer id;
+    private Integer userId;
+    private String rootHash;
+    private String signatureValue;
+    private SignatureAlgorithm signatureAlgorithm;
+    private int fileCount;
+    private LocalDateTime createdAt;
+
+    public SignatureBatch() {
+    }
+
+    /**
+     * Creates a new signature batch.
+     *
+     * @param userId             the identifier of the user who signed the batch
+     * @param rootHash           the Base64-encoded root of the batch tree
+     * @param signatureValue     the Base64-encoded signature of the root
+     * @param signatureAlgorithm the algorithm of the signature
+     * @param fileCount          the number of files of the batch
+     */
+    public SignatureBatch(Integer userId, String rootHash, String signatureValue,
+                          SignatureAlgorithm signatureAlgorithm, int fileCount) {
+        this.userId = userId;
+        this.rootHash = rootHash;
+        this.signatureValue = signatureValue;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.fileCount = fileCount;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getRootHash() {
+        return rootHash;
+    }
+
+    public void setRootHash(String rootHash) {
+        this.rootHash = rootHash;
+    }
+
+    public String getSignatureValue() {
+        return signatureValue;
+    }
+
+    public void setSignatureValue(String signatureValue) {
+        this.signatureValue = signatureValue;
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public void setSignatureAlgorithm(SignatureAlgorithm signatureAlgorithm) {
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -18,6 +18,12 @@ public class SignatureLog {
     private String fileHash;
     private String signatureValue;
     private LocalDateTime createdAt;
+    private SignatureAlgorithm signatureAlgorithm;
+    private String merkleRoot;
+    private Integer merkleBlockSize;
+    private String blobHash;
+    private Integer batchId;
+    private String inclusionProof;
 
     public SignatureLog() {
     }
@@ -87,4 +93,72 @@ public class SignatureLog {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public void setSignatureAlgorithm(SignatureAlgorithm signatureAlgorithm) {
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public String getMerkleRoot() {
+        return merkleRoot;
+    }
+
+    public void setMerkleRoot(String merkleRoot) {
+        this.merkleRoot = merkleRoot;
+    }
+
+    /**
+     * Returns the block size of the Merkle tree of the file.
+     *
+     * @return the block size in bytes, or {@code null} if the file hash is a flat SHA-256 digest
+     */
+    public Integer getMerkleBlockSize() {
+        return merkleBlockSize;
+    }
+
+    public void setMerkleBlockSize(Integer merkleBlockSize) {
+        this.merkleBlockSize = merkleBlockSize;
+    }
+
+    /**
+     * Returns the hash of the blob holding the signed file.
+     *
+     * @return the blob hash, or {@code null} for a file stored under its name in {@code upload.dir}
+     */
+    public String getBlobHash() {
+        return blobHash;
+    }
+
+    public void setBlobHash(String blobHash) {
+        this.blobHash = blobHash;
+    }
+
+    /**
+     * Returns the batch whose root signature covers the file.
+     *
+     * @return the identifier of the signature batch, or {@code null} if the file hash is signed directly
+     */
+    public Integer getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(Integer batchId) {
+        this.batchId = batchId;
+    }
+
+    /**
+     * Returns the proof that the file hash belongs to the signed root of its batch.
+     *
+     * @return the encoded {@link InclusionProof}, or {@code null} if the file hash is signed directly
+     */
+    public String getInclusionProof() {
+        return inclusionProof;
+    }
+
+    public void setInclusionProof(String inclusionProof) {
+        this.inclusionProof = inclusionProof;
+    }
 }
@@ -0,0 +1,53 @@
+package com.moustass.model;
+
+/**
+ * Filter and sort order of a listing of the signatures.
+ * <p>
+ * Signatures are sorted by signature date, then by identifier, so that
+ * pages can be fetched from the last row of the previous page (keyset
+ * pagination) instead of an offset.
+ * </p>
+ */
+public class SignatureQuery {
+    private final String fileName;
+    private final String userName;
+    private final boolean newestFirst;
+
+    /**
+     * Creates a query.
+     *
+     * @param fileName    a part of the file name, or {@code null} for any file
+     * @param userName    a part of the username of the signer, or {@code null} for any signer
+     * @param newestFirst {@code true} to list the most recent signatures first
+     */
+    public SignatureQuery(String fileName, String userName, boolean newestFirst) {
+        this.fileName = blankToNull(fileName);
+        this.userName = blankToNull(userName);
+        this.newestFirst = newestFirst;
+    }
+
+    /**
+     * Returns a query listing every signature, the most recent first.
+     *
+     * @return the default query
+     */
+    public static SignatureQuery newestFirst() {
+        return new SignatureQuery(null, null, true);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+}
@@ -0,0 +1,48 @@
+package com.moustass.model;
+
+/**
+ * Represents the disk usage of the blob store.
+ * <p>
+ * Compares the original size of the stored files with the space they
+ * take on disk once encoded, to measure the savings of compression.
+ * </p>
+ */
+public class StorageStats {
+    private final long blobCount;
+    private final long originalSize;
+    private final long storedSize;
+
+    /**
+     * Creates new storage statistics.
+     *
+     * @param blobCount    the number of stored blobs
+     * @param originalSize the total size of the blobs before encoding, in bytes
+     * @param storedSize   the total size of the blobs on disk, in bytes
+     */
+    public StorageStats(long blobCount, long originalSize, long storedSize) {
+        this.blobCount = blobCount;
+        this.originalSize = originalSize;
+        this.storedSize = storedSize;
+    }
+
+    public long getBlobCount() {
+        return blobCount;
+    }
+
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    public long getStoredSize() {
+        return storedSize;
+    }
+
+    /**
+     * Returns the compression ratio of the store.
+     *
+     * @return the original size divided by the stored size, {@code 1} for an empty store
+     */
+    public double getRatio() {
+        return storedSize == 0 ? 1.0 : (double) originalSize / storedSize;
+    }
+}
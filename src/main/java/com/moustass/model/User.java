@@ -22,6 +22,7 @@ public class User {
     private Boolean mustChangePwd;
     private Boolean isAdmin;
     private LocalDateTime createdAt;
+    private SignatureAlgorithm signatureAlgorithm;
 
     public User() {
     }
@@ -143,4 +144,12 @@ public class User {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public void setSignatureAlgorithm(SignatureAlgorithm signatureAlgorithm) {
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
 }
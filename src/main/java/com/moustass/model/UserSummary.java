@@ -0,0 +1,81 @@
+package com.moustass.model;
+
+/**
+ * Identity and rights of a user, without its password or key material.
+ * <p>
+ * Read instead of {@link User} by callers that only check who a user is
+ * or what it may do: the Base64 keys are not loaded from the database,
+ * and are not kept in caches.
+ * </p>
+ */
+public class UserSummary {
+    private final int id;
+    private final String username;
+    private final String firstname;
+    private final String lastname;
+    private final boolean admin;
+    private final boolean mustChangePwd;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    /**
+     * Creates a summary.
+     *
+     * @param id                 the identifier of the user
+     * @param username           the username
+     * @param firstname          the first name
+     * @param lastname           the last name
+     * @param admin              {@code true} if the user is an administrator
+     * @param mustChangePwd      {@code true} if the user must change its password at next login
+     * @param signatureAlgorithm the algorithm of the key pair of the user
+     */
+    public UserSummary(int id, String username, String firstname, String lastname, boolean admin, boolean mustChangePwd,
+                       SignatureAlgorithm signatureAlgorithm) {
+        this.id = id;
+        this.username = username;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.admin = admin;
+        this.mustChangePwd = mustChangePwd;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    /**
+     * Returns the summary of a user.
+     *
+     * @param user the user
+     * @return the summary of the user
+     */
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getFirstname(), user.getLastname(),
+                Boolean.TRUE.equals(user.getIsAdmin()), Boolean.TRUE.equals(user.getMustChangePwd()),
+                user.getSignatureAlgorithm());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public boolean isMustChangePwd() {
+        return mustChangePwd;
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+}
@@ -0,0 +1,78 @@
+package com.moustass.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Represents the last verification outcome of a signed file.
+ * <p>
+ * The outcome is stored with the fingerprint of the file at the time of
+ * the verification (size, last modification time and file key). As long
+ * as the file still has the same fingerprint, its content is assumed to
+ * be unchanged and the outcome can be reused without reading the file.
+ * </p>
+ */
+public class VerificationCacheEntry {
+    private final int signatureId;
+    private final long fileSize;
+    private final long lastModified;
+    private final String fileKey;
+    private final boolean outcome;
+    private final LocalDateTime verifiedAt;
+
+    /**
+     * Creates a new verification cache entry.
+     *
+     * @param signatureId  the identifier of the verified signature
+     * @param fileSize     the size of the file in bytes
+     * @param lastModified the last modification time of the file, in milliseconds since the epoch
+     * @param fileKey      the file key (inode) of the file, empty if the file system has none
+     * @param outcome      {@code true} if the signature was valid
+     * @param verifiedAt   the date and time of the verification
+     */
+    public VerificationCacheEntry(int signatureId, long fileSize, long lastModified, String fileKey,
+                                  boolean outcome, LocalDateTime verifiedAt) {
+        this.signatureId = signatureId;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey != null ? fileKey : "";
+        this.outcome = outcome;
+        this.verifiedAt = verifiedAt;
+    }
+
+    /**
+     * Tells whether a file still has the fingerprint recorded in this entry.
+     *
+     * @param size         the current size of the file
+     * @param modified     the current last modification time of the file
+     * @param key          the current file key of the file
+     * @return {@code true} if the fingerprint is unchanged
+     */
+    public boolean matches(long size, long modified, String key) {
+        return fileSize == size && lastModified == modified && fileKey.equals(Objects.toString(key, ""));
+    }
+
+    public int getSignatureId() {
+        return signatureId;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public boolean isOutcome() {
+        return outcome;
+    }
+
+    public LocalDateTime getVerifiedAt() {
+        return verifiedAt;
+    }
+}
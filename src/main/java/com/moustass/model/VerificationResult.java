@@ -0,0 +1,57 @@
+package com.moustass.model;
+
+/**
+ * Represents the outcome of the verification of one signed file.
+ * <p>
+ * This class is produced by bulk verification and reports, for a given
+ * signature, whether the stored file still matches it and how long the
+ * check took.
+ * </p>
+ */
+public class VerificationResult {
+    private final int signatureId;
+    private final Status status;
+    private final long elapsedMillis;
+    private final String message;
+
+    /**
+     * Enumeration of possible verification outcomes.
+     */
+    public enum Status {
+        OK,
+        CORRUPTED,
+        MISSING,
+        ERROR
+    }
+
+    /**
+     * Creates a new verification result.
+     *
+     * @param signatureId   the identifier of the verified signature
+     * @param status        the outcome of the verification
+     * @param elapsedMillis the duration of the verification in milliseconds
+     * @param message       additional information, typically the error message
+     */
+    public VerificationResult(int signatureId, Status status, long elapsedMillis, String message) {
+        this.signatureId = signatureId;
+        this.status = status;
+        this.elapsedMillis = elapsedMillis;
+        this.message = message;
+    }
+
+    public int getSignatureId() {
+        return signatureId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
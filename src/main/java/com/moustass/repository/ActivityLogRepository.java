@@ -81,6 +81,43 @@ public class ActivityLogRepository {
         }
     }
 
+    /**
+     * Inserts several activity log entries in a single JDBC batch.
+     * <p>
+     * The creation date of each entry is kept when it is set, so that
+     * entries written later by the {@code AuditLogWriter} keep the time of
+     * the action.
+     * </p>
+     *
+     * @param logs the activity logs to persist
+     */
+    public void insertAll(List<ActivityLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO activity_logs (user_id, action, details, created_at) VALUES (?,?,?,?)";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                for (ActivityLog a : logs) {
+                    if (a.getUserId() != null) ps.setInt(1, a.getUserId()); else ps.setNull(1, Types.INTEGER);
+                    ps.setString(2, a.getAction().name());
+                    ps.setString(3, a.getDetails());
+                    ps.setTimestamp(4, a.getCreatedAt() != null ? Timestamp.valueOf(a.getCreatedAt()) : now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
     /**
      * Maps a database result set row to an {@link ActivityLog} object.
      *
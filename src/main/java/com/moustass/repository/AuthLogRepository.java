@@ -28,7 +28,7 @@ public class AuthLogRepository {
      * @return the corresponding {@link AuthLog}, or {@code null} if not found
      */
     public AuthLog findById(int id) {
-        String sql = "SELECT id, user_id, event, id_address, created_at FROM auth_logs WHERE id = ?";
+        String sql = "SELECT id, user_id, event, ip_address, created_at FROM auth_logs WHERE id = ?";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -46,7 +46,7 @@ public class AuthLogRepository {
      * @return a list of all {@link AuthLog} records
      */
     public List<AuthLog> findAll() {
-        String sql = "SELECT id, user_id, event, id_address, created_at FROM auth_logs";
+        String sql = "SELECT id, user_id, event, ip_address, created_at FROM auth_logs";
         List<AuthLog> list = new ArrayList<>();
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
             while (rs.next()) list.add(mapRow(rs));
@@ -76,6 +76,41 @@ public class AuthLogRepository {
         }
     }
 
+    /**
+     * Inserts several authentication log entries in a single JDBC batch.
+     * <p>
+     * The creation date of each entry is kept when it is set.
+     * </p>
+     *
+     * @param logs the authentication log entries to persist
+     */
+    public void insertAll(List<AuthLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO auth_logs (user_id, event, ip_address, created_at) VALUES (?,?,?,?)";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                for (AuthLog a : logs) {
+                    if (a.getUserId() != null) ps.setInt(1, a.getUserId()); else ps.setNull(1, Types.INTEGER);
+                    ps.setString(2, a.getEvent() != null ? a.getEvent().name() : null);
+                    ps.setString(3, a.getIpAddress());
+                    ps.setTimestamp(4, a.getCreatedAt() != null ? Timestamp.valueOf(a.getCreatedAt()) : now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
     /**
      * Maps a database result set row to an {@link AuthLog} object.
      *
@@ -0,0 +1,110 @@
+package com.moustass.repository;
+
+import com.moustass.config.DatabaseConfig;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.StorageStats;
+
+import java.sql.*;
+
+/**
+ * Repository responsible for the reference counts of stored blobs.
+ * <p>
+ * Each row of the {@code blobs} table describes one file of the
+ * content-addressed store and counts the signatures referencing it.
+ * A blob whose count drops to zero can be deleted.
+ * </p>
+ */
+public class BlobRepository {
+    private final DatabaseConfig dbConfig = new DatabaseConfig();
+
+    /**
+     * Tells whether a referenced blob of a given size exists.
+     *
+     * @param size the size in bytes
+     * @return {@code true} if at least one referenced blob has this size
+     */
+    public boolean existsBySize(long size) {
+        String sql = "SELECT 1 FROM blobs WHERE size = ? AND ref_count > 0 LIMIT 1";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, size);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a reference to a blob, only if it is already referenced.
+     *
+     * @param hash the hash of the blob
+     * @return {@code true} if the reference was added
+     */
+    public boolean acquireExisting(String hash) {
+        String sql = "UPDATE blobs SET ref_count = ref_count + 1 WHERE hash = ? AND ref_count > 0";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, hash);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a reference to a blob, creating its row if needed.
+     *
+     * @param hash the hash of the blob
+     * @param size the size of the blob in bytes, before encoding
+     * @param codec the name of the codec the blob is stored with
+     * @param storedSize the size of the blob file on disk, in bytes
+     */
+    public void acquire(String hash, long size, String codec, long storedSize) {
+        String sql = "INSERT INTO blobs (hash, size, codec, stored_size, ref_count) VALUES (?,?,?,?,1) ON DUPLICATE KEY UPDATE ref_count = ref_count + 1";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, hash);
+            ps.setLong(2, size);
+            ps.setString(3, codec);
+            ps.setLong(4, storedSize);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes a reference to a blob, and its row once it is no longer referenced.
+     *
+     * @param hash the hash of the blob
+     * @return {@code true} if the blob is no longer referenced and its file can be deleted
+     */
+    public boolean release(String hash) {
+        String decrement = "UPDATE blobs SET ref_count = ref_count - 1 WHERE hash = ? AND ref_count > 0";
+        String delete = "DELETE FROM blobs WHERE hash = ? AND ref_count = 0";
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(decrement);
+             PreparedStatement del = conn.prepareStatement(delete)) {
+            ps.setString(1, hash);
+            ps.executeUpdate();
+            del.setString(1, hash);
+            return del.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the disk usage of the referenced blobs.
+     *
+     * @return the number of blobs and their original and stored sizes
+     */
+    public StorageStats stats() {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(size), 0), COALESCE(SUM(stored_size), 0) FROM blobs WHERE ref_count > 0";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new StorageStats(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.moustass.repository;
+
+import com.moustass.config.DatabaseConfig;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.SignatureBatch;
+
+import java.sql.*;
+
+/**
+ * Repository responsible for managing {@link SignatureBatch} persistence.
+ */
+public class SignatureBatchRepository {
+    private final DatabaseConfig dbConfig = new DatabaseConfig();
+
+    /**
+     * Retrieves a signature batch by its identifier.
+     *
+     * @param id the identifier of the batch
+     * @return the corresponding {@link SignatureBatch}, or {@code null} if not found
+     */
+    public SignatureBatch findById(int id) {
+        String sql = "SELECT id, user_id, root_hash, signature_value, signature_algorithm, file_count, created_at FROM signature_batches WHERE id = ?";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return mapRow(rs);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Inserts a new signature batch.
+     *
+     * @param b the batch to persist, its generated identifier is set
+     * @return {@code true} if the insertion was successful
+     */
+    public boolean insert(SignatureBatch b) {
+        String sql = "INSERT INTO signature_batches (user_id, root_hash, signature_value, signature_algorithm, file_count) VALUES (?,?,?,?,?)";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, b.getUserId());
+            ps.setString(2, b.getRootHash());
+            ps.setString(3, b.getSignatureValue());
+            ps.setString(4, SignatureAlgorithm.orDefault(b.getSignatureAlgorithm()).name());
+            ps.setInt(5, b.getFileCount());
+            int affected = ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) { if (keys.next()) b.setId(keys.getInt(1)); }
+            return affected > 0;
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    private SignatureBatch mapRow(ResultSet rs) throws SQLException {
+        SignatureBatch b = new SignatureBatch();
+        b.setId(rs.getInt("id"));
+        b.setUserId(rs.getInt("user_id"));
+        b.setRootHash(rs.getString("root_hash"));
+        b.setSignatureValue(rs.getString("signature_value"));
+        b.setSignatureAlgorithm(SignatureAlgorithm.fromName(rs.getString("signature_algorithm")));
+        b.setFileCount(rs.getInt("file_count"));
+        Timestamp ts = rs.getTimestamp("created_at");
+        if (ts != null) b.setCreatedAt(ts.toLocalDateTime());
+        return b;
+    }
+}
@@ -1,12 +1,16 @@
 package com.moustass.repository;
 
 import com.moustass.config.DatabaseConfig;
+import com.moustass.config.UnitOfWork;
 import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.SignatureLog;
+import com.moustass.model.SignatureQuery;
 import com.moustass.view.SignatureView;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -16,9 +20,18 @@ import java.util.List;
  * digital signature records in order to ensure integrity, traceability,
  * and non-repudiation of signed files.
  * </p>
+ * <p>
+ * The listing of the home page is read from {@code signature_listing},
+ * a copy of the id, file name, signer and date of each signature. It is
+ * written in the same transaction as the signatures, and its rows are
+ * deleted with them by the database. Users are never renamed, so the
+ * copied username stays current.
+ * </p>
  */
 public class SignatureLogRepository {
     private final DatabaseConfig dbConfig = new DatabaseConfig();
+    private static final String INSERT_SQL = "INSERT INTO signature_logs (user_id, file_name, file_hash, signature_value, signature_algorithm, merkle_root, merkle_block_size, blob_hash, batch_id, inclusion_proof) VALUES (?,?,?,?,?,?,?,?,?,?)";
+    private static final String LISTING_SQL = "INSERT INTO signature_listing (id, user_id, file_name, username, created_at) SELECT sl.id, sl.user_id, sl.file_name, u.username, sl.created_at FROM signature_logs sl JOIN users u ON u.id = sl.user_id WHERE sl.id = ?";
 
     /**
      * Retrieves a signature log entry by its identifier.
@@ -27,7 +40,7 @@ public class SignatureLogRepository {
      * @return the corresponding {@link SignatureLog}, or {@code null} if not found
      */
     public SignatureLog findById(int id) {
-        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, created_at FROM signature_logs WHERE id = ?";
+        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, signature_algorithm, merkle_root, merkle_block_size, blob_hash, batch_id, inclusion_proof, created_at FROM signature_logs WHERE id = ?";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -46,7 +59,7 @@ public class SignatureLogRepository {
      * @return a list of {@link SignatureLog} entries for the specified user
      */
     public List<SignatureLog> findAllByUserId(int userId) {
-        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, created_at FROM signature_logs WHERE user_id = ?";
+        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, signature_algorithm, merkle_root, merkle_block_size, blob_hash, batch_id, inclusion_proof, created_at FROM signature_logs WHERE user_id = ?";
         List<SignatureLog> list = new ArrayList<>();
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
@@ -59,6 +72,86 @@ public class SignatureLogRepository {
         return list;
     }
 
+    /**
+     * Retrieves a page of signature log entries ordered by identifier.
+     * <p>
+     * Pages are addressed by the last identifier already read, so walking
+     * the whole table costs one indexed range scan per page.
+     * </p>
+     *
+     * @param afterId the identifier of the last entry of the previous page, {@code 0} for the first page
+     * @param limit the maximum number of entries to return
+     * @return the next {@link SignatureLog} entries, empty when the table has been fully read
+     */
+    public List<SignatureLog> findPageAfterId(int afterId, int limit) {
+        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, signature_algorithm, merkle_root, merkle_block_size, blob_hash, batch_id, inclusion_proof, created_at FROM signature_logs WHERE id > ? ORDER BY id LIMIT ?";
+        List<SignatureLog> list = new ArrayList<>();
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves a page of signature log entries whose file is not in the blob store yet.
+     *
+     * @param afterId the identifier of the last entry of the previous page, {@code 0} for the first page
+     * @param limit the maximum number of entries to return
+     * @return the next {@link SignatureLog} entries without blob hash
+     */
+    public List<SignatureLog> findLegacyPageAfterId(int afterId, int limit) {
+        String sql = "SELECT id, user_id, file_name, file_hash, signature_value, signature_algorithm, merkle_root, merkle_block_size, blob_hash, batch_id, inclusion_proof, created_at FROM signature_logs WHERE id > ? AND blob_hash IS NULL ORDER BY id LIMIT ?";
+        List<SignatureLog> list = new ArrayList<>();
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * Records the blob holding the file of a signature log entry.
+     *
+     * @param id the identifier of the signature log entry
+     * @param blobHash the hash of the blob
+     * @return {@code true} if the entry was updated
+     */
+    public boolean updateBlobHash(int id, String blobHash) {
+        String sql = "UPDATE signature_logs SET blob_hash = ? WHERE id = ?";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, blobHash);
+            ps.setInt(2, id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the signature log entries.
+     *
+     * @return the number of signature log entries
+     */
+    public int countAll() {
+        String sql = "SELECT COUNT(*) FROM signature_logs";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
     /**
      * Inserts a new signature log entry into the database.
      *
@@ -66,20 +159,84 @@ public class SignatureLogRepository {
      * @return {@code true} if the insertion was successful, {@code false} otherwise
      */
     public boolean insert(SignatureLog s) {
-        String sql = "INSERT INTO signature_logs (user_id, file_name, file_hash, signature_value) VALUES (?,?,?,?)";
-        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setInt(1, s.getUserId());
-            ps.setString(2, s.getFileName());
-            ps.setString(3, s.getFileHash());
-            ps.setString(4, s.getSignatureValue());
-            int affected = ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) { if (keys.next()) s.setId(keys.getInt(1)); }
-            return affected > 0;
+        return UnitOfWork.inTransaction(() -> {
+            try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(ps, s);
+                int affected = ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) { if (keys.next()) s.setId(keys.getInt(1)); }
+                if (affected > 0) {
+                    addToListing(conn, List.of(s));
+                }
+                return affected > 0;
+            } catch (SQLException e) {
+                throw new DatabaseConnectionException("Error db : " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Inserts several signature log entries in a single JDBC batch.
+     * <p>
+     * The entries are inserted in one transaction: either all of them are
+     * recorded, or none is. Generated identifiers are set on the entries.
+     * </p>
+     *
+     * @param signatures the signature logs to persist
+     */
+    public void insertAll(List<SignatureLog> signatures) {
+        if (signatures.isEmpty()) {
+            return;
+        }
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            try {
+                for (SignatureLog s : signatures) {
+                    bindInsert(ps, s);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < signatures.size() && keys.next(); i++) {
+                        signatures.get(i).setId(keys.getInt(1));
+                    }
+                }
+                addToListing(conn, signatures);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new DatabaseConnectionException("Error db : " + e.getMessage());
         }
     }
 
+    /**
+     * Copies inserted signatures, with the username of their signer, to the listing.
+     */
+    private static void addToListing(Connection conn, List<SignatureLog> signatures) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(LISTING_SQL)) {
+            for (SignatureLog s : signatures) {
+                ps.setInt(1, s.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement ps, SignatureLog s) throws SQLException {
+        ps.setInt(1, s.getUserId());
+        ps.setString(2, s.getFileName());
+        ps.setString(3, s.getFileHash());
+        ps.setString(4, s.getSignatureValue());
+        ps.setString(5, SignatureAlgorithm.orDefault(s.getSignatureAlgorithm()).name());
+        ps.setString(6, s.getMerkleRoot());
+        if (s.getMerkleBlockSize() != null) ps.setInt(7, s.getMerkleBlockSize()); else ps.setNull(7, Types.INTEGER);
+        ps.setString(8, s.getBlobHash());
+        if (s.getBatchId() != null) ps.setInt(9, s.getBatchId()); else ps.setNull(9, Types.INTEGER);
+        ps.setString(10, s.getInclusionProof());
+    }
+
     /**
      * Maps a database result set row to a {@link SignatureLog} object.
      *
@@ -94,6 +251,14 @@ public class SignatureLogRepository {
         s.setFileName(rs.getString("file_name"));
         s.setFileHash(rs.getString("file_hash"));
         s.setSignatureValue(rs.getString("signature_value"));
+        s.setSignatureAlgorithm(SignatureAlgorithm.fromName(rs.getString("signature_algorithm")));
+        s.setMerkleRoot(rs.getString("merkle_root"));
+        int blockSize = rs.getInt("merkle_block_size");
+        s.setMerkleBlockSize(rs.wasNull() ? null : blockSize);
+        s.setBlobHash(rs.getString("blob_hash"));
+        int batchId = rs.getInt("batch_id");
+        s.setBatchId(rs.wasNull() ? null : batchId);
+        s.setInclusionProof(rs.getString("inclusion_proof"));
         Timestamp ts = rs.getTimestamp("created_at");
         if (ts != null) s.setCreatedAt(ts.toLocalDateTime());
         return s;
@@ -121,20 +286,74 @@ public class SignatureLogRepository {
     }
 
     /**
-     * Retrieves all digital signature records using a view representation.
+     * Retrieves a page of signatures, using a view representation.
+     * <p>
+     * Pages are read from an anchor row rather than an offset: the query
+     * only reads the rows of the page, however deep the page is. Rows are
+     * returned in the order of the query; with {@code forward} set to
+     * {@code false}, the page preceding the anchor is returned, still in
+     * the order of the query.
+     * </p>
      *
-     * @return a list of {@link SignatureView} objects representing all signatures
+     * @param query   the filter and sort order
+     * @param anchor  the row the page starts after (or before), {@code null} for the first page
+     * @param forward {@code true} for the rows after the anchor, {@code false} for the rows before it
+     * @param limit   the maximum number of rows
+     * @return the rows of the page, fewer than {@code limit} when the end of the listing is reached
      */
-    public List<SignatureView> findAllSignatures() {
-        String sql = "select sl.id,sl.file_name, u.username, sl.created_at from signature_logs sl join users u where sl.user_id  = u.id";
-        List<SignatureView> list = new ArrayList<>();
+    public List<SignatureView> findSignatures(SignatureQuery query, SignatureView anchor, boolean forward, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(query, anchor, forward, limit, params);
+        List<SignatureView> list = new ArrayList<>(limit);
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRowView(rs));
             }
         } catch (SQLException e) {
             throw new DatabaseConnectionException("Error db : " + e.getMessage());
         }
+        if (!forward) {
+            Collections.reverse(list);
+        }
         return list;
     }
+
+    /**
+     * Builds the query of a page of signatures and its parameters.
+     */
+    static String pageSql(SignatureQuery query, SignatureView anchor, boolean forward, int limit, List<Object> params) {
+        // reading backwards reverses the order, the rows are reversed again once read
+        boolean descending = query.isNewestFirst() == forward;
+        StringBuilder sql = new StringBuilder(
+                "SELECT sl.id, sl.file_name, sl.username, sl.created_at FROM signature_listing sl WHERE 1 = 1");
+        if (query.getFileName() != null) {
+            sql.append(" AND sl.file_name LIKE ? ESCAPE '!'");
+            params.add(containsPattern(query.getFileName()));
+        }
+        if (query.getUserName() != null) {
+            sql.append(" AND sl.username LIKE ? ESCAPE '!'");
+            params.add(containsPattern(query.getUserName()));
+        }
+        if (anchor != null) {
+            // the first condition alone is a range of the index, the second skips the rows already read
+            String cmp = descending ? "<" : ">";
+            sql.append(" AND sl.created_at ").append(cmp).append("= ? AND (sl.created_at ").append(cmp)
+                    .append(" ? OR sl.id ").append(cmp).append(" ?)");
+            Timestamp at = Timestamp.valueOf(anchor.getDateSignature());
+            params.add(at);
+            params.add(at);
+            params.add(anchor.getIdSignature());
+        }
+        String direction = descending ? "DESC" : "ASC";
+        sql.append(" ORDER BY sl.created_at ").append(direction).append(", sl.id ").append(direction).append(" LIMIT ?");
+        params.add(limit);
+        return sql.toString();
+    }
+
+    private static String containsPattern(String value) {
+        return "%" + value.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
 }
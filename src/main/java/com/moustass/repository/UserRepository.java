@@ -2,7 +2,9 @@ package com.moustass.repository;
 
 import com.moustass.config.DatabaseConfig;
 import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.User;
+import com.moustass.model.UserSummary;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -16,6 +18,7 @@ import java.util.List;
  * </p>
  */
 public class UserRepository {
+    private static final String SUMMARY_SQL = "SELECT id, firstname, lastname, username, must_change_pwd, is_admin, signature_algorithm FROM users WHERE ";
     private final DatabaseConfig dbConfig = new DatabaseConfig();
 
     /**
@@ -25,7 +28,7 @@ public class UserRepository {
      * @return the corresponding {@link User}, or {@code null} if not found
      */
     public User findById(int id) {
-        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, created_at FROM users WHERE id = ?";
+        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, signature_algorithm, created_at FROM users WHERE id = ?";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -37,13 +40,43 @@ public class UserRepository {
         return null;
     }
 
+    /**
+     * Retrieves only the public key material of a user.
+     * <p>
+     * This avoids loading the whole user row, including the private key,
+     * when only the public key is needed for signature verification.
+     * The returned user only has its id, public key and signature algorithm set.
+     * </p>
+     *
+     * @param id the identifier of the user
+     * @return the user public key material, or {@code null} if the user does not exist
+     */
+    public User findPublicKeyById(int id) {
+        String sql = "SELECT id, pk_public, signature_algorithm FROM users WHERE id = ?";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    User u = new User();
+                    u.setId(rs.getInt("id"));
+                    u.setPkPublic(rs.getString("pk_public"));
+                    u.setSignatureAlgorithm(SignatureAlgorithm.fromName(rs.getString("signature_algorithm")));
+                    return u;
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * Retrieves all users from the database.
      *
      * @return a list of all {@link User} records
      */
     public List<User> findAll() {
-        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, created_at FROM users";
+        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, signature_algorithm, created_at FROM users";
         List<User> list = new ArrayList<>();
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
             while (rs.next()) list.add(mapRow(rs));
@@ -60,7 +93,7 @@ public class UserRepository {
      * @return {@code true} if the insertion was successful, {@code false} otherwise
      */
     public boolean insert(User u) {
-        String sql = "INSERT INTO users (firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin) VALUES (?,?,?,?,?,?,?,?,?)";
+        String sql = "INSERT INTO users (firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, signature_algorithm) VALUES (?,?,?,?,?,?,?,?,?,?)";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, u.getFirstname());
             ps.setString(2, u.getLastname());
@@ -71,6 +104,7 @@ public class UserRepository {
             ps.setString(7, u.getSkPrivate());
             ps.setBoolean(8, u.getMustChangePwd() != null ? u.getMustChangePwd() : Boolean.TRUE);
             ps.setBoolean(9, u.getIsAdmin() != null ? u.getIsAdmin() : Boolean.FALSE);
+            ps.setString(10, SignatureAlgorithm.orDefault(u.getSignatureAlgorithm()).name());
             int affected = ps.executeUpdate();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) u.setId(keys.getInt(1));
@@ -88,6 +122,7 @@ public class UserRepository {
      * @return {@code true} if the deletion was successful, {@code false} otherwise
      */
     public boolean deleteById(int id) {
+        // a user with signatures cannot be deleted (foreign key), so the listing holds none of its rows
         String sql = "DELETE FROM users WHERE id = ?";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
@@ -104,7 +139,7 @@ public class UserRepository {
      * @return the corresponding {@link User}, or {@code null} if not found
      */
     public User findByUsername(String username) {
-        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, created_at FROM users WHERE username = ?";
+        String sql = "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, signature_algorithm, created_at FROM users WHERE username = ?";
         try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -116,6 +151,48 @@ public class UserRepository {
         return null;
     }
 
+    /**
+     * Retrieves the summary of a user, without its password and keys.
+     *
+     * @param id the identifier of the user
+     * @return the summary of the user, or {@code null} if not found
+     */
+    public UserSummary findSummaryById(int id) {
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(SUMMARY_SQL + "id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return mapSummary(rs);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the summary of a user by its username, without its password and keys.
+     *
+     * @param username the unique username of the user
+     * @return the summary of the user, or {@code null} if not found
+     */
+    public UserSummary findSummaryByUsername(String username) {
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(SUMMARY_SQL + "username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return mapSummary(rs);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return null;
+    }
+
+    private UserSummary mapSummary(ResultSet rs) throws SQLException {
+        return new UserSummary(rs.getInt("id"), rs.getString("username"), rs.getString("firstname"),
+                rs.getString("lastname"), rs.getBoolean("is_admin"), rs.getBoolean("must_change_pwd"),
+                SignatureAlgorithm.fromName(rs.getString("signature_algorithm")));
+    }
+
     /**
      * Maps a database result set row to a {@link User} object.
      *
@@ -137,6 +214,7 @@ public class UserRepository {
         if (rs.wasNull()) u.setMustChangePwd(null); else u.setMustChangePwd(must);
         boolean admin = rs.getBoolean("is_admin");
         if (rs.wasNull()) u.setIsAdmin(null); else u.setIsAdmin(admin);
+        u.setSignatureAlgorithm(SignatureAlgorithm.fromName(rs.getString("signature_algorithm")));
         Timestamp ts = rs.getTimestamp("created_at");
         if (ts != null) u.setCreatedAt(ts.toLocalDateTime());
         return u;
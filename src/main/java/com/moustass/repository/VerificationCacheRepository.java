@@ -0,0 +1,77 @@
+package com.moustass.repository;
+
+import com.moustass.config.DatabaseConfig;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.VerificationCacheEntry;
+
+import java.sql.*;
+
+/**
+ * Repository responsible for managing {@link VerificationCacheEntry} persistence.
+ * <p>
+ * Keeps one row per signature with the outcome of its last verification,
+ * so that unchanged files are not re-verified after a restart.
+ * </p>
+ */
+public class VerificationCacheRepository {
+    private final DatabaseConfig dbConfig = new DatabaseConfig();
+
+    /**
+     * Retrieves the last verification of a signature.
+     *
+     * @param signatureId the identifier of the signature
+     * @return the corresponding {@link VerificationCacheEntry}, or {@code null} if the signature was never verified
+     */
+    public VerificationCacheEntry findBySignatureId(int signatureId) {
+        String sql = "SELECT signature_id, file_size, last_modified, file_key, outcome, verified_at FROM verification_cache WHERE signature_id = ?";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, signatureId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return mapRow(rs);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Inserts or replaces the last verification of a signature.
+     *
+     * @param entry the verification to persist
+     */
+    public void save(VerificationCacheEntry entry) {
+        String sql = "INSERT INTO verification_cache (signature_id, file_size, last_modified, file_key, outcome, verified_at) VALUES (?,?,?,?,?,?) "
+                + "ON DUPLICATE KEY UPDATE file_size = VALUES(file_size), last_modified = VALUES(last_modified), "
+                + "file_key = VALUES(file_key), outcome = VALUES(outcome), verified_at = VALUES(verified_at)";
+        try (Connection conn = dbConfig.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, entry.getSignatureId());
+            ps.setLong(2, entry.getFileSize());
+            ps.setLong(3, entry.getLastModified());
+            ps.setString(4, entry.getFileKey());
+            ps.setBoolean(5, entry.isOutcome());
+            ps.setTimestamp(6, Timestamp.valueOf(entry.getVerifiedAt()));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException("Error db : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a database result set row to a {@link VerificationCacheEntry} object.
+     *
+     * @param rs the {@link ResultSet} positioned at the current row
+     * @return the mapped {@link VerificationCacheEntry} instance
+     * @throws SQLException if a result set access error occurs
+     */
+    private VerificationCacheEntry mapRow(ResultSet rs) throws SQLException {
+        return new VerificationCacheEntry(
+                rs.getInt("signature_id"),
+                rs.getLong("file_size"),
+                rs.getLong("last_modified"),
+                rs.getString("file_key"),
+                rs.getBoolean("outcome"),
+                rs.getTimestamp("verified_at").toLocalDateTime()
+        );
+    }
+}
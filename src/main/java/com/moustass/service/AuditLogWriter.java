@@ -0,0 +1,375 @@
+package com.moustass.service;
+
+import com.moustass.config.AppConfig;
+import com.moustass.config.UnitOfWork;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.ActivityLog;
+import com.moustass.model.AuthLog;
+import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.AuthLogRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the activity and authentication logs in batches.
+ * <p>
+ * Logins, account creations and signatures each record an audit entry.
+ * Instead of inserting each entry on its own connection, entries are put
+ * in a bounded queue and a single writer thread inserts them with JDBC
+ * batches, activity and authentication entries in one transaction. The
+ * durability is chosen with {@code audit.mode}:
+ * </p>
+ * <ul>
+ *     <li>{@code sync}: each entry is inserted by the caller, as before;</li>
+ *     <li>{@code group_commit} (default): the caller waits until its entry
+ *     is committed, but the entries of concurrent callers share one commit;</li>
+ *     <li>{@code async}: the caller returns at once, entries are
+ *     inserted when {@code audit.batch.size} entries are queued or after
+ *     {@code audit.flush.ms} milliseconds. Entries still queued when the
+ *     process is killed are lost.</li>
+ * </ul>
+ * <p>
+ * An entry recorded inside a {@link UnitOfWork} is inserted by the caller,
+ * whatever the mode, so that it is committed or rolled back with the
+ * change it traces.
+ * </p>
+ * <p>
+ * When the queue ({@code audit.queue.size} entries) is full, callers wait.
+ * The date of each entry is set when it is recorded. {@link #close()}
+ * writes the queued entries before returning; entries recorded after it
+ * are inserted by the caller.
+ * </p>
+ */
+public class AuditLogWriter implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_FLUSH_MILLIS = 200;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final long COMMIT_TIMEOUT_SECONDS = 30;
+
+    // queued by close() to wake the writer thread up
+    private static final Entry WAKE_UP = new Entry(null, null, false);
+
+    private static AuditLogWriter instance;
+
+    private final ActivityLogRepository activityLogRepository;
+    private final AuthLogRepository authLogRepository;
+    private final Mode mode;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final long flushMillis;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Durability of the audit entries.
+     */
+    public enum Mode {
+        /** Inserted by the caller. */
+        SYNC,
+        /** Committed before the caller returns, together with the entries of concurrent callers. */
+        GROUP_COMMIT,
+        /** Committed in the background. */
+        ASYNC;
+
+        /**
+         * Parses a mode from the configuration.
+         *
+         * @param value the configured value, such as {@code group_commit}
+         * @return the mode, {@link #GROUP_COMMIT} if the value is missing
+         * @throws IllegalArgumentException if the value is not a mode
+         */
+        public static Mode parse(String value) {
+            if (value == null || value.isBlank()) {
+                return GROUP_COMMIT;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                // a typo must not silently trade durability for speed
+                throw new IllegalArgumentException("Unknown audit.mode: " + value, e);
+            }
+        }
+    }
+
+    /**
+     * An entry waiting to be written.
+     */
+    private static final class Entry {
+        private final ActivityLog activity;
+        private final AuthLog auth;
+        // completed when the entry is committed, for GROUP_COMMIT only
+        private final CompletableFuture<Void> committed;
+
+        Entry(ActivityLog activity, AuthLog auth, boolean awaited) {
+            this.activity = activity;
+            this.auth = auth;
+            this.committed = awaited ? new CompletableFuture<>() : null;
+        }
+    }
+
+    /**
+     * Creates a writer. The writer thread is started with the first queued entry.
+     *
+     * @param activityLogRepository the repository of the activity logs
+     * @param authLogRepository     the repository of the authentication logs
+     * @param mode                  the durability of the entries
+     * @param queueSize             the maximum number of queued entries
+     * @param batchSize             the maximum number of entries per transaction
+     * @param flushMillis           the maximum time an entry waits in {@link Mode#ASYNC} mode
+     */
+    AuditLogWriter(ActivityLogRepository activityLogRepository, AuthLogRepository authLogRepository,
+                   Mode mode, int queueSize, int batchSize, long flushMillis) {
+        this.activityLogRepository = activityLogRepository;
+        this.authLogRepository = authLogRepository;
+        this.mode = mode;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(1, flushMillis);
+    }
+
+    /**
+     * Returns the shared writer, configured by the {@code audit.*} properties.
+     *
+     * @return the singleton instance of AuditLogWriter
+     */
+    public static synchronized AuditLogWriter getInstance() {
+        if (instance == null) {
+            AppConfig config = AppConfig.getInstance();
+            instance = new AuditLogWriter(new ActivityLogRepository(), new AuthLogRepository(),
+                    Mode.parse(config.getProperty("audit.mode")),
+                    config.getIntProperty("audit.queue.size", DEFAULT_QUEUE_SIZE),
+                    config.getIntProperty("audit.batch.size", DEFAULT_BATCH_SIZE),
+                    config.getIntProperty("audit.flush.ms", DEFAULT_FLUSH_MILLIS));
+        }
+        return instance;
+    }
+
+    /**
+     * Writes the queued entries of the shared writer, if it was created.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Records an activity log entry.
+     *
+     * @param log the entry to write
+     * @throws DatabaseConnectionException in {@code sync} and {@code group_commit} modes, if the entry cannot be written
+     */
+    public void record(ActivityLog log) {
+        if (log.getCreatedAt() == null) {
+            log.setCreatedAt(LocalDateTime.now());
+        }
+        submit(new Entry(log, null, mode == Mode.GROUP_COMMIT));
+    }
+
+    /**
+     * Records an authentication log entry.
+     *
+     * @param log the entry to write
+     * @throws DatabaseConnectionException in {@code sync} and {@code group_commit} modes, if the entry cannot be written
+     */
+    public void record(AuthLog log) {
+        if (log.getCreatedAt() == null) {
+            log.setCreatedAt(LocalDateTime.now());
+        }
+        submit(new Entry(null, log, mode == Mode.GROUP_COMMIT));
+    }
+
+    private void submit(Entry entry) {
+        if (mode == Mode.SYNC || closed || UnitOfWork.isActive()) {
+            write(List.of(entry), true);
+            return;
+        }
+        startWriter();
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(List.of(entry), true);
+            return;
+        }
+        if (closed && queue.remove(entry)) {
+            // queued after the final drain
+            write(List.of(entry), true);
+            return;
+        }
+        if (entry.committed != null) {
+            await(entry.committed);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> committed) {
+        try {
+            committed.get(COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof DatabaseConnectionException dce ? dce
+                    : new DatabaseConnectionException("Error db : " + cause.getMessage());
+        } catch (TimeoutException e) {
+            // the entry stays queued, but the caller cannot count on it
+            throw new DatabaseConnectionException("Error db : audit entry not committed after "
+                    + COMMIT_TIMEOUT_SECONDS + " s");
+        } catch (InterruptedException e) {
+            // the entry is still written by the writer thread
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer == null) {
+            writer = new Thread(this::drain, "audit-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first == null || first == WAKE_UP) {
+                    continue;
+                }
+                batch.add(first);
+                if (mode == Mode.ASYNC) {
+                    // wait for a full batch, for at most flushMillis
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                    while (batch.size() < batchSize && !closed) {
+                        long remaining = deadline - System.nanoTime();
+                        Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null || next == WAKE_UP) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                // group commit: the entries queued while the previous batch was written
+                queue.drainTo(batch, batchSize - batch.size());
+                batch.remove(WAKE_UP);
+            } catch (InterruptedException e) {
+                // close() does not interrupt: keep draining
+                Thread.interrupted();
+            }
+            if (!batch.isEmpty()) {
+                write(batch, false);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts entries in one transaction and completes their futures.
+     *
+     * @param batch    the entries to insert
+     * @param byCaller {@code true} when written by the thread recording the entry, which then sees the failure
+     */
+    private void write(List<Entry> batch, boolean byCaller) {
+        List<ActivityLog> activities = new ArrayList<>();
+        List<AuthLog> auths = new ArrayList<>();
+        for (Entry entry : batch) {
+            if (entry.activity != null) {
+                activities.add(entry.activity);
+            } else {
+                auths.add(entry.auth);
+            }
+        }
+        try {
+            UnitOfWork.inTransaction(() -> {
+                activityLogRepository.insertAll(activities);
+                authLogRepository.insertAll(auths);
+                return null;
+            });
+        } catch (RuntimeException | Error e) {
+            // whatever the failure, no caller is left waiting and the writer thread goes on
+            failed.add(batch.size());
+            for (Entry entry : batch) {
+                if (entry.committed != null) {
+                    entry.committed.completeExceptionally(e);
+                }
+            }
+            if (byCaller) {
+                throw e;
+            }
+            return;
+        }
+        written.add(batch.size());
+        for (Entry entry : batch) {
+            if (entry.committed != null) {
+                entry.committed.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Stops queuing entries and writes the queued ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // ignored when the queue is full: the writer is not waiting then
+        queue.offer(WAKE_UP);
+        Thread thread;
+        synchronized (this) {
+            thread = writer;
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.remove(WAKE_UP);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            write(remaining.subList(from, Math.min(remaining.size(), from + batchSize)), false);
+        }
+    }
+
+    /**
+     * Returns the number of entries written since the start.
+     *
+     * @return the number of committed entries
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Returns the number of entries that could not be written.
+     *
+     * @return the number of lost entries
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the durability mode of this writer.
+     *
+     * @return the mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,530 @@
+package com.moustass.service;
+
+import com.moustass.config.AppConfig;
+import com.moustass.config.UnitOfWork;
+import com.moustass.model.ActivityLog;
+import com.moustass.model.InclusionProof;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.SignatureBatch;
+import com.moustass.model.SignatureLog;
+import com.moustass.model.User;
+import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.SignatureBatchRepository;
+import com.moustass.repository.SignatureLogRepository;
+import com.moustass.session.SessionManager;
+import com.moustass.storage.BlobStore;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.FileIngestPipeline;
+import com.moustass.utils.MerkleHasher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Service responsible for signing many files at once.
+ * <p>
+ * Files flow through a pipeline of three stages linked by bounded queues:
+ * </p>
+ * <ol>
+ *     <li>a pool of {@code batch.hash.workers} threads hashes every file
+ *     and stores it in the {@link BlobStore};</li>
+ *     <li>a pool of {@code batch.sign.workers} threads signs the hashes
+ *     with the private key, taken once for the whole batch;</li>
+ *     <li>the calling thread inserts the signatures by JDBC batches of
+ *     {@code batch.insert.size} rows, each committed with its activity logs.</li>
+ * </ol>
+ * <p>
+ * When {@code batch.merkle.enabled} is set, the files are not signed one by
+ * one: each JDBC batch becomes a Merkle tree over the file hashes, only its
+ * root is signed, and every file records its {@link InclusionProof}. A
+ * batch of {@code n} files then costs one private key operation instead of
+ * {@code n}.
+ * </p>
+ * <p>
+ * The queues hold at most {@code batch.queue.size} files, so a fast stage
+ * waits for the next one instead of piling up results. A file that fails
+ * is reported and skipped; the others are still signed.
+ * </p>
+ */
+public class BatchSigningService {
+    private static final int DEFAULT_HASH_WORKERS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final int DEFAULT_INSERT_SIZE = 100;
+    // a partial batch is inserted when no file arrives for this long
+    private static final long FLUSH_DELAY_MILLIS = 200;
+    private static final long WORKER_STOP_TIMEOUT_SECONDS = 10;
+
+    private static final Item END = new Item(null);
+
+    private final SignatureLogRepository signatureLogRepository;
+    private final ActivityLogRepository activityLogRepository;
+    private final SignatureBatchRepository signatureBatchRepository;
+    private final BlobStore blobStore;
+    private final int hashWorkers;
+    private final int signWorkers;
+    private final int queueSize;
+    private final int insertSize;
+    private final boolean merkleBatch;
+
+    /**
+     * Receives the progress of a batch signing.
+     * <p>
+     * Callbacks are invoked from the thread running the batch; UI code must
+     * marshal them back to its own thread.
+     * </p>
+     */
+    public interface Listener {
+        /**
+         * Called when a file has been signed or has failed.
+         *
+         * @param file    the file
+         * @param signed  {@code true} if the signature was recorded
+         * @param message the reason of the failure, or {@code null}
+         * @param done    the number of files processed so far
+         * @param total   the number of files of the batch
+         */
+        void onFile(Path file, boolean signed, String message, int done, int total);
+
+        /**
+         * Called once when the batch ends.
+         *
+         * @param signed    the number of files signed
+         * @param failed    the number of files that failed
+         * @param cancelled {@code true} if the batch was cancelled
+         */
+        void onFinished(int signed, int failed, boolean cancelled);
+    }
+
+    /**
+     * Handle on a running batch signing.
+     */
+    public static final class Handle {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * Requests the cancellation of the batch.
+         * Files already being hashed are signed and recorded, pending ones are skipped.
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public boolean isDone() {
+            return finished.getCount() == 0;
+        }
+
+        /**
+         * Waits for the batch to end.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit    the unit of the timeout
+         * @return {@code true} if the batch ended before the timeout
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return finished.await(timeout, unit);
+        }
+    }
+
+    /**
+     * Creates a service configured by {@code batch.hash.workers}, {@code batch.sign.workers},
+     * {@code batch.queue.size}, {@code batch.insert.size} and {@code batch.merkle.enabled}.
+     */
+    public BatchSigningService() {
+        this(new SignatureLogRepository(), new ActivityLogRepository(), new SignatureBatchRepository(), new BlobStore(),
+                AppConfig.getInstance().getIntProperty("batch.hash.workers", DEFAULT_HASH_WORKERS),
+                AppConfig.getInstance().getIntProperty("batch.sign.workers", Runtime.getRuntime().availableProcessors()),
+                AppConfig.getInstance().getIntProperty("batch.queue.size", DEFAULT_QUEUE_SIZE),
+                AppConfig.getInstance().getIntProperty("batch.insert.size", DEFAULT_INSERT_SIZE),
+                Boolean.parseBoolean(AppConfig.getInstance().getProperty("batch.merkle.enabled")));
+    }
+
+    BatchSigningService(SignatureLogRepository signatureLogRepository, ActivityLogRepository activityLogRepository,
+                        BlobStore blobStore, int hashWorkers, int signWorkers, int queueSize, int insertSize) {
+        this(signatureLogRepository, activityLogRepository, new SignatureBatchRepository(), blobStore,
+                hashWorkers, signWorkers, queueSize, insertSize, false);
+    }
+
+    BatchSigningService(SignatureLogRepository signatureLogRepository, ActivityLogRepository activityLogRepository,
+                        SignatureBatchRepository signatureBatchRepository, BlobStore blobStore,
+                        int hashWorkers, int signWorkers, int queueSize, int insertSize, boolean merkleBatch) {
+        this.signatureLogRepository = signatureLogRepository;
+        this.activityLogRepository = activityLogRepository;
+        this.signatureBatchRepository = signatureBatchRepository;
+        this.merkleBatch = merkleBatch;
+        this.blobStore = blobStore;
+        this.hashWorkers = Math.max(1, hashWorkers);
+        this.signWorkers = Math.max(1, signWorkers);
+        this.queueSize = Math.max(1, queueSize);
+        this.insertSize = Math.max(1, insertSize);
+    }
+
+    /**
+     * Lists the files to sign, walking the given directories.
+     *
+     * @param paths files and directories, as selected or dropped by the user
+     * @return the regular files, directories being expanded recursively
+     * @throws IOException if a directory cannot be read
+     */
+    public static List<Path> collectFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Signs files for the connected user, on the calling thread.
+     *
+     * @param files    the files to sign
+     * @param handle   the handle checked for cancellation
+     * @param listener the listener notified of each file
+     * @return the number of files signed
+     */
+    public int sign(List<Path> files, Handle handle, Listener listener) {
+        return sign(files, SessionManager.getCurrentUser(), SessionManager.getPrivateKey(), handle, listener);
+    }
+
+    /**
+     * Signs files on the calling thread.
+     *
+     * @param files      the files to sign
+     * @param signer     the user the files are signed for
+     * @param privateKey the private key of the signer
+     * @param handle     the handle checked for cancellation
+     * @param listener   the listener notified of each file
+     * @return the number of files signed
+     */
+    public int sign(List<Path> files, User signer, PrivateKey privateKey, Handle handle, Listener listener) {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.orDefault(signer.getSignatureAlgorithm());
+        Batch batch = new Batch(files, signer, privateKey, algorithm, handle, listener);
+        ExecutorService hashers = Executors.newFixedThreadPool(hashWorkers, daemonFactory("batch-hash-"));
+        ExecutorService signers = Executors.newFixedThreadPool(signWorkers, daemonFactory("batch-sign-"));
+        try {
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger hashersLeft = new AtomicInteger(hashWorkers);
+            for (int i = 0; i < hashWorkers; i++) {
+                hashers.execute(() -> hashStage(batch, next, algorithm, hashersLeft));
+            }
+            AtomicInteger signersLeft = new AtomicInteger(signWorkers);
+            for (int i = 0; i < signWorkers; i++) {
+                signers.execute(() -> signStage(batch, signersLeft));
+            }
+            insertStage(batch);
+        } finally {
+            // interrupts the workers blocked on a full queue if the insert stage stopped early
+            hashers.shutdownNow();
+            signers.shutdownNow();
+            releaseQueued(batch, hashers, signers);
+            listener.onFinished(batch.signed, batch.failed, handle.isCancelled());
+            handle.finished.countDown();
+        }
+        return batch.signed;
+    }
+
+    private void hashStage(Batch batch, AtomicInteger next, SignatureAlgorithm algorithm, AtomicInteger left) {
+        try {
+            int i;
+            while (!batch.handle.isCancelled() && (i = next.getAndIncrement()) < batch.files.size()) {
+                Item item = store(batch.files.get(i), algorithm);
+                try {
+                    batch.hashed.put(item);
+                } catch (InterruptedException e) {
+                    release(item);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the last hasher tells every signer that no file will follow
+            if (left.decrementAndGet() == 0) {
+                for (int i = 0; i < signWorkers; i++) {
+                    put(batch.hashed, END);
+                }
+            }
+        }
+    }
+
+    private Item store(Path file, SignatureAlgorithm algorithm) {
+        Item item = new Item(file);
+        try {
+            int merkleBlockSize = SignatureLogService.merkleBlockSizeFor(Files.size(file));
+            // hashed and copied without a key: the digest is signed by the next stage
+            item.stored = blobStore.store(file, (source, destination, codec) -> merkleBlockSize > 0
+                    ? FileIngestPipeline.ingestMerkle(source, destination, null, algorithm, merkleBlockSize)
+                    : FileIngestPipeline.ingest(source, destination, null, algorithm, codec));
+        } catch (IOException | RuntimeException e) {
+            item.error = messageOf(e);
+        }
+        return item;
+    }
+
+    private void signStage(Batch batch, AtomicInteger left) {
+        try {
+            Item item;
+            while ((item = batch.hashed.take()) != END) {
+                if (item.error == null) {
+                    sign(item, batch);
+                }
+                try {
+                    batch.signedQueue.put(item);
+                } catch (InterruptedException e) {
+                    release(item);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (left.decrementAndGet() == 0) {
+                put(batch.signedQueue, END);
+            }
+        }
+    }
+
+    private void sign(Item item, Batch batch) {
+        try {
+            FileIngestPipeline.Result ingest = item.stored.getIngest();
+            // in Merkle batch mode, the root of the JDBC batch is signed by the insert stage
+            String signature = merkleBatch
+                    ? null
+                    : CryptoUtils.b64(CryptoUtils.signDigest(ingest.getHash(), batch.privateKey, batch.algorithm));
+            SignatureLog log = new SignatureLog(
+                    batch.signer.getId(),
+                    item.file.getFileName().toString(),
+                    CryptoUtils.b64(ingest.getHash()),
+                    signature,
+                    null);
+            log.setSignatureAlgorithm(batch.algorithm);
+            log.setBlobHash(item.stored.getHash());
+            if (ingest.getMerkleBlockSize() > 0) {
+                log.setMerkleRoot(CryptoUtils.b64(ingest.getHash()));
+                log.setMerkleBlockSize(ingest.getMerkleBlockSize());
+            }
+            item.signature = log;
+        } catch (RuntimeException e) {
+            item.error = messageOf(e);
+        }
+    }
+
+    private void insertStage(Batch batch) {
+        List<Item> pending = new ArrayList<>(insertSize);
+        boolean interrupted = false;
+        while (true) {
+            Item item;
+            try {
+                item = pending.isEmpty()
+                        ? batch.signedQueue.take()
+                        : batch.signedQueue.poll(FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // the files in the pipeline are still recorded, the others are skipped
+                interrupted = true;
+                batch.handle.cancel();
+                continue;
+            }
+            if (item == END) {
+                break;
+            }
+            if (item == null) {
+                flush(batch, pending);
+            } else if (item.error != null) {
+                fail(batch, item, item.error);
+            } else {
+                pending.add(item);
+                if (pending.size() >= insertSize) {
+                    flush(batch, pending);
+                }
+            }
+        }
+        flush(batch, pending);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(Batch batch, List<Item> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<SignatureLog> signatures = new ArrayList<>(pending.size());
+        List<ActivityLog> logs = new ArrayList<>(pending.size());
+        for (Item item : pending) {
+            signatures.add(item.signature);
+            logs.add(new ActivityLog(batch.signer.getId(), ActivityLog.TypeAction.FILE_UPLOAD,
+                    item.signature.getFileName()));
+        }
+        try {
+            // a batch row is never committed without its files, nor the files without their trace
+            UnitOfWork.inTransaction(() -> {
+                if (merkleBatch) {
+                    signRoot(batch, pending);
+                }
+                signatureLogRepository.insertAll(signatures);
+                activityLogRepository.insertAll(logs);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            for (Item item : pending) {
+                fail(batch, item, messageOf(e));
+            }
+            pending.clear();
+            return;
+        }
+        for (Item item : pending) {
+            batch.signed++;
+            batch.listener.onFile(item.file, true, null, batch.signed + batch.failed, batch.files.size());
+        }
+        pending.clear();
+    }
+
+    /**
+     * Signs the root of the Merkle tree of the files, records the batch and
+     * sets the signature and the inclusion proof of every file.
+     */
+    private void signRoot(Batch batch, List<Item> pending) {
+        List<byte[]> leaves = new ArrayList<>(pending.size());
+        for (Item item : pending) {
+            leaves.add(InclusionProof.leafOf(item.stored.getIngest().getHash()));
+        }
+        byte[] root = MerkleHasher.rootOfLeaves(leaves);
+        String signature = CryptoUtils.b64(CryptoUtils.signDigest(root, batch.privateKey, batch.algorithm));
+        SignatureBatch signatureBatch = new SignatureBatch(batch.signer.getId(), CryptoUtils.b64(root), signature,
+                batch.algorithm, pending.size());
+        signatureBatchRepository.insert(signatureBatch);
+
+        List<List<byte[]>> proofs = MerkleHasher.inclusionProofs(leaves);
+        for (int i = 0; i < pending.size(); i++) {
+            SignatureLog log = pending.get(i).signature;
+            log.setSignatureValue(signature);
+            log.setBatchId(signatureBatch.getId());
+            log.setInclusionProof(new InclusionProof(i, pending.size(), proofs.get(i)).encode());
+        }
+    }
+
+    private void fail(Batch batch, Item item, String message) {
+        release(item);
+        batch.failed++;
+        batch.listener.onFile(item.file, false, message, batch.signed + batch.failed, batch.files.size());
+    }
+
+    private void release(Item item) {
+        if (item.stored != null) {
+            try {
+                // the blob reference taken by the store is not owned by any signature
+                blobStore.release(item.stored.getHash());
+            } catch (IOException | RuntimeException e) {
+                // an orphan blob only wastes space
+            }
+        }
+    }
+
+    /**
+     * Releases the blobs of the files left in the queues once the workers
+     * have stopped; the queues are empty unless the insert stage failed.
+     */
+    private void releaseQueued(Batch batch, ExecutorService hashers, ExecutorService signers) {
+        try {
+            if (!hashers.awaitTermination(WORKER_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    || !signers.awaitTermination(WORKER_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (BlockingQueue<Item> queue : List.of(batch.hashed, batch.signedQueue)) {
+            Item item;
+            while ((item = queue.poll()) != null) {
+                release(item);
+            }
+        }
+    }
+
+    private static String messageOf(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    private static void put(BlockingQueue<Item> queue, Item item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * State of a running batch. The counters are only updated by the insert stage.
+     */
+    private final class Batch {
+        private final List<Path> files;
+        private final User signer;
+        private final PrivateKey privateKey;
+        private final SignatureAlgorithm algorithm;
+        private final Handle handle;
+        private final Listener listener;
+        private final BlockingQueue<Item> hashed = new ArrayBlockingQueue<>(queueSize);
+        private final BlockingQueue<Item> signedQueue = new ArrayBlockingQueue<>(queueSize);
+        private int signed;
+        private int failed;
+
+        Batch(List<Path> files, User signer, PrivateKey privateKey, SignatureAlgorithm algorithm,
+              Handle handle, Listener listener) {
+            this.files = files;
+            this.signer = signer;
+            this.privateKey = privateKey;
+            this.algorithm = algorithm;
+            this.handle = handle;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * A file moving through the pipeline.
+     */
+    private static final class Item {
+        private final Path file;
+        private BlobStore.Stored stored;
+        private SignatureLog signature;
+        private String error;
+
+        Item(Path file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.moustass.service;
+
+import com.moustass.config.AppConfig;
+import com.moustass.model.SignatureLog;
+import com.moustass.model.VerificationResult;
+import com.moustass.repository.SignatureLogRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service responsible for verifying every signed file at once.
+ * <p>
+ * Signature entries are read from the database page by page and verified
+ * in parallel on a bounded worker pool. A separate limit caps how many
+ * files are read from disk at the same time, so the pool can use all the
+ * cores without saturating the storage. Results are reported in batches,
+ * at most every {@code verify.progress.ms} milliseconds (100 by default),
+ * so that a large verification does not flood the listener.
+ * </p>
+ */
+public class BulkVerificationService {
+    private final SignatureLogRepository signatureLogRepository;
+    private final SignatureLogService signatureLogService;
+    private final long progressIntervalMillis;
+
+    private static final int PAGE_SIZE = 500;
+    private static final int DEFAULT_PROGRESS_MILLIS = 100;
+
+    public BulkVerificationService() {
+        this(new SignatureLogRepository(), new SignatureLogService(),
+                AppConfig.getInstance().getIntProperty("verify.progress.ms", DEFAULT_PROGRESS_MILLIS));
+    }
+
+    BulkVerificationService(SignatureLogRepository signatureLogRepository, SignatureLogService signatureLogService,
+                            long progressIntervalMillis) {
+        this.signatureLogRepository = signatureLogRepository;
+        this.signatureLogService = signatureLogService;
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    /**
+     * Receives the progress of a bulk verification.
+     * <p>
+     * Callbacks are invoked from worker threads; UI code must marshal them
+     * back to its own thread.
+     * </p>
+     */
+    public interface Listener {
+        /**
+         * Called with the files verified since the previous call.
+         *
+         * @param results the outcomes of the verifications, in completion order
+         * @param done    the number of files verified so far
+         * @param total   the number of files to verify, never less than {@code done}
+         */
+        void onResults(List<VerificationResult> results, int done, int total);
+
+        /**
+         * Called once when the bulk verification ends.
+         *
+         * @param done      the number of files verified
+         * @param total     the number of files to verify
+         * @param cancelled {@code true} if the verification was cancelled
+         */
+        void onFinished(int done, int total, boolean cancelled);
+    }
+
+    /**
+     * Handle on a running bulk verification.
+     */
+    public static final class Handle {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * Requests the cancellation of the verification.
+         * Files already being verified are completed, pending ones are skipped.
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public boolean isDone() {
+            return finished.getCount() == 0;
+        }
+
+        /**
+         * Waits for the verification to end.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit    the unit of the timeout
+         * @return {@code true} if the verification ended before the timeout
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return finished.await(timeout, unit);
+        }
+    }
+
+    /**
+     * Starts the verification of all signed files.
+     * <p>
+     * Files unchanged since their last verification are not read again.
+     * </p>
+     *
+     * @param listener the listener notified of each result
+     * @return a handle to follow or cancel the verification
+     */
+    public Handle verifyAll(Listener listener) {
+        return verifyAll(listener, false);
+    }
+
+    /**
+     * Starts the verification of all signed files.
+     *
+     * @param listener the listener notified of each result
+     * @param forceFullVerify {@code true} to read every file, even those unchanged since their last verification
+     * @return a handle to follow or cancel the verification
+     */
+    public Handle verifyAll(Listener listener, boolean forceFullVerify) {
+        AppConfig config = AppConfig.getInstance();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int workers = Math.max(1, config.getIntProperty("verify.workers", cores));
+        int maxOpenFiles = Math.max(1, config.getIntProperty("verify.max.open.files", cores));
+
+        Handle handle = new Handle();
+        Thread producer = newThread(() -> run(handle, listener, workers, maxOpenFiles, forceFullVerify), "bulk-verify");
+        producer.start();
+        return handle;
+    }
+
+    private void run(Handle handle, Listener listener, int workers, int maxOpenFiles, boolean forceFullVerify) {
+        // signatures added while the verification runs are verified too
+        AtomicInteger total = new AtomicInteger(signatureLogRepository.countAll());
+        AtomicInteger done = new AtomicInteger();
+        Progress progress = new Progress(listener, done, total);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, daemonFactory());
+        Semaphore openFiles = new Semaphore(maxOpenFiles);
+        // bounds the number of queued tasks so pages are not read ahead of the workers
+        Semaphore inFlight = new Semaphore(workers * 4);
+
+        try {
+            int lastId = 0;
+            List<SignatureLog> page;
+            while (!handle.isCancelled()
+                    && !(page = signatureLogRepository.findPageAfterId(lastId, PAGE_SIZE)).isEmpty()) {
+                for (SignatureLog signature : page) {
+                    if (handle.isCancelled()) break;
+                    inFlight.acquire();
+                    pool.execute(() -> {
+                        try {
+                            if (handle.isCancelled()) return;
+                            progress.add(verifyOne(signature, openFiles, forceFullVerify));
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                lastId = page.get(page.size() - 1).getId();
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            handle.cancel();
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            handle.cancel();
+        } finally {
+            pool.shutdownNow();
+            progress.flush(true);
+            listener.onFinished(done.get(), total.get(), handle.isCancelled());
+            handle.finished.countDown();
+        }
+    }
+
+    /**
+     * Collects the results of the workers and hands them to the listener in batches.
+     */
+    private final class Progress {
+        private final Listener listener;
+        private final AtomicInteger done;
+        private final AtomicInteger total;
+        private final Queue<VerificationResult> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushing = new AtomicBoolean();
+        private final AtomicLong lastFlush = new AtomicLong(System.nanoTime());
+
+        Progress(Listener listener, AtomicInteger done, AtomicInteger total) {
+            this.listener = listener;
+            this.done = done;
+            this.total = total;
+        }
+
+        void add(VerificationResult result) {
+            pending.add(result);
+            total.accumulateAndGet(done.incrementAndGet(), Math::max);
+            flush(false);
+        }
+
+        /**
+         * Delivers the pending results, if the interval has elapsed or {@code force} is set.
+         * Only one thread delivers at a time; the others leave their results queued.
+         */
+        void flush(boolean force) {
+            long now = System.nanoTime();
+            if (!force && now - lastFlush.get() < TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis)) {
+                return;
+            }
+            if (!flushing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                lastFlush.set(now);
+                List<VerificationResult> batch = new ArrayList<>();
+                VerificationResult result;
+                while ((result = pending.poll()) != null) {
+                    batch.add(result);
+                }
+                if (!batch.isEmpty()) {
+                    listener.onResults(batch, done.get(), total.get());
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    private VerificationResult verifyOne(SignatureLog signature, Semaphore openFiles, boolean forceFullVerify) {
+        long start = System.nanoTime();
+        int id = signature.getId();
+        try {
+            if (!signatureLogService.fileToDownload(signature).exists()) {
+                return new VerificationResult(id, VerificationResult.Status.MISSING, elapsed(start), null);
+            }
+            openFiles.acquire();
+            try {
+                boolean ok = signatureLogService.isFileOk(signature, forceFullVerify);
+                return new VerificationResult(id, ok ? VerificationResult.Status.OK : VerificationResult.Status.CORRUPTED,
+                        elapsed(start), null);
+            } finally {
+                openFiles.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new VerificationResult(id, VerificationResult.Status.ERROR, elapsed(start), "interrupted");
+        } catch (Exception e) {
+            return new VerificationResult(id, VerificationResult.Status.ERROR, elapsed(start), e.getMessage());
+        }
+    }
+
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static ThreadFactory daemonFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> newThread(r, "bulk-verify-worker-" + counter.incrementAndGet());
+    }
+
+    private static Thread newThread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
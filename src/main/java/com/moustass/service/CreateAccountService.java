@@ -1,16 +1,17 @@
 package com.moustass.service;
 
+import com.moustass.cache.CachingUserRepository;
+import com.moustass.cache.KeyPairPool;
 import com.moustass.exception.DatabaseConnectionException;
-import com.moustass.exception.SignatureRSAException;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.User;
+import com.moustass.model.UserSummary;
 import com.moustass.model.ActivityLog;
 import com.moustass.repository.UserRepository;
-import com.moustass.repository.ActivityLogRepository;
 import com.moustass.utils.CryptoUtils;
 import com.moustass.utils.ValidatorUtils;
 
 import java.security.*;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
 
 /**
@@ -21,8 +22,8 @@ import java.time.LocalDateTime;
  * </p>
  */
 public class CreateAccountService {
-    private final UserRepository userRepository = new UserRepository();
-    private final ActivityLogRepository activityLogRepository = new ActivityLogRepository();
+    private final UserRepository userRepository = CachingUserRepository.getInstance();
+    private final AuditLogWriter auditLogWriter = AuditLogWriter.getInstance();
 
     /**
      * Creates a new user account.
@@ -37,10 +38,31 @@ public class CreateAccountService {
      *                          has been explicitly confirmed
      * @return the newly created {@link User}
      * @throws IllegalArgumentException   if validation fails or input data is invalid
-     * @throws NoSuchAlgorithmException   if a cryptographic algorithm is unavailable
      */
     public User createAccount(String firstname, String lastname, String username, String password, String confirmPassword, Integer performedByUserId, boolean adminVerified)
-            throws IllegalArgumentException, NoSuchAlgorithmException{
+            throws IllegalArgumentException {
+        return createAccount(firstname, lastname, username, password, confirmPassword, performedByUserId, adminVerified,
+                KeyPairPool.defaultAlgorithm());
+    }
+
+    /**
+     * Creates a new user account whose key pair uses the given signature algorithm.
+     *
+     * @param firstname         the first name of the user
+     * @param lastname          the last name of the user
+     * @param username          the unique username
+     * @param password          the user password
+     * @param confirmPassword   the password confirmation
+     * @param performedByUserId the identifier of the user performing the action
+     * @param adminVerified     indicates whether administrative verification
+     *                          has been explicitly confirmed
+     * @param algorithm         the signature algorithm of the new user
+     * @return the newly created {@link User}
+     * @throws IllegalArgumentException   if validation fails or input data is invalid
+     */
+    public User createAccount(String firstname, String lastname, String username, String password, String confirmPassword, Integer performedByUserId, boolean adminVerified,
+                              SignatureAlgorithm algorithm)
+            throws IllegalArgumentException {
         if (firstname == null) firstname = "";
         if (lastname == null) lastname = "";
         if (username == null || username.trim().isEmpty()) throw new IllegalArgumentException("username required");
@@ -48,12 +70,12 @@ public class CreateAccountService {
 
         try {
             // ensure username not already used
-            if (userRepository.findByUsername(username) != null) throw new IllegalArgumentException("username already exists");
+            if (userRepository.findSummaryByUsername(username) != null) throw new IllegalArgumentException("username already exists");
 
             // if the creator is an admin, require adminVerified == true
             if (performedByUserId != null) {
-                com.moustass.model.User performer = userRepository.findById(performedByUserId);
-                if (performer != null && Boolean.TRUE.equals(performer.getIsAdmin()) && !adminVerified) {
+                UserSummary performer = userRepository.findSummaryById(performedByUserId);
+                if (performer != null && performer.isAdmin() && !adminVerified) {
                     throw new IllegalArgumentException("DOUBLE_VERIFICATION_REQUIRED: Admin must confirm creation");
                 }
             }
@@ -64,8 +86,8 @@ public class CreateAccountService {
             // generate salt
             String salt = CryptoUtils.generateSalt(16);
 
-            // generate keypair
-            KeyPair kp = CryptoUtils.generateKeyPair();
+            // take a pre-generated keypair
+            KeyPair kp = KeyPairPool.getInstance(SignatureAlgorithm.orDefault(algorithm)).take();
             String pkPublic = CryptoUtils.encodePublicKey(kp.getPublic());
             String skPrivate = CryptoUtils.encodePrivateKey(kp.getPrivate());
 
@@ -82,6 +104,7 @@ public class CreateAccountService {
             u.setSkPrivate(skPrivate);
             u.setMustChangePwd(Boolean.TRUE);
             u.setIsAdmin(Boolean.FALSE);
+            u.setSignatureAlgorithm(SignatureAlgorithm.orDefault(algorithm));
             u.setCreatedAt(LocalDateTime.now());
 
             boolean ok = userRepository.insert(u);
@@ -93,15 +116,11 @@ public class CreateAccountService {
             a.setAction(ActivityLog.TypeAction.USER_CREATED);
             a.setDetails("Created user '" + username + "' (id=" + u.getId() + ")");
             a.setCreatedAt(LocalDateTime.now());
-            activityLogRepository.insert(a);
+            auditLogWriter.record(a);
 
             return u;
         } catch (IllegalArgumentException ex) {
             throw new IllegalArgumentException("Error : " + ex.getMessage());
-        } catch (NoSuchAlgorithmException ex){
-            throw new SignatureRSAException("Error RSA : " + ex.getMessage());
-        }catch (SQLException ex){
-            throw new DatabaseConnectionException("Error DB : " + ex.getMessage());
         }
     }
 }
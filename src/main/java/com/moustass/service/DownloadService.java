@@ -0,0 +1,237 @@
+package com.moustass.service;
+
+import com.moustass.model.DownloadResult;
+import com.moustass.model.SignatureLog;
+import com.moustass.repository.SignatureLogRepository;
+import com.moustass.storage.BlobStore;
+import com.moustass.storage.StorageCodecs;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.MerkleHasher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service responsible for exporting signed files.
+ * <p>
+ * Downloads run on the calling thread, a {@link com.moustass.task.DownloadTask}
+ * for the user interface, and report their progress and throughput. A file stored as is is copied with
+ * {@link FileChannel#transferTo}, which lets the operating system move the
+ * bytes without going through the JVM heap.
+ * </p>
+ * <p>
+ * When the signature must be verified, or when the file is stored encoded,
+ * the bytes have to be seen by the JVM: they are then read once into a
+ * buffer that feeds both the hash and the copy. The copy is written to a
+ * temporary file and only moved to the destination when it is complete
+ * and, if requested, its signature is valid.
+ * </p>
+ */
+public class DownloadService {
+    private final SignatureLogRepository signatureLogRepository = new SignatureLogRepository();
+    private final SignatureLogService signatureLogService;
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String FILE_NOT_FOUND = "Fichier introuvable";
+
+    /**
+     * Receives the progress of a download.
+     * <p>
+     * Callbacks are invoked from the download thread; UI code must marshal
+     * them back to its own thread.
+     * </p>
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called regularly while the file is copied.
+         *
+         * @param done           the number of bytes copied so far
+         * @param total          the size of the file in bytes
+         * @param bytesPerSecond the average throughput since the start of the download
+         */
+        void onProgress(long done, long total, double bytesPerSecond);
+    }
+
+    /**
+     * Handle on a running download.
+     */
+    public static final class Handle {
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        /**
+         * Requests the cancellation of the download. The partial copy is deleted.
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+
+    public DownloadService() {
+        this(new SignatureLogService());
+    }
+
+    DownloadService(SignatureLogService signatureLogService) {
+        this.signatureLogService = signatureLogService;
+    }
+
+    /**
+     * Downloads a signed file on the calling thread.
+     *
+     * @param idSignature the identifier of the signature
+     * @param destination the path of the copy, replaced if it exists
+     * @param verify      {@code true} to check the signature during the copy
+     * @param handle      the handle checked for cancellation
+     * @param listener    the listener notified of the progress
+     * @return the outcome of the download
+     */
+    public DownloadResult download(int idSignature, Path destination, boolean verify, Handle handle, Listener listener) {
+        SignatureLog signature = signatureLogRepository.findById(idSignature);
+        if (signature == null) {
+            return new DownloadResult(idSignature, DownloadResult.Status.ERROR, 0, 0, false, FILE_NOT_FOUND);
+        }
+        return download(signature, destination, verify, handle, listener);
+    }
+
+    /**
+     * Downloads a signed file on the calling thread.
+     *
+     * @param signature   the signature entry of the file
+     * @param destination the path of the copy, replaced if it exists
+     * @param verify      {@code true} to check the signature during the copy
+     * @param handle      the handle checked for cancellation
+     * @param listener    the listener notified of the progress
+     * @return the outcome of the download
+     */
+    DownloadResult download(SignatureLog signature, Path destination, boolean verify, Handle handle, Listener listener) {
+        long start = System.nanoTime();
+        int id = signature.getId();
+        Path tmp = null;
+        try {
+            Path source = signatureLogService.storedPath(signature);
+            Path parent = destination.toAbsolutePath().getParent();
+            tmp = Files.createTempFile(parent, ".download-", ".part");
+
+            Progress progress = new Progress(listener, Files.size(source), start);
+            byte[] hash = null;
+            boolean encoded = signature.getBlobHash() != null && BlobStore.codecOf(source) != StorageCodecs.IDENTITY;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                if (verify || encoded) {
+                    hash = copyAndHash(signature, out, verify, handle, progress);
+                } else {
+                    transfer(source, out, handle, progress);
+                }
+                out.force(false);
+            }
+
+            if (handle.isCancelled()) {
+                return new DownloadResult(id, DownloadResult.Status.CANCELLED, progress.done, elapsed(start), false, null);
+            }
+            if (verify && !signatureLogService.verifyHash(signature, hash)) {
+                return new DownloadResult(id, DownloadResult.Status.CORRUPTED, progress.done, elapsed(start), true, null);
+            }
+            Files.move(tmp, destination, StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+            return new DownloadResult(id, DownloadResult.Status.OK, progress.done, elapsed(start), verify, null);
+        } catch (NoSuchFileException e) {
+            return new DownloadResult(id, DownloadResult.Status.ERROR, 0, elapsed(start), false, FILE_NOT_FOUND);
+        } catch (Exception e) {
+            return new DownloadResult(id, DownloadResult.Status.ERROR, 0, elapsed(start), false, e.getMessage());
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // the partial copy stays next to the destination
+                }
+            }
+        }
+    }
+
+    private static void transfer(Path source, FileChannel out, Handle handle, Progress progress) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            // transferred chunk by chunk to report progress and honour cancellation
+            while (position < size && !handle.isCancelled()) {
+                long n = in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                progress.advance(n, position == size);
+            }
+        }
+    }
+
+    private byte[] copyAndHash(SignatureLog signature, FileChannel out, boolean verify, Handle handle, Progress progress)
+            throws IOException {
+        MerkleHasher.Builder merkle = verify && signature.getMerkleBlockSize() != null
+                ? new MerkleHasher.Builder(signature.getMerkleBlockSize())
+                : null;
+        MessageDigest md = verify && merkle == null ? CryptoUtils.sha256Digest() : null;
+
+        byte[] chunk = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try (InputStream in = signatureLogService.openStoredFile(signature)) {
+            int read;
+            while (!handle.isCancelled() && (read = in.read(chunk)) != -1) {
+                if (md != null) md.update(chunk, 0, read);
+                if (merkle != null) merkle.update(chunk, 0, read);
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                progress.advance(read, false);
+            }
+        }
+        progress.advance(0, true);
+        if (md != null) return md.digest();
+        return merkle != null ? merkle.root() : null;
+    }
+
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Throttles progress notifications to one per {@link #TRANSFER_CHUNK}.
+     */
+    private static final class Progress {
+        private final Listener listener;
+        private final long total;
+        private final long start;
+        private long done;
+        private long reported;
+
+        Progress(Listener listener, long total, long start) {
+            this.listener = listener;
+            this.total = total;
+            this.start = start;
+        }
+
+        void advance(long bytes, boolean last) {
+            done += bytes;
+            if (last || done - reported >= TRANSFER_CHUNK) {
+                reported = done;
+                double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+                listener.onProgress(done, Math.max(total, done), done / seconds);
+            }
+        }
+    }
+}
@@ -1,18 +1,16 @@
 package com.moustass.service;
 
+import com.moustass.cache.CachingUserRepository;
+import com.moustass.config.UnitOfWork;
 import com.moustass.exception.DatabaseConnectionException;
-import com.moustass.exception.SignatureRSAException;
 import com.moustass.model.ActivityLog;
 import com.moustass.model.AuthEvent;
 import com.moustass.model.AuthLog;
-import com.moustass.repository.AuthLogRepository;
 import com.moustass.utils.CryptoUtils;
 import com.moustass.model.User;
-import com.moustass.repository.ActivityLogRepository;
 import com.moustass.repository.UserRepository;
 import com.moustass.utils.ValidatorUtils;
 
-import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
 
 /**
@@ -24,9 +22,8 @@ import java.sql.SQLException;
  * </p>
  */
 public class LoginService {
-    private final UserRepository userRepository = new UserRepository();
-    private final ActivityLogRepository activityLogRepository = new ActivityLogRepository();
-    private final AuthLogRepository authLogRepository = new AuthLogRepository();
+    private final UserRepository userRepository = CachingUserRepository.getInstance();
+    private final AuditLogWriter auditLogWriter = AuditLogWriter.getInstance();
 
     /**
      * Authenticates a user using their credentials.
@@ -49,7 +46,7 @@ public class LoginService {
                 a.setUserId(null);
                 a.setAction(ActivityLog.TypeAction.LOGIN_FAILURE);
                 a.setDetails("Failed login attempt for username='" + username + "' (user not found)");
-                activityLogRepository.insert(a);
+                auditLogWriter.record(a);
 
                 return null;
             }
@@ -68,14 +65,10 @@ public class LoginService {
                     "Failed login attempt for username='" + username + "' (incorrect password)";
             a.setDetails(message);
 
-            activityLogRepository.insert(a);
+            auditLogWriter.record(a);
             return isLogged ? u : null;
-        } catch (SQLException logEx) {
-            throw new DatabaseConnectionException("Login failure: " + logEx.getMessage());
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Authentication error: " + e.getMessage(), e);
-        } catch (NoSuchAlgorithmException e){
-            throw new SignatureRSAException("Erreur RSA: " + e.getMessage());
         }
     }
 
@@ -112,11 +105,15 @@ public class LoginService {
             u.setSalt(salt);
             u.setPasswordHash(hashPassword);
             u.setMustChangePwd(Boolean.FALSE);
-            userRepository.updatePassword(u);
             AuthLog log = new AuthLog();
             log.setUserId(userId);
             log.setEvent(AuthEvent.SUCCESS);
-            authLogRepository.insert(log);
+            // the new password and its trace are committed together
+            UnitOfWork.inTransaction(() -> {
+                userRepository.updatePassword(u);
+                auditLogWriter.record(log);
+                return null;
+            });
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Error: " + e.getMessage());
         } catch (SQLException ex){
@@ -1,29 +1,41 @@
 package com.moustass.service;
 
+import com.moustass.cache.PublicKeyCache;
+import com.moustass.cache.RootSignatureCache;
+import com.moustass.cache.VerificationCache;
 import com.moustass.config.AppConfig;
+import com.moustass.config.UnitOfWork;
 import com.moustass.exception.DatabaseConnectionException;
 import com.moustass.exception.FileStorageException;
 import com.moustass.exception.SignatureRSAException;
 import com.moustass.model.ActivityLog;
+import com.moustass.model.InclusionProof;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.SignatureLog;
+import com.moustass.model.SignatureQuery;
 import com.moustass.model.User;
 import com.moustass.repository.ActivityLogRepository;
 import com.moustass.repository.SignatureLogRepository;
-import com.moustass.repository.UserRepository;
 import com.moustass.session.SessionManager;
+import com.moustass.storage.BlobStore;
+import com.moustass.storage.StorageCodecs;
 import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.FileIngestPipeline;
+import com.moustass.utils.MerkleHasher;
 import com.moustass.view.SignatureView;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.*;
-import java.security.spec.InvalidKeySpecException;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Service responsible for managing digital signature operations.
@@ -37,15 +49,20 @@ public class SignatureLogService {
 
     private final SignatureLogRepository signatureLogRepository = new SignatureLogRepository();
     private final ActivityLogRepository activityLogRepository = new ActivityLogRepository();
-    private final UserRepository userRepository = new UserRepository();
+    private final BlobStore blobStore = new BlobStore();
 
     private static final String UPLOAD_DIR = "upload.dir";
+    private static final int DEFAULT_MERKLE_MIN_SIZE_MB = 256;
 
     /**
      * Verifies the integrity and validity of a signed file.
      * <p>
      * This method checks whether the stored digital signature matches
      * the computed hash of the file, ensuring integrity and authenticity.
+     * The file is streamed, it is never loaded in memory as a whole.
+     * Files signed in Merkle mode are re-hashed block by block in parallel.
+     * If the file has the same size, modification time and file key as at
+     * its last verification, the cached outcome is returned without reading it.
      * </p>
      *
      * @param idSignature the identifier of the signature to verify
@@ -57,20 +74,72 @@ public class SignatureLogService {
      */
     public boolean isFileOk(int idSignature)
             throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        return isFileOk(idSignature, false);
+    }
+
+    /**
+     * Verifies the integrity and validity of a signed file, optionally bypassing the verification cache.
+     *
+     * @param idSignature the identifier of the signature to verify
+     * @param forceFullVerify {@code true} to read and verify the file even if it has not changed since its last verification
+     * @return {@code true} if the file signature is valid, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the file
+     * @throws NoSuchAlgorithmException if the hashing algorithm is unavailable
+     * @throws SignatureException if a signature verification error occurs
+     * @throws InvalidKeyException if the public key is invalid
+     */
+    public boolean isFileOk(int idSignature, boolean forceFullVerify)
+            throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        return isFileOk(signatureLogRepository.findById(idSignature), forceFullVerify);
+    }
+
+    /**
+     * Verifies the integrity and validity of a signed file from an already loaded signature entry.
+     *
+     * @param signature the signature entry to verify
+     * @return {@code true} if the file signature is valid, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the file
+     * @throws NoSuchAlgorithmException if the hashing algorithm is unavailable
+     * @throws SignatureException if a signature verification error occurs
+     * @throws InvalidKeyException if the public key is invalid
+     */
+    public boolean isFileOk(SignatureLog signature)
+            throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
+        return isFileOk(signature, false);
+    }
+
+    /**
+     * Verifies a signed file from an already loaded signature entry, optionally bypassing the verification cache.
+     *
+     * @param signature the signature entry to verify
+     * @param forceFullVerify {@code true} to read and verify the file even if it has not changed since its last verification
+     * @return {@code true} if the file signature is valid, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the file
+     * @throws NoSuchAlgorithmException if the hashing algorithm is unavailable
+     * @throws SignatureException if a signature verification error occurs
+     * @throws InvalidKeyException if the public key is invalid
+     */
+    public boolean isFileOk(SignatureLog signature, boolean forceFullVerify)
+            throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException {
         try {
-            SignatureLog signature = signatureLogRepository.findById(idSignature);
-            User author = userRepository.findById(signature.getUserId());
-            PublicKey pk = CryptoUtils.publicKeyFromBase64(author.getPkPublic());
-
-            AppConfig config = AppConfig.getInstance();
-            File fileToVerify = new File(config.getProperty(UPLOAD_DIR) + signature.getFileName());
-
-            return CryptoUtils.verifySha256WithRsa(
-                    Files.readAllBytes(fileToVerify.toPath()),
-                    CryptoUtils.fromB64(signature.getSignatureValue()),
-                    pk
-            );
-        } catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException | InvalidKeySpecException e) {
+            Path file = storedPath(signature);
+            VerificationCache cache = VerificationCache.getInstance();
+            BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!forceFullVerify) {
+                Boolean cached = cache.lookup(signature.getId(), before);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            boolean ok = verifyHash(signature, hashStoredFile(signature, file));
+
+            // a file modified while it was read gives no reusable outcome
+            if (sameFingerprint(before, Files.readAttributes(file, BasicFileAttributes.class))) {
+                cache.record(signature.getId(), before, ok);
+            }
+            return ok;
+        } catch (IOException e) {
             throw new SignatureRSAException("Error : " + e.getMessage());
         }
     }
@@ -80,7 +149,12 @@ public class SignatureLogService {
      * <p>
      * This method generates a cryptographic hash of the file, signs it
      * using the user's private key, stores the physical file, and records
-     * the signature and activity logs.
+     * the signature and activity logs. The file is read only once: the
+     * hash, the signature and the stored copy are fed from the same buffers.
+     * The copy is stored once per content in the {@link BlobStore}: signing
+     * a file that is already stored does not write it again.
+     * Files larger than {@code merkle.min.size.mb} are hashed as a Merkle
+     * tree when {@code merkle.enabled} is set, so that hashing uses all cores.
      * </p>
      *
      * @param fileToSave the file to be signed and saved
@@ -91,79 +165,219 @@ public class SignatureLogService {
      */
     public void saveFile(File fileToSave)
             throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException{
-        try {
-            User currentUser = SessionManager.getCurrentUser();
-
-            // Get the private key
-            PrivateKey sk = CryptoUtils.privateKeyFromBase64(currentUser.getSkPrivate());
-
-            // Hash file
-            byte[] hash = CryptoUtils.sha256(fileToSave);
+        // Get the private key, decoded once per session
+        saveFile(fileToSave, SessionManager.getCurrentUser(), SessionManager.getPrivateKey());
+    }
 
-            // signer the file
-            byte[] signature = CryptoUtils.signSha256WithRsa(
-                    Files.readAllBytes(fileToSave.toPath()),
-                    sk
-            );
+    /**
+     * Signs and saves a file for a given user.
+     * <p>
+     * Used when no user is connected, for example by the drop folder
+     * watcher, which signs with the key of a configured user.
+     * </p>
+     *
+     * @param fileToSave the file to be signed and saved
+     * @param currentUser the user the file is signed for
+     * @param sk the decoded private key of this user
+     * @throws IOException if an I/O error occurs during file handling
+     * @throws NoSuchAlgorithmException if a cryptographic algorithm is unavailable
+     * @throws SignatureException if an error occurs during signature generation
+     * @throws InvalidKeyException if the private key is invalid
+     */
+    public void saveFile(File fileToSave, User currentUser, PrivateKey sk)
+            throws IOException, NoSuchAlgorithmException, SignatureException, InvalidKeyException{
+        try {
+            // Hash, sign and store the file in a single read, unless its content is already stored
+            SignatureAlgorithm algorithm = SignatureAlgorithm.orDefault(currentUser.getSignatureAlgorithm());
+            int merkleBlockSize = merkleBlockSizeFor(fileToSave.length());
+            BlobStore.Stored stored = blobStore.store(fileToSave.toPath(), (source, destination, codec) -> merkleBlockSize > 0
+                    ? FileIngestPipeline.ingestMerkle(source, destination, sk, algorithm, merkleBlockSize)
+                    : FileIngestPipeline.ingest(source, destination, sk, algorithm, codec));
+            FileIngestPipeline.Result ingest = stored.getIngest();
 
-            savePhysicalFile(fileToSave);
             SignatureLog signatureLog = new SignatureLog(
                     currentUser.getId(),
                     fileToSave.getName(),
-                    CryptoUtils.b64(hash),
-                    CryptoUtils.b64(signature),
+                    CryptoUtils.b64(ingest.getHash()),
+                    CryptoUtils.b64(ingest.getSignature()),
                     null);
-            signatureLogRepository.insert(signatureLog);
-
+            signatureLog.setSignatureAlgorithm(algorithm);
+            signatureLog.setBlobHash(stored.getHash());
+            if (ingest.getMerkleBlockSize() > 0) {
+                signatureLog.setMerkleRoot(CryptoUtils.b64(ingest.getHash()));
+                signatureLog.setMerkleBlockSize(ingest.getMerkleBlockSize());
+            }
             ActivityLog log = new ActivityLog(currentUser.getId(), ActivityLog.TypeAction.FILE_DOWNLOAD, fileToSave.getName());
-            activityLogRepository.insert(log);
-
-            // NON TRANSACTIONEL FUNCTION !!!!!
-            // Use Connection => auto commit false
-        } catch (IOException | NoSuchAlgorithmException | SignatureException | InvalidKeyException | InvalidKeySpecException e) {
-            throw new SignatureRSAException("Error : " +e.getMessage());
+            try {
+                // the signature and its trace are committed together
+                UnitOfWork.inTransaction(() -> {
+                    signatureLogRepository.insert(signatureLog);
+                    activityLogRepository.insert(log);
+                    return null;
+                });
+            } catch (SQLException | RuntimeException e) {
+                // the blob reference taken by the store is not owned by any signature
+                blobStore.release(stored.getHash());
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Error: " +e.getMessage());
         }catch (SQLException ex){
             throw new DatabaseConnectionException("Error Db: " +ex.getMessage());
         }
     }
 
     /**
-     * Saves a file to the physical storage location.
+     * Checks the signature of an entry against the hash of its file.
+     * <p>
+     * For a file signed in a batch, the inclusion proof is used to
+     * recompute the root of the batch, and the signature of the root is
+     * checked. This check is cached: the other files of the batch only
+     * cost the hashes of their proof (see {@link RootSignatureCache}).
+     * </p>
      *
-     * @param fileToSave the file to be stored on disk
+     * @param signature the signature entry
+     * @param hash the SHA-256 digest, or the Merkle root, of the original bytes of the file
+     * @return {@code true} if the signature is valid for this hash
      */
-    public void savePhysicalFile(File fileToSave){
-        try {
-            AppConfig config = AppConfig.getInstance();
-            String savePath = config.getProperty(UPLOAD_DIR);
-            Files.createDirectories(Path.of(savePath));
+    boolean verifyHash(SignatureLog signature, byte[] hash) {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.orDefault(signature.getSignatureAlgorithm());
+        if (signature.getInclusionProof() != null) {
+            byte[] root;
+            try {
+                root = InclusionProof.decode(signature.getInclusionProof()).root(hash);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (root == null) {
+                return false;
+            }
+            return RootSignatureCache.getInstance().verify(signature.getUserId(), algorithm.name(),
+                    CryptoUtils.b64(root), signature.getSignatureValue(),
+                    () -> verifyDigest(signature, root, algorithm));
+        }
+        return verifyDigest(signature, hash, algorithm);
+    }
+
+    private static boolean verifyDigest(SignatureLog signature, byte[] digest, SignatureAlgorithm algorithm) {
+        PublicKey pk = PublicKeyCache.getInstance().get(signature.getUserId());
+        return CryptoUtils.verifyDigest(
+                digest,
+                CryptoUtils.fromB64(signature.getSignatureValue()),
+                pk,
+                algorithm
+        );
+    }
+
+    /**
+     * Hashes a stored file the way it was hashed when it was signed.
+     * <p>
+     * Encoded blobs are decoded while they are read, so that the hash is
+     * computed on the original bytes.
+     * </p>
+     *
+     * @param signature the signature entry of the file
+     * @param file the path of the stored file
+     * @return the hash to verify the signature against
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private static byte[] hashStoredFile(SignatureLog signature, Path file) throws IOException {
+        if (signature.getMerkleBlockSize() != null) {
+            return MerkleHasher.root(file, signature.getMerkleBlockSize());
+        }
+        // files stored under their name are never encoded, whatever their extension
+        if (signature.getBlobHash() == null || BlobStore.codecOf(file) == StorageCodecs.IDENTITY) {
+            return CryptoUtils.sha256(file);
+        }
+        try (InputStream in = BlobStore.open(file)) {
+            return CryptoUtils.sha256(Channels.newChannel(in));
+        }
+    }
+
+    private static boolean sameFingerprint(BasicFileAttributes a, BasicFileAttributes b) {
+        return a.size() == b.size()
+                && a.lastModifiedTime().equals(b.lastModifiedTime())
+                && Objects.equals(a.fileKey(), b.fileKey());
+    }
 
-            Path destination = Paths.get(savePath + fileToSave.getName());
+    /**
+     * Chooses how a file is hashed.
+     *
+     * @param size the size of the file in bytes
+     * @return the Merkle block size to use, or {@code 0} to hash the file with a flat SHA-256 digest
+     */
+    static int merkleBlockSizeFor(long size) {
+        AppConfig config = AppConfig.getInstance();
+        if (!Boolean.parseBoolean(config.getProperty("merkle.enabled"))) {
+            return 0;
+        }
+        long minSize = config.getIntProperty("merkle.min.size.mb", DEFAULT_MERKLE_MIN_SIZE_MB) * 1024L * 1024L;
+        return size >= minSize ? config.getIntProperty("merkle.block.size", MerkleHasher.DEFAULT_BLOCK_SIZE) : 0;
+    }
 
-            Files.copy(fileToSave.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
-        }catch (IOException ex){
-            throw new FileStorageException("Error: " +ex.getMessage());
+    /**
+     * Resolves the storage path of a signed file.
+     * <p>
+     * Files signed before the content-addressed store was introduced are
+     * still read under their name in the upload directory.
+     * </p>
+     *
+     * @param signature the signature entry
+     * @return the path of the stored file
+     */
+    Path storedPath(SignatureLog signature) {
+        if (signature.getBlobHash() != null) {
+            return blobStore.locate(signature.getBlobHash());
         }
+        return uploadPath(signature.getFileName());
     }
 
     /**
-     * Retrieves a file.
+     * Resolves the storage path of an uploaded file.
      *
-     * @param idSignature the identifier of the signature
-     * @return the file corresponding to the requested signature
+     * @param fileName the name of the stored file
+     * @return the path of the file inside the upload directory
      */
-    public File fileToDownload(int idSignature){
-        SignatureLog signature = signatureLogRepository.findById(idSignature);
+    private Path uploadPath(String fileName) {
         AppConfig config = AppConfig.getInstance();
-        return new File(config.getProperty(UPLOAD_DIR) + signature.getFileName());
+        return Paths.get(config.getProperty(UPLOAD_DIR) + fileName);
+    }
+
+    /**
+     * Retrieves the stored file of an already loaded signature entry.
+     * <p>
+     * The file may be encoded; use {@link #openStoredFile(SignatureLog)} to read its original bytes.
+     * </p>
+     *
+     * @param signature the signature entry
+     * @return the file corresponding to the signature
+     */
+    public File fileToDownload(SignatureLog signature){
+        return storedPath(signature).toFile();
+    }
+
+    /**
+     * Opens the stored file of a signature, decoding it if it is stored encoded.
+     *
+     * @param signature the signature entry
+     * @return a stream of the original bytes of the signed file
+     * @throws IOException if the file cannot be opened
+     */
+    public InputStream openStoredFile(SignatureLog signature) throws IOException {
+        Path file = storedPath(signature);
+        return signature.getBlobHash() != null ? BlobStore.open(file) : Files.newInputStream(file);
     }
 
     /**
-     * Retrieves all files records.
+     * Retrieves a page of files records.
      *
-     * @return a list of {@link SignatureView} representing all files
+     * @param query   the filter and sort order
+     * @param anchor  the row the page starts after (or before), {@code null} for the first page
+     * @param forward {@code true} for the rows after the anchor, {@code false} for the rows before it
+     * @param limit   the maximum number of rows
+     * @return the rows of the page, in the order of the query
      */
-    public List<SignatureView> findAllSignatures(){
-        return signatureLogRepository.findAllSignatures();
+    public List<SignatureView> findSignatures(SignatureQuery query, SignatureView anchor, boolean forward, int limit) {
+        return signatureLogRepository.findSignatures(query, anchor, forward, limit);
     }
 }
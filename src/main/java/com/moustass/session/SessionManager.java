@@ -1,6 +1,11 @@
 package com.moustass.session;
 
+import com.moustass.exception.SignatureRSAException;
+import com.moustass.model.SignatureAlgorithm;
 import com.moustass.model.User;
+import com.moustass.utils.CryptoUtils;
+
+import java.security.PrivateKey;
 
 /**
  * Manages the current user session.
@@ -9,9 +14,14 @@ import com.moustass.model.User;
  * the currently authenticated user in memory. It is designed to be used
  * in a static context and cannot be instantiated.
  * </p>
+ * <p>
+ * The private key of the user is decoded lazily, once per session, and
+ * shared by all the signing operations of that session.
+ * </p>
  */
 public final class SessionManager {
-    private static User currentUser;
+    private static volatile User currentUser;
+    private static volatile PrivateKey privateKey;
 
     private SessionManager() {}
 
@@ -19,8 +29,9 @@ public final class SessionManager {
      * Registers a user as the currently authenticated user.
      * @param user the authenticated user to store in the session
      */
-    public static void login(User user) {
+    public static synchronized void login(User user) {
         currentUser = user;
+        privateKey = null;
     }
 
     /**
@@ -29,8 +40,9 @@ public final class SessionManager {
      * After this call, no user is considered authenticated.
      * </p>
      */
-    public static void logout() {
+    public static synchronized void logout() {
         currentUser = null;
+        privateKey = null;
     }
 
     /**
@@ -64,4 +76,32 @@ public final class SessionManager {
     public static String getCurrentUsername() {
         return isLoggedIn() ? currentUser.getUsername() : null;
     }
+
+    /**
+     * Returns the decoded private key of the currently authenticated user.
+     * <p>
+     * The key is decoded on first use and kept until the session ends.
+     * {@link PrivateKey} instances are immutable and can be shared by
+     * concurrent signing threads.
+     * </p>
+     * @return the private key, or {@code null} if no user is logged in
+     * @throws SignatureRSAException if the stored private key cannot be decoded
+     */
+    public static PrivateKey getPrivateKey() {
+        PrivateKey key = privateKey;
+        if (key != null) {
+            return key;
+        }
+        synchronized (SessionManager.class) {
+            User user = currentUser;
+            if (user == null) {
+                return null;
+            }
+            if (privateKey == null) {
+                privateKey = CryptoUtils.privateKeyFromBase64(user.getSkPrivate(),
+                        SignatureAlgorithm.orDefault(user.getSignatureAlgorithm()));
+            }
+            return privateKey;
+        }
+    }
 }
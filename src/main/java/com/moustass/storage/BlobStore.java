@@ -0,0 +1,369 @@
+package com.moustass.storage;
+
+import com.moustass.config.AppConfig;
+import com.moustass.model.StorageStats;
+import com.moustass.repository.BlobRepository;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.FileIngestPipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Content-addressed store of uploaded files.
+ * <p>
+ * Every file is stored once, under the hex encoding of the hash identifying
+ * its content (see {@link FileIngestPipeline.Result#getHash()}): its SHA-256
+ * digest, or its Merkle root for the files large enough to be hashed in
+ * Merkle mode. The mode only depends on the size of the file, so a same
+ * content is always stored under the same hash. Blobs live in
+ * the {@code blobs} directory of {@code upload.dir}, sharded by
+ * hash prefix (see {@link ShardedPathResolver}). Signatures
+ * reference the blob by its hash and the {@code blobs} table counts the
+ * references: a blob is deleted when the last one is released.
+ * </p>
+ * <p>
+ * When a blob of the same size is already stored, the source is first
+ * only hashed; if the hash matches, the copy is skipped entirely.
+ * </p>
+ * <p>
+ * New blobs are encoded with the codec configured by {@code storage.codec}
+ * (see {@link StorageCodecs}); the extension of a blob file names its codec,
+ * and {@link #open(Path)} decodes it while it is read.
+ * </p>
+ */
+public class BlobStore {
+    private static final String UPLOAD_DIR = "upload.dir";
+    private static final int LOCK_STRIPES = 64;
+
+    private final BlobRepository blobRepository;
+    private final Path configuredRoot;
+    private final StorageCodec codec;
+    private volatile ShardedPathResolver resolver;
+    // serializes the publication and the deletion of a same blob
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Ingest function used to hash, sign and optionally copy a file.
+     */
+    @FunctionalInterface
+    public interface Ingest {
+        /**
+         * Hashes and signs a file, copying it to the destination if one is given.
+         *
+         * @param source the file to ingest
+         * @param destination the path of the copy, or {@code null} to only hash and sign
+         * @param codec the codec the copy should be written with
+         * @return the result of the ingest, giving the codec actually used
+         * @throws IOException if an I/O error occurs
+         */
+        FileIngestPipeline.Result run(Path source, Path destination, StorageCodec codec) throws IOException;
+    }
+
+    /**
+     * Result of a store: the ingest result and the hash addressing the blob.
+     */
+    public static final class Stored {
+        private final FileIngestPipeline.Result ingest;
+        private final String hash;
+        private final boolean deduplicated;
+
+        Stored(FileIngestPipeline.Result ingest, String hash, boolean deduplicated) {
+            this.ingest = ingest;
+            this.hash = hash;
+            this.deduplicated = deduplicated;
+        }
+
+        public FileIngestPipeline.Result getIngest() {
+            return ingest;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Tells whether the content was already stored, in which case no copy was written.
+         *
+         * @return {@code true} if the copy was skipped
+         */
+        public boolean isDeduplicated() {
+            return deduplicated;
+        }
+    }
+
+    /**
+     * Creates a store in the {@code blobs} directory of {@code upload.dir}.
+     */
+    public BlobStore() {
+        this(null, new BlobRepository(), StorageCodecs.configured());
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param root the directory of the blobs, or {@code null} to use the {@code blobs} directory of {@code upload.dir}
+     * @param blobRepository the repository of the reference counts
+     */
+    public BlobStore(Path root, BlobRepository blobRepository) {
+        this(root, blobRepository, StorageCodecs.IDENTITY);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param root the directory of the blobs, or {@code null} to use the {@code blobs} directory of {@code upload.dir}
+     * @param blobRepository the repository of the reference counts
+     * @param codec the codec new blobs are written with
+     */
+    public BlobStore(Path root, BlobRepository blobRepository, StorageCodec codec) {
+        this.configuredRoot = root;
+        this.blobRepository = blobRepository;
+        this.codec = codec;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Stores a file and adds a reference to its blob.
+     * <p>
+     * The caller owns the reference and must {@link #release(String)} it
+     * if the signature referencing the blob is not recorded.
+     * </p>
+     *
+     * @param source the file to store
+     * @param ingest the function hashing and signing the file
+     * @return the ingest result and the hash of the blob
+     * @throws IOException if an I/O error occurs
+     */
+    public Stored store(Path source, Ingest ingest) throws IOException {
+        long size = Files.size(source);
+
+        if (blobRepository.existsBySize(size)) {
+            FileIngestPipeline.Result hashOnly = ingest.run(source, null, codec);
+            String hash = CryptoUtils.toHex(hashOnly.getHash());
+            synchronized (lockFor(hash)) {
+                if (Files.exists(locate(hash)) && blobRepository.acquireExisting(hash)) {
+                    return new Stored(hashOnly, hash, true);
+                }
+            }
+        }
+
+        Path root = resolver().getRoot();
+        Files.createDirectories(root);
+        Path incoming = root.resolve(".incoming-" + UUID.randomUUID());
+        try {
+            FileIngestPipeline.Result result = ingest.run(source, incoming, codec);
+            String hash = CryptoUtils.toHex(result.getHash());
+            Path blob = pathOf(hash, result.getCodec());
+            synchronized (lockFor(hash)) {
+                Files.createDirectories(blob.getParent());
+                Files.move(incoming, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                blobRepository.acquire(hash, result.getSize(), result.getCodec().getName(), result.getStoredSize());
+            }
+            return new Stored(result, hash, false);
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    /**
+     * Removes a reference to a blob, deleting its file when it is no longer referenced.
+     *
+     * @param hash the hash of the blob
+     * @throws IOException if the file cannot be deleted
+     */
+    public void release(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            if (blobRepository.release(hash)) {
+                for (StorageCodec c : StorageCodecs.all()) {
+                    Files.deleteIfExists(pathOf(hash, c));
+                }
+                Files.deleteIfExists(resolver().flat(hash));
+            }
+        }
+    }
+
+    /**
+     * Adds an existing file to the store and a reference to its blob.
+     * <p>
+     * Used to migrate files stored under their name. The caller must have
+     * checked that the content of the file has the given hash. The file is
+     * hard linked into the store, or copied where links are not supported,
+     * and left in place: the caller deletes it once nothing reads it under
+     * its name any more. Nothing is written if the blob is already stored.
+     * </p>
+     *
+     * @param file the file to add
+     * @param hash the hash of the content of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public void adopt(Path file, String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            long size = Files.size(file);
+            if (!Files.exists(locate(hash))) {
+                Path blob = pathOf(hash);
+                Files.createDirectories(blob.getParent());
+                Path incoming = resolver().getRoot().resolve(".incoming-" + UUID.randomUUID());
+                try {
+                    try {
+                        Files.createLink(incoming, file);
+                    } catch (UnsupportedOperationException | IOException e) {
+                        Files.copy(file, incoming, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    Files.move(incoming, blob, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(incoming);
+                }
+            }
+            blobRepository.acquire(hash, size, IdentityCodec.NAME, size);
+        }
+    }
+
+    /**
+     * Adds a reference to a blob already stored.
+     *
+     * @param hash the hash of the blob
+     * @return {@code true} if the blob exists and the reference was added
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean link(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            Path blob = locate(hash);
+            if (!Files.isRegularFile(blob)) {
+                return false;
+            }
+            if (!blobRepository.acquireExisting(hash)) {
+                StorageCodec blobCodec = codecOf(blob);
+                long storedSize = Files.size(blob);
+                long size = blobCodec == StorageCodecs.IDENTITY ? storedSize : decodedSize(blob);
+                blobRepository.acquire(hash, size, blobCodec.getName(), storedSize);
+            }
+            return true;
+        }
+    }
+
+    private static long decodedSize(Path blob) throws IOException {
+        try (InputStream in = open(blob)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Moves a blob stored in the flat layout to its sharded path.
+     *
+     * @param hash the hash of the blob
+     * @return {@code true} if the blob was moved
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean reshard(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            Path flat = resolver().flat(hash);
+            if (!Files.isRegularFile(flat)) {
+                return false;
+            }
+            Path sharded = pathOf(hash);
+            if (Files.exists(sharded)) {
+                Files.delete(flat);
+                return false;
+            }
+            Files.createDirectories(sharded.getParent());
+            Files.move(flat, sharded, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+    }
+
+    /**
+     * Resolves the path of a blob stored without encoding.
+     *
+     * @param hash the hash of the blob
+     * @return the sharded path of the blob file
+     */
+    public Path pathOf(String hash) {
+        return pathOf(hash, StorageCodecs.IDENTITY);
+    }
+
+    /**
+     * Resolves the path where a blob encoded with a codec is written.
+     *
+     * @param hash the hash of the blob
+     * @param codec the codec of the blob
+     * @return the sharded path of the blob file
+     */
+    public Path pathOf(String hash, StorageCodec codec) {
+        return resolver().resolve(hash + codec.getExtension());
+    }
+
+    /**
+     * Finds the file of a blob, whatever its codec, including blobs stored before sharding.
+     *
+     * @param hash the hash of the blob
+     * @return the path of the blob file, or its sharded path without encoding if it does not exist
+     */
+    public Path locate(String hash) {
+        ShardedPathResolver paths = resolver();
+        for (StorageCodec c : StorageCodecs.all()) {
+            Path blob = paths.find(hash + c.getExtension());
+            if (blob != null) {
+                return blob;
+            }
+        }
+        return pathOf(hash);
+    }
+
+    /**
+     * Returns the codec a blob file was written with.
+     *
+     * @param blob the path of the blob file
+     * @return the codec of the blob
+     */
+    public static StorageCodec codecOf(Path blob) {
+        return StorageCodecs.forFileName(blob.getFileName().toString());
+    }
+
+    /**
+     * Opens a blob file, decoding its content.
+     *
+     * @param blob the path of the blob file
+     * @return a stream of the original bytes
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream open(Path blob) throws IOException {
+        return codecOf(blob).decode(Files.newInputStream(blob));
+    }
+
+    /**
+     * Returns the disk usage of the store.
+     *
+     * @return the original and stored sizes of the referenced blobs
+     */
+    public StorageStats stats() {
+        return blobRepository.stats();
+    }
+
+    /**
+     * Returns the resolver of the blob paths.
+     *
+     * @return the resolver rooted at the blobs directory
+     */
+    public ShardedPathResolver resolver() {
+        if (resolver == null) {
+            Path root = configuredRoot != null
+                    ? configuredRoot
+                    : Paths.get(AppConfig.getInstance().getProperty(UPLOAD_DIR)).resolve("blobs");
+            resolver = new ShardedPathResolver(root);
+        }
+        return resolver;
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+}
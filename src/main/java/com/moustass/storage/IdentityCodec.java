@@ -0,0 +1,31 @@
+package com.moustass.storage;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec storing files as they are.
+ */
+public final class IdentityCodec implements StorageCodec {
+    public static final String NAME = "identity";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getExtension() {
+        return "";
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+        return out;
+    }
+
+    @Override
+    public InputStream decode(InputStream in) {
+        return in;
+    }
+}
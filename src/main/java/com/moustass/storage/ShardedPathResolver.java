@@ -0,0 +1,82 @@
+package com.moustass.storage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Resolves stored files in a hash-prefix sharded directory tree.
+ * <p>
+ * A file stored under the key {@code abcdef...} lives in
+ * {@code <root>/ab/cd/abcdef...}, so that no directory holds more than a
+ * few hundred entries. Files written before sharding live directly in the
+ * root directory and are still found by {@link #locate(String)} until
+ * they are migrated.
+ * </p>
+ */
+public final class ShardedPathResolver {
+    private static final int LEVELS = 2;
+    private static final int WIDTH = 2;
+
+    private final Path root;
+
+    public ShardedPathResolver(Path root) {
+        this.root = root;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the sharded path of a key, whether it exists or not.
+     *
+     * @param key the key of the file, typically a hex hash
+     * @return the path of the file in the sharded tree
+     */
+    public Path resolve(String key) {
+        if (key.length() <= LEVELS * WIDTH) {
+            return root.resolve(key);
+        }
+        Path dir = root;
+        for (int level = 0; level < LEVELS; level++) {
+            dir = dir.resolve(key.substring(level * WIDTH, (level + 1) * WIDTH));
+        }
+        return dir.resolve(key);
+    }
+
+    /**
+     * Returns the path of a key in the flat layout used before sharding.
+     *
+     * @param key the key of the file
+     * @return the path of the file directly under the root directory
+     */
+    public Path flat(String key) {
+        return root.resolve(key);
+    }
+
+    /**
+     * Finds a stored file, falling back to the flat layout for files not migrated yet.
+     *
+     * @param key the key of the file
+     * @return the sharded path, unless only the flat path exists
+     */
+    public Path locate(String key) {
+        Path found = find(key);
+        return found != null ? found : resolve(key);
+    }
+
+    /**
+     * Finds a stored file in the sharded or the flat layout.
+     *
+     * @param key the key of the file
+     * @return the path of the existing file, or {@code null} if there is none
+     */
+    public Path find(String key) {
+        Path sharded = resolve(key);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = flat(key);
+        return Files.exists(flat) ? flat : null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.moustass.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encoding applied to the bytes of a stored file.
+ * <p>
+ * A codec only changes how a file is written on disk: hashes and
+ * signatures are always computed on the original bytes. The codec of a
+ * blob is given by the extension of its file name, so that it can be
+ * decoded without looking it up in the database.
+ * </p>
+ * <p>
+ * New codecs are made available with {@link StorageCodecs#register(StorageCodec)}.
+ * </p>
+ */
+public interface StorageCodec {
+
+    /**
+     * Returns the name of the codec, as recorded in the {@code blobs} table and in {@code storage.codec}.
+     *
+     * @return the name of the codec
+     */
+    String getName();
+
+    /**
+     * Returns the extension appended to the name of the files written with this codec.
+     *
+     * @return the extension, including its leading dot, or an empty string
+     */
+    String getExtension();
+
+    /**
+     * Wraps a stream so that the bytes written to it are encoded.
+     * <p>
+     * Closing the returned stream must write any pending data and close the given stream.
+     * </p>
+     *
+     * @param out the stream receiving the encoded bytes
+     * @return the stream receiving the original bytes
+     * @throws IOException if an I/O error occurs
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+
+    /**
+     * Wraps a stream so that the bytes read from it are decoded.
+     *
+     * @param in the stream of the encoded bytes
+     * @return the stream of the original bytes
+     * @throws IOException if an I/O error occurs
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
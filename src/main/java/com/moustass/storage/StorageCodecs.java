@@ -0,0 +1,89 @@
+package com.moustass.storage;
+
+import com.moustass.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the available {@link StorageCodec storage codecs}.
+ */
+public final class StorageCodecs {
+    private StorageCodecs() {}
+
+    public static final StorageCodec IDENTITY = new IdentityCodec();
+
+    private static final Map<String, StorageCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(IDENTITY);
+        register(new DeflateCodec(AppConfig.getInstance().getIntProperty("storage.codec.level", -1)));
+    }
+
+    /**
+     * Makes a codec available, replacing any codec with the same name.
+     *
+     * @param codec the codec to register
+     */
+    public static void register(StorageCodec codec) {
+        CODECS.put(codec.getName(), codec);
+    }
+
+    /**
+     * Returns a codec by name.
+     *
+     * @param name the name of the codec, {@code null} or blank for {@link #IDENTITY}
+     * @return the codec
+     * @throws IllegalArgumentException if no codec has this name
+     */
+    public static StorageCodec forName(String name) {
+        if (name == null || name.isBlank()) {
+            return IDENTITY;
+        }
+        StorageCodec codec = CODECS.get(name.trim());
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown storage codec " + name);
+        }
+        return codec;
+    }
+
+    /**
+     * Returns the codec a file was written with, from the extension of its name.
+     *
+     * @param fileName the name of the stored file
+     * @return the codec of the file, {@link #IDENTITY} if its name has no codec extension
+     */
+    public static StorageCodec forFileName(String fileName) {
+        for (StorageCodec codec : CODECS.values()) {
+            if (!codec.getExtension().isEmpty() && fileName.endsWith(codec.getExtension())) {
+                return codec;
+            }
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * Returns all the registered codecs, {@link #IDENTITY} first.
+     *
+     * @return the registered codecs
+     */
+    public static List<StorageCodec> all() {
+        List<StorageCodec> codecs = new ArrayList<>();
+        codecs.add(IDENTITY);
+        for (StorageCodec codec : CODECS.values()) {
+            if (codec != IDENTITY) codecs.add(codec);
+        }
+        return codecs;
+    }
+
+    /**
+     * Returns the codec used for new files.
+     *
+     * @return the codec configured by {@code storage.codec}, {@link #IDENTITY} by default
+     */
+    public static StorageCodec configured() {
+        return forName(AppConfig.getInstance().getProperty("storage.codec"));
+    }
+}
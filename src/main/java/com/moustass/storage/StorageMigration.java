@@ -0,0 +1,249 @@
+package com.moustass.storage;
+
+import com.moustass.config.AppConfig;
+import com.moustass.model.SignatureLog;
+import com.moustass.repository.SignatureLogRepository;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.MerkleHasher;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Online migration of stored files to the sharded blob layout.
+ * <p>
+ * Two kinds of files are migrated, in throttled batches so that the
+ * application stays usable while the migration runs:
+ * </p>
+ * <ul>
+ *     <li>blobs written directly in the blobs directory before sharding,
+ *     which are moved to their {@code ab/cd/<hash>} path;</li>
+ *     <li>files stored under their name in {@code upload.dir}, which are
+ *     re-hashed, added to the blob store and linked to their signature, and
+ *     only then deleted. A file whose content no longer matches its
+ *     signature is left in place.</li>
+ * </ul>
+ * <p>
+ * Every move is atomic and readers fall back to the previous location
+ * (see {@link ShardedPathResolver#locate(String)}), so files remain
+ * readable during the migration. The migration can be stopped with
+ * {@link #cancel()} and resumed later. An I/O or database error stops it
+ * too: the error is kept (see {@link #getFailure()}) and handed to the
+ * caller, and the next start resumes from where it stopped.
+ * </p>
+ */
+public class StorageMigration implements Runnable {
+    private static final String UPLOAD_DIR = "upload.dir";
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_PAUSE_MILLIS = 500;
+    private static final Pattern HEX_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final BlobStore blobStore;
+    private final SignatureLogRepository signatureLogRepository;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final AtomicInteger migrated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Exception failure;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Creates a migration configured by {@code storage.migration.batch.size}
+     * and {@code storage.migration.pause.ms}.
+     */
+    public StorageMigration() {
+        this(new BlobStore(), new SignatureLogRepository(),
+                AppConfig.getInstance().getIntProperty("storage.migration.batch.size", DEFAULT_BATCH_SIZE),
+                AppConfig.getInstance().getIntProperty("storage.migration.pause.ms", DEFAULT_PAUSE_MILLIS));
+    }
+
+    /**
+     * Creates a migration.
+     *
+     * @param blobStore the blob store receiving the files
+     * @param signatureLogRepository the repository of the signatures to link
+     * @param batchSize the number of files moved between two pauses
+     * @param pauseMillis the pause between two batches, in milliseconds
+     */
+    public StorageMigration(BlobStore blobStore, SignatureLogRepository signatureLogRepository,
+                            int batchSize, long pauseMillis) {
+        this.blobStore = blobStore;
+        this.signatureLogRepository = signatureLogRepository;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+    }
+
+    /**
+     * Starts the migration on a background thread.
+     *
+     * @param onFailure called on that thread with the error that stopped the
+     *                  migration, unless it was cancelled
+     * @return the running migration
+     */
+    public static StorageMigration startInBackground(Consumer<Exception> onFailure) {
+        StorageMigration migration = new StorageMigration();
+        Thread thread = new Thread(() -> {
+            migration.run();
+            if (migration.failure != null && !migration.cancelled) {
+                onFailure.accept(migration.failure);
+            }
+        }, "storage-migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return migration;
+    }
+
+    @Override
+    public void run() {
+        try {
+            reshardFlatBlobs();
+            migrateLegacyFiles();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Stops the migration after the current file.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Waits for the migration to end.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return {@code true} if the migration ended before the timeout
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Returns the error that stopped the migration.
+     *
+     * @return the error, or {@code null} if the migration did not fail
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public int getMigrated() {
+        return migrated.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    private void reshardFlatBlobs() throws IOException, InterruptedException {
+        Path root = blobStore.resolver().getRoot();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        // directory entries are listed batch by batch, each batch is moved before the next is read
+        List<String> batch = new ArrayList<>(batchSize);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root,
+                p -> Files.isRegularFile(p) && HEX_HASH.matcher(p.getFileName().toString()).matches())) {
+            for (Path entry : entries) {
+                if (cancelled) return;
+                batch.add(entry.getFileName().toString());
+                if (batch.size() == batchSize) {
+                    reshard(batch);
+                    batch.clear();
+                    pause();
+                }
+            }
+        }
+        reshard(batch);
+    }
+
+    private void reshard(List<String> hashes) throws IOException {
+        for (String hash : hashes) {
+            if (cancelled) return;
+            if (blobStore.reshard(hash)) {
+                migrated.incrementAndGet();
+            }
+        }
+    }
+
+    private void migrateLegacyFiles() throws IOException, InterruptedException {
+        int lastId = 0;
+        List<SignatureLog> page;
+        while (!cancelled && !(page = signatureLogRepository.findLegacyPageAfterId(lastId, batchSize)).isEmpty()) {
+            for (SignatureLog signature : page) {
+                if (cancelled) return;
+                migrate(signature);
+            }
+            lastId = page.get(page.size() - 1).getId();
+            pause();
+        }
+    }
+
+    private void migrate(SignatureLog signature) throws IOException {
+        Path legacy = Paths.get(AppConfig.getInstance().getProperty(UPLOAD_DIR) + signature.getFileName());
+
+        // blobs are keyed by file_hash: the SHA-256 digest, or the Merkle root in Merkle mode
+        String hash = CryptoUtils.toHex(CryptoUtils.fromB64(signature.getFileHash()));
+        boolean adopted = Files.isRegularFile(legacy) && matches(legacy, signature);
+        if (adopted) {
+            blobStore.adopt(legacy, hash);
+        } else if (!blobStore.link(hash)) {
+            // missing, or overwritten by another file with the same name
+            skipped.incrementAndGet();
+            return;
+        }
+        try {
+            signatureLogRepository.updateBlobHash(signature.getId(), hash);
+        } catch (RuntimeException e) {
+            // the signature still reads the file under its name
+            try {
+                blobStore.release(hash);
+            } catch (IOException | RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        if (adopted) {
+            Files.deleteIfExists(legacy);
+        }
+        migrated.incrementAndGet();
+    }
+
+    private static boolean matches(Path file, SignatureLog signature) throws IOException {
+        if (signature.getMerkleBlockSize() != null) {
+            byte[] root = MerkleHasher.root(file, signature.getMerkleBlockSize());
+            return CryptoUtils.b64(root).equals(signature.getMerkleRoot());
+        }
+        return CryptoUtils.b64(CryptoUtils.sha256(file)).equals(signature.getFileHash());
+    }
+
+    private void pause() throws InterruptedException {
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+}
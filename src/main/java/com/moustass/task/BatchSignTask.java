@@ -0,0 +1,74 @@
+package com.moustass.task;
+
+import com.moustass.service.BatchSigningService;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background task signing several files, directories being walked recursively.
+ * <p>
+ * The result of the task is the number of files signed. Cancelling the
+ * task skips the files not yet read; those already in the pipeline are
+ * still recorded.
+ * </p>
+ */
+public class BatchSignTask extends Task<Integer> {
+    private final BatchSigningService batchSigningService;
+    private final List<Path> paths;
+    private final BatchSigningService.Handle handle = new BatchSigningService.Handle();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Creates the task.
+     *
+     * @param batchSigningService the service signing the files
+     * @param paths               the files and directories to sign
+     */
+    public BatchSignTask(BatchSigningService batchSigningService, List<Path> paths) {
+        this.batchSigningService = batchSigningService;
+        this.paths = List.copyOf(paths);
+        updateTitle("Signature de " + paths.size() + " élément(s)");
+        updateMessage("En attente");
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        List<Path> files = BatchSigningService.collectFiles(paths);
+        updateTitle("Signature de " + files.size() + " fichier(s)");
+        updateProgress(0, files.size());
+        return batchSigningService.sign(files, handle, new BatchSigningService.Listener() {
+            @Override
+            public void onFile(Path file, boolean signed, String message, int done, int total) {
+                if (!signed) {
+                    failed.incrementAndGet();
+                }
+                updateProgress(done, total);
+                updateMessage(done + " / " + total + " fichiers, " + failed.get() + " en erreur");
+            }
+
+            @Override
+            public void onFinished(int signed, int failed, boolean cancelled) {
+                // the number of files signed is returned by the task
+            }
+        });
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        // pending files are skipped, files in the pipeline are still recorded
+        handle.cancel();
+        return super.cancel(false);
+    }
+
+    /**
+     * Returns the number of files that could not be signed.
+     *
+     * @return the number of failures so far
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+}
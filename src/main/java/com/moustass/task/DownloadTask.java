@@ -0,0 +1,60 @@
+package com.moustass.task;
+
+import com.moustass.model.DownloadResult;
+import com.moustass.service.DownloadService;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+
+/**
+ * Background task downloading a signed file.
+ * <p>
+ * The progress of the copy is reported through the progress and the
+ * message of the task. Cancelling the task cancels the download, which
+ * deletes the partial copy.
+ * </p>
+ */
+public class DownloadTask extends Task<DownloadResult> {
+    private final DownloadService downloadService;
+    private final int idSignature;
+    private final Path destination;
+    private final boolean verify;
+    private final DownloadService.Handle handle = new DownloadService.Handle();
+
+    /**
+     * Creates the task.
+     *
+     * @param downloadService the service copying the file
+     * @param idSignature     the identifier of the signature
+     * @param destination     the path of the copy, replaced if it exists
+     * @param verify          {@code true} to check the signature during the copy
+     */
+    public DownloadTask(DownloadService downloadService, int idSignature, Path destination, boolean verify) {
+        this.downloadService = downloadService;
+        this.idSignature = idSignature;
+        this.destination = destination;
+        this.verify = verify;
+        updateTitle("Téléchargement de " + destination.getFileName());
+        updateMessage("En attente");
+    }
+
+    @Override
+    protected DownloadResult call() {
+        return downloadService.download(idSignature, destination, verify, handle, (done, total, bytesPerSecond) -> {
+            updateProgress(done, total);
+            updateMessage(toMegabytes(done) + " / " + toMegabytes(total) + " Mo ("
+                    + toMegabytes((long) bytesPerSecond) + " Mo/s)");
+        });
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        // stops the copy between two chunks rather than interrupting a channel
+        handle.cancel();
+        return super.cancel(false);
+    }
+
+    private static String toMegabytes(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,43 @@
+package com.moustass.task;
+
+import com.moustass.service.SignatureLogService;
+import javafx.concurrent.Task;
+
+import java.io.File;
+
+/**
+ * Background task signing and storing a file for the connected user.
+ * <p>
+ * Cancelling the task interrupts the read of the file; the partial copy
+ * is deleted by the ingest pipeline.
+ * </p>
+ */
+public class SignFileTask extends Task<Void> {
+    private final SignatureLogService signatureLogService;
+    private final File file;
+
+    /**
+     * Creates the task.
+     *
+     * @param signatureLogService the service signing the file
+     * @param file                the file to sign
+     */
+    public SignFileTask(SignatureLogService signatureLogService, File file) {
+        this.signatureLogService = signatureLogService;
+        this.file = file;
+        updateTitle("Signature de " + file.getName());
+        updateMessage("En attente");
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        updateMessage("Signature en cours");
+        signatureLogService.saveFile(file);
+        updateMessage("Fichier signé");
+        return null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
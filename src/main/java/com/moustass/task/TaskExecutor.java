@@ -0,0 +1,96 @@
+package com.moustass.task;
+
+import com.moustass.config.AppConfig;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of the background tasks started from the user interface.
+ * <p>
+ * Signing, verifying and downloading hash and copy whole files: they run
+ * as {@link Task}s on a dedicated pool of {@code tasks.workers} threads
+ * (two by default), so the JavaFX application thread only renders their
+ * progress. Tasks submitted while every worker is busy are queued and
+ * started in submission order.
+ * </p>
+ * <p>
+ * Submitted tasks are listed in {@link #getTasks()} until they end. The
+ * list must only be used from the JavaFX application thread.
+ * </p>
+ */
+public class TaskExecutor {
+    private static final int DEFAULT_WORKERS = 2;
+    private static TaskExecutor instance;
+
+    private final ExecutorService workers;
+    private final ObservableList<Task<?>> tasks = FXCollections.observableArrayList();
+
+    /**
+     * Creates an executor.
+     *
+     * @param threads the number of tasks running at the same time
+     */
+    public TaskExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "task-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Returns the shared executor.
+     *
+     * @return the executor configured by {@code tasks.workers}
+     */
+    public static synchronized TaskExecutor getInstance() {
+        if (instance == null) {
+            instance = new TaskExecutor(AppConfig.getInstance().getIntProperty("tasks.workers", DEFAULT_WORKERS));
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a task. Must be called from the JavaFX application thread.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result of the task
+     * @return the task, to chain its event handlers
+     */
+    public <T> Task<T> submit(Task<T> task) {
+        tasks.add(task);
+        task.stateProperty().addListener((obs, previous, state) -> {
+            if (state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED) {
+                tasks.remove(task);
+            }
+        });
+        workers.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancels every queued or running task. Must be called from the JavaFX application thread.
+     */
+    public void cancelAll() {
+        // copied: cancelling removes the task from the list
+        for (Task<?> task : tasks.toArray(new Task<?>[0])) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Returns the tasks queued or running.
+     *
+     * @return the live list of the tasks, to be observed from the JavaFX application thread
+     */
+    public ObservableList<Task<?>> getTasks() {
+        return tasks;
+    }
+}
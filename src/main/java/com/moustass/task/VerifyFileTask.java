@@ -0,0 +1,43 @@
+package com.moustass.task;
+
+import com.moustass.service.SignatureLogService;
+import javafx.concurrent.Task;
+
+/**
+ * Background task verifying the signature of a stored file.
+ * <p>
+ * The result of the task tells whether the file matches its signature.
+ * </p>
+ */
+public class VerifyFileTask extends Task<Boolean> {
+    private final SignatureLogService signatureLogService;
+    private final int idSignature;
+    private final boolean forceFullVerify;
+
+    /**
+     * Creates the task.
+     *
+     * @param signatureLogService the service verifying the file
+     * @param idSignature         the identifier of the signature
+     * @param fileName            the name of the file, displayed in the title
+     * @param forceFullVerify     {@code true} to re-hash the file even if its last outcome is cached
+     */
+    public VerifyFileTask(SignatureLogService signatureLogService, int idSignature, String fileName,
+                          boolean forceFullVerify) {
+        this.signatureLogService = signatureLogService;
+        this.idSignature = idSignature;
+        this.forceFullVerify = forceFullVerify;
+        updateTitle("Vérification de " + fileName);
+        updateMessage("En attente");
+    }
+
+    @Override
+    protected Boolean call() throws Exception {
+        updateMessage("Vérification en cours");
+        return signatureLogService.isFileOk(idSignature, forceFullVerify);
+    }
+
+    public int getIdSignature() {
+        return idSignature;
+    }
+}
@@ -1,17 +1,28 @@
 package com.moustass.utils;
 
 import com.moustass.exception.SignatureRSAException;
+import com.moustass.model.SignatureAlgorithm;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.*;
+import java.security.spec.ECGenParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Cryptographic utility class.
@@ -30,6 +41,261 @@ public final class CryptoUtils {
     private static final String SHA_256_ALG = "SHA-256";
     private static final String SHA_256_WITH_RSA_ALG = "SHA256withRSA";
     private static final String RSA_ALG = "RSA";
+    private static final int STREAM_WINDOW_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Provider lookups are expensive: every thread keeps its own reusable engines.
+    // These instances are not thread-safe and must never leave the calling thread.
+    // Signature engines are only cached for verification: an engine keeps the last
+    // key it was initialized with, and a private key must not outlive the signing call.
+    private static final ThreadLocal<MessageDigest> SHA_256 =
+            ThreadLocal.withInitial(() -> newEngine(() -> MessageDigest.getInstance(SHA_256_ALG)));
+    private static final ThreadLocal<Signature> SHA_256_WITH_RSA =
+            ThreadLocal.withInitial(() -> newEngine(() -> Signature.getInstance(SHA_256_WITH_RSA_ALG)));
+    private static final ThreadLocal<Map<String, KeyFactory>> KEY_FACTORIES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<SignatureAlgorithm, Signature>> DIGEST_VERIFIERS =
+            ThreadLocal.withInitial(() -> new EnumMap<>(SignatureAlgorithm.class));
+
+    // DER prefix of the DigestInfo structure wrapping a SHA-256 digest (RFC 8017, section 9.2)
+    private static final byte[] SHA_256_DIGEST_INFO_PREFIX = {
+            0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01,
+            0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00, 0x04, 0x20
+    };
+
+    // SecureRandom is thread-safe and seeds itself on first use
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @FunctionalInterface
+    private interface EngineFactory<T> {
+        T create() throws NoSuchAlgorithmException;
+    }
+
+    private static <T> T newEngine(EngineFactory<T> factory) {
+        try {
+            return factory.create();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new SignatureRSAException("Error RSA :" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the SHA-256 digest of the current thread, reset and ready to use.
+     * <p>
+     * The instance is shared by every caller on the thread: it must be
+     * used to completion before any other {@code CryptoUtils} call.
+     * </p>
+     *
+     * @return a reusable {@link MessageDigest}
+     */
+    public static MessageDigest sha256Digest() {
+        MessageDigest md = SHA_256.get();
+        md.reset();
+        return md;
+    }
+
+    /**
+     * Returns the SHA256withRSA engine of the current thread.
+     * It must be initialized with {@code initVerify} before use, never with a private key.
+     *
+     * @return a reusable {@link Signature}
+     */
+    static Signature sha256WithRsa() {
+        return SHA_256_WITH_RSA.get();
+    }
+
+    private static KeyFactory keyFactory(String keyAlgorithm) {
+        return KEY_FACTORIES.get().computeIfAbsent(keyAlgorithm,
+                alg -> newEngine(() -> KeyFactory.getInstance(alg)));
+    }
+
+    /**
+     * Creates an engine signing a precomputed SHA-256 digest with the given algorithm.
+     * <p>
+     * {@code NONEwithRSA} over the DigestInfo of the digest and {@code NONEwithECDSA}
+     * over the digest produce the same signatures as {@code SHA256withRSA} and
+     * {@code SHA256withECDSA} over the content, so existing signatures keep verifying.
+     * Ed25519 has no such equivalence and signs the 32-byte digest itself.
+     * </p>
+     */
+    private static Signature newDigestSigner(SignatureAlgorithm algorithm) {
+        return newEngine(() -> {
+            switch (algorithm) {
+                case RSA_SHA256:
+                    return Signature.getInstance("NONEwithRSA");
+                case ECDSA_P256:
+                    return Signature.getInstance("NONEwithECDSA");
+                default:
+                    return Signature.getInstance(algorithm.getJcaName());
+            }
+        });
+    }
+
+    /**
+     * Returns the engine of the current thread verifying a digest signed by {@link #newDigestSigner}.
+     */
+    private static Signature digestVerifier(SignatureAlgorithm algorithm) {
+        return DIGEST_VERIFIERS.get().computeIfAbsent(algorithm, CryptoUtils::newDigestSigner);
+    }
+
+    private static byte[] digestMessage(byte[] digest, SignatureAlgorithm algorithm) {
+        if (algorithm != SignatureAlgorithm.RSA_SHA256) {
+            return digest;
+        }
+        byte[] message = Arrays.copyOf(SHA_256_DIGEST_INFO_PREFIX, SHA_256_DIGEST_INFO_PREFIX.length + digest.length);
+        System.arraycopy(digest, 0, message, SHA_256_DIGEST_INFO_PREFIX.length, digest.length);
+        return message;
+    }
+
+    /**
+     * Signs a precomputed SHA-256 digest.
+     *
+     * @param digest the SHA-256 digest of the signed content
+     * @param privateKey the private key used for signing
+     * @param algorithm the signature algorithm matching the key
+     * @return the generated digital signature
+     * @throws SignatureRSAException if the key is invalid or the signing operation fails
+     */
+    public static byte[] signDigest(byte[] digest, PrivateKey privateKey, SignatureAlgorithm algorithm) {
+        try {
+            Signature sig = newDigestSigner(algorithm);
+            sig.initSign(privateKey);
+            sig.update(digestMessage(digest, algorithm));
+            return sig.sign();
+        } catch (InvalidKeyException | SignatureException ex) {
+            throw new SignatureRSAException("Error signature :" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Verifies the signature of a precomputed SHA-256 digest.
+     *
+     * @param digest the SHA-256 digest of the signed content
+     * @param signature the digital signature to verify
+     * @param publicKey the public key used for verification
+     * @param algorithm the signature algorithm stored with the signature
+     * @return {@code true} if the signature is valid, {@code false} otherwise
+     * @throws SignatureRSAException if the key is invalid
+     */
+    public static boolean verifyDigest(byte[] digest, byte[] signature, PublicKey publicKey, SignatureAlgorithm algorithm) {
+        try {
+            Signature sig = digestVerifier(algorithm);
+            sig.initVerify(publicKey);
+            sig.update(digestMessage(digest, algorithm));
+            return sig.verify(signature);
+        } catch (InvalidKeyException ex) {
+            throw new SignatureRSAException("Error signature :" + ex.getMessage());
+        } catch (SignatureException ex) {
+            // malformed signature bytes
+            return false;
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of a file, streaming it in fixed-size windows.
+     *
+     * @param file the file to hash
+     * @return the SHA-256 hash as a byte array
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public static byte[] sha256(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return sha256(channel);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of the content of a channel.
+     *
+     * @param channel the channel to read until its end
+     * @return the SHA-256 hash as a byte array
+     * @throws IOException if an I/O error occurs while reading the channel
+     */
+    public static byte[] sha256(ReadableByteChannel channel) throws IOException {
+        MessageDigest md = sha256Digest();
+        ByteBuffer window = ByteBuffer.allocate(STREAM_WINDOW_SIZE);
+        while (channel.read(window) != -1) {
+            window.flip();
+            md.update(window);
+            window.clear();
+        }
+        return md.digest();
+    }
+
+    /**
+     * Generates a key pair for the given signature algorithm.
+     *
+     * @param algorithm the signature algorithm
+     * @return the generated {@link KeyPair}
+     */
+    public static KeyPair newKeyPair(SignatureAlgorithm algorithm) {
+        try {
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance(algorithm.getKeyAlgorithm());
+            switch (algorithm) {
+                case RSA_SHA256:
+                    kpg.initialize(2048);
+                    break;
+                case ECDSA_P256:
+                    kpg.initialize(new ECGenParameterSpec("secp256r1"));
+                    break;
+                default:
+                    break;
+            }
+            return kpg.generateKeyPair();
+        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException ex) {
+            throw new SignatureRSAException("Error key generation :" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Reconstructs a public key of the given algorithm from a Base64-encoded string.
+     *
+     * @param publicKeyStr the Base64-encoded public key
+     * @param algorithm the signature algorithm of the key
+     * @return the reconstructed {@link PublicKey}
+     * @throws SignatureRSAException if the key specification is invalid
+     */
+    public static PublicKey publicKeyFromBase64(String publicKeyStr, SignatureAlgorithm algorithm) {
+        try {
+            X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(publicKeyStr));
+            return keyFactory(algorithm.getKeyAlgorithm()).generatePublic(spec);
+        } catch (InvalidKeySpecException e) {
+            throw new SignatureRSAException("Invalid public key format :" + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstructs a private key of the given algorithm from a Base64-encoded string.
+     *
+     * @param privateKeyStr the Base64-encoded private key
+     * @param algorithm the signature algorithm of the key
+     * @return the reconstructed {@link PrivateKey}
+     * @throws SignatureRSAException if the key specification is invalid
+     */
+    public static PrivateKey privateKeyFromBase64(String privateKeyStr, SignatureAlgorithm algorithm) {
+        try {
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyStr));
+            return keyFactory(algorithm.getKeyAlgorithm()).generatePrivate(spec);
+        } catch (InvalidKeySpecException e) {
+            throw new SignatureRSAException("Invalid private key format :" + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes a byte array as a lowercase hexadecimal string.
+     *
+     * @param bytes the bytes to encode
+     * @return the hexadecimal representation
+     */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[i * 2] = HEX_DIGITS[v >>> 4];
+            out[i * 2 + 1] = HEX_DIGITS[v & 0x0f];
+        }
+        return new String(out);
+    }
 
     /**
      * Computes the SHA-256 hash of a file.
@@ -37,11 +303,10 @@ public final class CryptoUtils {
      * @param file the file to hash
      * @return the SHA-256 hash as a byte array
      * @throws IOException if an I/O error occurs while reading the file
-     * @throws NoSuchAlgorithmException if the SHA-256 algorithm is unavailable
      */
-    public static byte[] sha256(File file) throws IOException, NoSuchAlgorithmException {
+    public static byte[] sha256(File file) throws IOException {
         try {
-            MessageDigest md = MessageDigest.getInstance(SHA_256_ALG);
+            MessageDigest md = sha256Digest();
             try (InputStream in = Files.newInputStream(file.toPath())) {
                 byte[] buffer = new byte[8192];
                 int read;
@@ -50,7 +315,7 @@ public final class CryptoUtils {
                 }
             }
             return md.digest();
-        }catch (IOException | NoSuchAlgorithmException ex){
+        }catch (IOException ex){
             throw new SignatureRSAException("Error RSA :" + ex.getMessage());
         }
     }
@@ -61,18 +326,17 @@ public final class CryptoUtils {
      * @param data the data to sign
      * @param privateKey the private key used for signing
      * @return the generated digital signature
-     * @throws NoSuchAlgorithmException if the algorithm is unavailable
      * @throws InvalidKeyException if the private key is invalid
      * @throws SignatureException if the signing operation fails
      */
     public static byte[] signSha256WithRsa(byte[] data, PrivateKey privateKey)
-            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+            throws InvalidKeyException, SignatureException {
         try {
-            Signature sig = Signature.getInstance(SHA_256_WITH_RSA_ALG);
+            Signature sig = newEngine(() -> Signature.getInstance(SHA_256_WITH_RSA_ALG));
             sig.initSign(privateKey);
             sig.update(data);
             return sig.sign();
-        }catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException ex){
+        }catch (InvalidKeyException | SignatureException ex){
             throw new SignatureRSAException("Error RSA :" + ex.getMessage());
         }
     }
@@ -84,18 +348,70 @@ public final class CryptoUtils {
      * @param signature the digital signature to verify
      * @param publicKey the public key used for verification
      * @return {@code true} if the signature is valid, {@code false} otherwise
-     * @throws NoSuchAlgorithmException if the algorithm is unavailable
      * @throws InvalidKeyException if the public key is invalid
      * @throws SignatureException if the verification fails
      */
     public static boolean verifySha256WithRsa(byte[] data, byte[] signature, PublicKey publicKey)
-            throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+            throws InvalidKeyException, SignatureException {
         try {
-            Signature sig = Signature.getInstance(SHA_256_WITH_RSA_ALG);
+            Signature sig = sha256WithRsa();
             sig.initVerify(publicKey);
             sig.update(data);
             return sig.verify(signature);
-        }catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException ex){
+        }catch (InvalidKeyException | SignatureException ex){
+            throw new SignatureRSAException("Error RSA :" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Verifies a SHA-256 with RSA digital signature of a file.
+     * <p>
+     * The file is streamed through a fixed-size window, so memory usage
+     * does not depend on the size of the file.
+     * </p>
+     *
+     * @param file the signed file
+     * @param signature the digital signature to verify
+     * @param publicKey the public key used for verification
+     * @return {@code true} if the signature is valid, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the file
+     * @throws InvalidKeyException if the public key is invalid
+     * @throws SignatureException if the verification fails
+     */
+    public static boolean verifySha256WithRsa(Path file, byte[] signature, PublicKey publicKey)
+            throws IOException, InvalidKeyException, SignatureException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return verifySha256WithRsa(channel, signature, publicKey);
+        }
+    }
+
+    /**
+     * Verifies a SHA-256 with RSA digital signature of the content of a channel.
+     * <p>
+     * The channel is read until its end in windows of {@value #STREAM_WINDOW_SIZE} bytes.
+     * </p>
+     *
+     * @param channel the channel providing the signed data
+     * @param signature the digital signature to verify
+     * @param publicKey the public key used for verification
+     * @return {@code true} if the signature is valid, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the channel
+     * @throws InvalidKeyException if the public key is invalid
+     * @throws SignatureException if the verification fails
+     */
+    public static boolean verifySha256WithRsa(ReadableByteChannel channel, byte[] signature, PublicKey publicKey)
+            throws IOException, InvalidKeyException, SignatureException {
+        try {
+            Signature sig = sha256WithRsa();
+            sig.initVerify(publicKey);
+            ByteBuffer window = ByteBuffer.allocate(STREAM_WINDOW_SIZE);
+            while (channel.read(window) != -1) {
+                window.flip();
+                sig.update(window);
+                window.clear();
+            }
+            return sig.verify(signature);
+        }catch (InvalidKeyException | SignatureException ex){
             throw new SignatureRSAException("Error RSA :" + ex.getMessage());
         }
     }
@@ -126,18 +442,17 @@ public final class CryptoUtils {
      * @param privateKeyStr the Base64-encoded private key
      * @return the reconstructed {@link PrivateKey}
      * @throws InvalidKeySpecException if the key specification is invalid
-     * @throws NoSuchAlgorithmException if the algorithm is unavailable
      */
     public static PrivateKey privateKeyFromBase64(String privateKeyStr)
-            throws InvalidKeySpecException, NoSuchAlgorithmException{
+            throws InvalidKeySpecException{
         try {
             byte[] keyBytes = Base64.getDecoder().decode(privateKeyStr);
 
             PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(RSA_ALG);
+            KeyFactory keyFactory = keyFactory(RSA_ALG);
 
             return keyFactory.generatePrivate(spec);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new SignatureRSAException("Invalid private key format :" + e.getMessage());
         }
     }
@@ -148,18 +463,17 @@ public final class CryptoUtils {
      * @param publicKeyStr the Base64-encoded public key
      * @return the reconstructed {@link PublicKey}
      * @throws InvalidKeySpecException if the key specification is invalid
-     * @throws NoSuchAlgorithmException if the algorithm is unavailable
      */
     public static PublicKey publicKeyFromBase64(String publicKeyStr)
-            throws InvalidKeySpecException, NoSuchAlgorithmException {
+            throws InvalidKeySpecException {
         try {
             byte[] keyBytes = Base64.getDecoder().decode(publicKeyStr);
 
             X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(RSA_ALG);
+            KeyFactory keyFactory = keyFactory(RSA_ALG);
 
             return keyFactory.generatePublic(spec);
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new SignatureRSAException("Invalid public key format :" + e.getMessage());
         }
     }
@@ -169,18 +483,11 @@ public final class CryptoUtils {
      *
      * @param input the input string
      * @return the SHA-256 hash in hexadecimal format
-     * @throws NoSuchAlgorithmException if the SHA-256 algorithm is unavailable
      */
-    public static String sha256Hex(String input) throws NoSuchAlgorithmException {
-        try {
-            MessageDigest md = MessageDigest.getInstance(SHA_256_ALG);
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (NoSuchAlgorithmException ex){
-            throw new SignatureRSAException("Error RSA : " + ex.getMessage());
-        }
+    public static String sha256Hex(String input) {
+        MessageDigest md = sha256Digest();
+        byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest);
     }
 
     /**
@@ -213,7 +520,7 @@ public final class CryptoUtils {
      */
     public static String generateSalt(int length) {
         byte[] b = new byte[length];
-        new SecureRandom().nextBytes(b);
+        RANDOM.nextBytes(b);
         return Base64.getEncoder().encodeToString(b);
     }
 
@@ -223,7 +530,7 @@ public final class CryptoUtils {
      * @return the generated {@link KeyPair}
      * @throws NoSuchAlgorithmException if the RSA algorithm is unavailable
      */
-    public static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+    public static KeyPair generateKeyPair() {
         try {
             KeyPairGenerator kpg = KeyPairGenerator.getInstance(RSA_ALG);
             kpg.initialize(2048);
@@ -252,18 +559,11 @@ public final class CryptoUtils {
             String pk,
             String sk
     ) {
-        try {
-            MessageDigest md = MessageDigest.getInstance(SHA_256_ALG);
-            String input = salt + password + pk + sk;
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
+        MessageDigest md = sha256Digest();
+        String input = salt + password + pk + sk;
+        byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
 
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-
-        } catch (NoSuchAlgorithmException e) {
-            throw new SignatureRSAException("Error RSA: ");
-        }
+        return toHex(digest);
     }
 
 
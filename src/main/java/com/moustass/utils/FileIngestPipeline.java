@@ -0,0 +1,288 @@
+package com.moustass.utils;
+
+import com.moustass.exception.SignatureRSAException;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.storage.StorageCodec;
+import com.moustass.storage.StorageCodecs;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+
+/**
+ * Single-pass file ingest pipeline.
+ * <p>
+ * The source file is read once, chunk by chunk, and every chunk is fed
+ * to the SHA-256 digest and to the copy written in the storage directory.
+ * The digest is then signed with the algorithm of the signer (see
+ * {@link CryptoUtils#signDigest}). Heap usage is bounded by the size of
+ * the buffer, whatever the size of the file.
+ * </p>
+ * <p>
+ * The copy is first written to a temporary file next to the destination
+ * and then moved in place, so a failed ingest never leaves a truncated
+ * file under the final name.
+ * </p>
+ * <p>
+ * Very large files can be ingested in Merkle mode instead (see
+ * {@link MerkleHasher}): blocks are read, copied and hashed in parallel and
+ * the Merkle root is signed in place of the flat SHA-256 digest. The root
+ * then identifies the content: no flat digest is computed, as it would
+ * need a second, sequential read of the file.
+ * </p>
+ * <p>
+ * The copy can be encoded on the fly with a {@link StorageCodec}; the
+ * hash and the signature are always computed on the original bytes.
+ * </p>
+ */
+public final class FileIngestPipeline {
+    private FileIngestPipeline() {}
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Result of an ingest: the digest and the signature of the source file.
+     */
+    public static final class Result {
+        private final byte[] hash;
+        private final byte[] signature;
+        private final long size;
+        private final int merkleBlockSize;
+        private final StorageCodec codec;
+        private final long storedSize;
+
+        Result(byte[] hash, byte[] signature, long size, int merkleBlockSize, StorageCodec codec, long storedSize) {
+            this.hash = hash;
+            this.signature = signature;
+            this.size = size;
+            this.merkleBlockSize = merkleBlockSize;
+            this.codec = codec;
+            this.storedSize = storedSize;
+        }
+
+        /**
+         * Returns the hash identifying the content: the flat SHA-256 digest, or the Merkle root in Merkle mode.
+         *
+         * @return the signed hash
+         */
+        public byte[] getHash() {
+            return hash;
+        }
+
+        public byte[] getSignature() {
+            return signature;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the block size of the Merkle tree.
+         *
+         * @return the block size, or {@code 0} if the hash is a flat SHA-256 digest
+         */
+        public int getMerkleBlockSize() {
+            return merkleBlockSize;
+        }
+
+        /**
+         * Returns the codec the copy was written with.
+         *
+         * @return the codec of the copy
+         */
+        public StorageCodec getCodec() {
+            return codec;
+        }
+
+        /**
+         * Returns the size of the copy on disk, after encoding.
+         *
+         * @return the stored size in bytes, or {@code 0} if no copy was written
+         */
+        public long getStoredSize() {
+            return storedSize;
+        }
+    }
+
+    /**
+     * Hashes, signs and copies a file in a single read.
+     *
+     * @param source the file to ingest
+     * @param destination the path of the copy, or {@code null} to only hash and sign
+     * @param privateKey the private key used for signing, or {@code null} to only hash
+     * @return the SHA-256 hash and the signature of the source file
+     * @throws IOException if an I/O error occurs while reading or writing
+     * @throws SignatureRSAException if a cryptographic error occurs
+     */
+    public static Result ingest(Path source, Path destination, PrivateKey privateKey) throws IOException {
+        return ingest(source, destination, privateKey, SignatureAlgorithm.RSA_SHA256);
+    }
+
+    /**
+     * Hashes, signs and copies a file in a single read.
+     *
+     * @param source the file to ingest
+     * @param destination the path of the copy, or {@code null} to only hash and sign
+     * @param privateKey the private key used for signing, or {@code null} to only hash
+     * @param algorithm the signature algorithm matching the private key
+     * @return the SHA-256 hash and the signature of the source file
+     * @throws IOException if an I/O error occurs while reading or writing
+     * @throws SignatureRSAException if a cryptographic error occurs
+     */
+    public static Result ingest(Path source, Path destination, PrivateKey privateKey, SignatureAlgorithm algorithm)
+            throws IOException {
+        return ingest(source, destination, privateKey, algorithm, StorageCodecs.IDENTITY);
+    }
+
+    /**
+     * Hashes, signs and copies a file in a single read, encoding the copy.
+     *
+     * @param source the file to ingest
+     * @param destination the path of the copy, or {@code null} to only hash and sign
+     * @param privateKey the private key used for signing, or {@code null} to only hash
+     * @param algorithm the signature algorithm matching the private key
+     * @param codec the codec the copy is written with
+     * @return the SHA-256 hash and the signature of the source file
+     * @throws IOException if an I/O error occurs while reading or writing
+     * @throws SignatureRSAException if a cryptographic error occurs
+     */
+    public static Result ingest(Path source, Path destination, PrivateKey privateKey, SignatureAlgorithm algorithm,
+                                StorageCodec codec) throws IOException {
+        MessageDigest md = CryptoUtils.sha256Digest();
+
+        Path tmp = null;
+        if (destination != null) {
+            Path parent = destination.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            tmp = Files.createTempFile(parent, ".ingest-", ".part");
+        }
+
+        try {
+            Result result;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = tmp != null ? FileChannel.open(tmp, StandardOpenOption.WRITE) : null;
+                 // the identity codec writes the buffer to the channel, without stream wrapping;
+                 // an encoder is closed even on failure, as it may hold native memory
+                 OutputStream encoded = out != null && codec != StorageCodecs.IDENTITY
+                         ? codec.encode(keepOpen(Channels.newOutputStream(out)))
+                         : null) {
+                byte[] chunk = new byte[BUFFER_SIZE];
+                ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                long size = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    md.update(chunk, 0, read);
+                    buffer.flip();
+                    if (encoded != null) {
+                        encoded.write(chunk, 0, read);
+                    } else {
+                        while (out != null && buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                    }
+                    buffer.clear();
+                    size += read;
+                }
+                if (encoded != null) {
+                    // flushes the end of the encoding before the copy is forced to disk
+                    encoded.close();
+                }
+                if (out != null) {
+                    out.force(false);
+                }
+                byte[] hash = md.digest();
+                result = new Result(hash, sign(hash, privateKey, algorithm), size, 0,
+                        out != null ? codec : StorageCodecs.IDENTITY, out != null ? out.size() : 0);
+            }
+
+            if (tmp != null) {
+                Files.move(tmp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                tmp = null;
+            }
+            return result;
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * Hashes, signs and copies a file in Merkle mode.
+     * <p>
+     * Blocks are read with positional reads and hashed in parallel; each
+     * block is written to the copy at the same offset by the thread that
+     * read it. The returned hash is the Merkle root of the file.
+     * </p>
+     *
+     * @param source the file to ingest
+     * @param destination the path of the copy, or {@code null} to only hash and sign
+     * @param privateKey the private key used for signing, or {@code null} to only hash
+     * @param algorithm the signature algorithm matching the private key
+     * @param blockSize the size of the Merkle leaves in bytes
+     * @return the Merkle root and the signature of the source file
+     * @throws IOException if an I/O error occurs while reading or writing
+     * @throws SignatureRSAException if a cryptographic error occurs
+     */
+    public static Result ingestMerkle(Path source, Path destination, PrivateKey privateKey,
+                                      SignatureAlgorithm algorithm, int blockSize) throws IOException {
+        Path tmp = null;
+        if (destination != null) {
+            Path parent = destination.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            tmp = Files.createTempFile(parent, ".ingest-", ".part");
+        }
+
+        try {
+            Result result;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = tmp != null ? FileChannel.open(tmp, StandardOpenOption.WRITE) : null) {
+                byte[] root = MerkleHasher.root(in, out, blockSize);
+                if (out != null) {
+                    out.force(false);
+                }
+                // blocks are written at their offset: a Merkle copy is never encoded
+                result = new Result(root, sign(root, privateKey, algorithm), in.size(), blockSize,
+                        StorageCodecs.IDENTITY, out != null ? out.size() : 0);
+            }
+
+            if (tmp != null) {
+                Files.move(tmp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                tmp = null;
+            }
+            return result;
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static OutputStream keepOpen(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static byte[] sign(byte[] hash, PrivateKey privateKey, SignatureAlgorithm algorithm) {
+        return privateKey != null ? CryptoUtils.signDigest(hash, privateKey, algorithm) : null;
+    }
+}
@@ -0,0 +1,349 @@
+package com.moustass.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Chunked Merkle tree hashing for very large files.
+ * <p>
+ * The file is split into fixed-size blocks. Each block is hashed as a leaf
+ * ({@code SHA-256(0x00 || block)}) and leaves are combined two by two
+ * ({@code SHA-256(0x01 || left || right)}) up to a single root, following
+ * the tree shape of RFC 6962: a range of leaves is split at the largest
+ * power of two strictly smaller than its size.
+ * </p>
+ * <p>
+ * The same tree shape signs batches of files (see
+ * {@link #rootOfLeaves(List)}), whose leaves are file hashes tagged with
+ * their own prefix ({@code SHA-256(0x02 || hash)}): a batch root can never
+ * be the root of a file, so the signature of one cannot be passed off as
+ * the signature of the other.
+ * </p>
+ * <p>
+ * Blocks are read with positional reads and hashed in parallel on the
+ * common fork/join pool, so hashing scales with the number of cores
+ * instead of being bound to a single thread.
+ * </p>
+ */
+public final class MerkleHasher {
+    private MerkleHasher() {}
+
+    public static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+    private static final byte BATCH_LEAF_PREFIX = 0x02;
+
+    /**
+     * Computes the Merkle root of a file.
+     *
+     * @param file the file to hash
+     * @param blockSize the size of the leaves in bytes
+     * @return the 32-byte Merkle root
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public static byte[] root(Path file, int blockSize) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            return root(in, null, blockSize);
+        }
+    }
+
+    /**
+     * Computes the Merkle root of a channel, optionally copying every block to another channel.
+     * <p>
+     * Both channels are accessed with positional reads and writes only, which
+     * are safe to issue concurrently from several threads.
+     * </p>
+     *
+     * @param in the channel to hash
+     * @param out the channel receiving a copy of the content, or {@code null}
+     * @param blockSize the size of the leaves in bytes
+     * @return the 32-byte Merkle root
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] root(FileChannel in, FileChannel out, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        long size = in.size();
+        long leaves = (size + blockSize - 1) / blockSize;
+        if (leaves == 0) {
+            return CryptoUtils.sha256Digest().digest();
+        }
+        try {
+            return ForkJoinPool.commonPool().invoke(new SubtreeTask(in, out, size, blockSize, 0, leaves));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Computes the root of a list of leaf hashes already computed in order.
+     *
+     * @param leafHashes the leaf hashes
+     * @return the 32-byte Merkle root
+     */
+    public static byte[] rootOfLeaves(List<byte[]> leafHashes) {
+        if (leafHashes.isEmpty()) {
+            return CryptoUtils.sha256Digest().digest();
+        }
+        return subtreeOfLeaves(leafHashes, 0, leafHashes.size());
+    }
+
+    private static byte[] subtreeOfLeaves(List<byte[]> leafHashes, int from, int to) {
+        if (to - from == 1) {
+            return leafHashes.get(from);
+        }
+        int split = from + (int) largestPowerOfTwoBelow(to - from);
+        return nodeHash(subtreeOfLeaves(leafHashes, from, split), subtreeOfLeaves(leafHashes, split, to));
+    }
+
+    /**
+     * Computes the inclusion proof of every leaf of a tree.
+     * <p>
+     * The proof of a leaf lists the hashes of its siblings from the leaf
+     * up to the root (the audit path of RFC 6962). All the proofs are built
+     * in a single pass over the tree.
+     * </p>
+     *
+     * @param leafHashes the leaf hashes, at least one
+     * @return the proof of each leaf, in the order of the leaves
+     */
+    public static List<List<byte[]>> inclusionProofs(List<byte[]> leafHashes) {
+        List<List<byte[]>> proofs = new ArrayList<>(leafHashes.size());
+        for (int i = 0; i < leafHashes.size(); i++) {
+            proofs.add(new ArrayList<>());
+        }
+        if (!leafHashes.isEmpty()) {
+            proveSubtree(leafHashes, 0, leafHashes.size(), proofs);
+        }
+        return proofs;
+    }
+
+    private static byte[] proveSubtree(List<byte[]> leafHashes, int from, int to, List<List<byte[]>> proofs) {
+        if (to - from == 1) {
+            return leafHashes.get(from);
+        }
+        int split = from + (int) largestPowerOfTwoBelow(to - from);
+        byte[] left = proveSubtree(leafHashes, from, split, proofs);
+        byte[] right = proveSubtree(leafHashes, split, to, proofs);
+        // appended after the children: the proofs are ordered from the leaf up
+        for (int i = from; i < split; i++) {
+            proofs.get(i).add(right);
+        }
+        for (int i = split; i < to; i++) {
+            proofs.get(i).add(left);
+        }
+        return nodeHash(left, right);
+    }
+
+    /**
+     * Recomputes the root of a tree from a leaf and its inclusion proof.
+     * <p>
+     * Follows the verification algorithm of RFC 9162, section 2.1.3.2.
+     * The leaf belongs to the tree if the returned root equals the expected one.
+     * </p>
+     *
+     * @param leafHash the hash of the leaf
+     * @param index the position of the leaf
+     * @param size the number of leaves of the tree
+     * @param proof the hashes of the siblings, from the leaf up
+     * @return the root, or {@code null} if the proof does not fit the position and the size
+     */
+    public static byte[] rootFromProof(byte[] leafHash, long index, long size, List<byte[]> proof) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        long fn = index;
+        long sn = size - 1;
+        byte[] r = leafHash;
+        for (byte[] p : proof) {
+            if (sn == 0) {
+                return null;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                r = nodeHash(p, r);
+                // skips the levels where the node has no right sibling
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                r = nodeHash(r, p);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 ? r : null;
+    }
+
+    /**
+     * Hashes a leaf block.
+     *
+     * @param block the block content
+     * @param offset the offset of the content in the array
+     * @param length the length of the content
+     * @return the leaf hash
+     */
+    public static byte[] leafHash(byte[] block, int offset, int length) {
+        MessageDigest md = CryptoUtils.sha256Digest();
+        md.update(LEAF_PREFIX);
+        md.update(block, offset, length);
+        return md.digest();
+    }
+
+    /**
+     * Hashes the leaf of a file in a batch tree.
+     *
+     * @param fileHash the signed hash of the file
+     * @return the leaf hash, in the domain of batch trees
+     */
+    public static byte[] batchLeafHash(byte[] fileHash) {
+        MessageDigest md = CryptoUtils.sha256Digest();
+        md.update(BATCH_LEAF_PREFIX);
+        md.update(fileHash);
+        return md.digest();
+    }
+
+    /**
+     * Hashes an inner node from the hashes of its two children.
+     *
+     * @param left the hash of the left child
+     * @param right the hash of the right child
+     * @return the node hash
+     */
+    public static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest md = CryptoUtils.sha256Digest();
+        md.update(NODE_PREFIX);
+        md.update(left);
+        md.update(right);
+        return md.digest();
+    }
+
+    static long largestPowerOfTwoBelow(long n) {
+        return Long.highestOneBit(n - 1);
+    }
+
+    /**
+     * Incremental Merkle hasher, fed with the content in order.
+     * <p>
+     * Used when the content can only be read sequentially, for instance
+     * while it is being copied. It produces the same root as the parallel
+     * computation.
+     * </p>
+     */
+    public static final class Builder {
+        private final int blockSize;
+        private final byte[] block;
+        private final List<byte[]> leaves = new ArrayList<>();
+        private int filled;
+
+        public Builder(int blockSize) {
+            this.blockSize = blockSize;
+            this.block = new byte[blockSize];
+        }
+
+        /**
+         * Feeds the next bytes of the content.
+         *
+         * @param data the bytes
+         * @param offset the offset of the bytes in the array
+         * @param length the number of bytes
+         */
+        public void update(byte[] data, int offset, int length) {
+            while (length > 0) {
+                int n = Math.min(length, blockSize - filled);
+                System.arraycopy(data, offset, block, filled, n);
+                filled += n;
+                offset += n;
+                length -= n;
+                if (filled == blockSize) {
+                    leaves.add(leafHash(block, 0, filled));
+                    filled = 0;
+                }
+            }
+        }
+
+        /**
+         * Completes the tree.
+         *
+         * @return the 32-byte Merkle root
+         */
+        public byte[] root() {
+            if (filled > 0) {
+                leaves.add(leafHash(block, 0, filled));
+                filled = 0;
+            }
+            return rootOfLeaves(leaves);
+        }
+    }
+
+    private static final class SubtreeTask extends RecursiveTask<byte[]> {
+        private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+        private final FileChannel in;
+        private final FileChannel out;
+        private final long size;
+        private final int blockSize;
+        private final long from;
+        private final long to;
+
+        SubtreeTask(FileChannel in, FileChannel out, long size, int blockSize, long from, long to) {
+            this.in = in;
+            this.out = out;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (to - from == 1) {
+                return hashLeaf();
+            }
+            long split = from + largestPowerOfTwoBelow(to - from);
+            SubtreeTask left = new SubtreeTask(in, out, size, blockSize, from, split);
+            SubtreeTask right = new SubtreeTask(in, out, size, blockSize, split, to);
+            left.fork();
+            byte[] rightHash = right.compute();
+            return nodeHash(left.join(), rightHash);
+        }
+
+        private byte[] hashLeaf() {
+            byte[] chunk = BUFFERS.get();
+            if (chunk == null || chunk.length != blockSize) {
+                chunk = new byte[blockSize];
+                BUFFERS.set(chunk);
+            }
+            long position = from * blockSize;
+            int length = (int) Math.min(blockSize, size - position);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+                    }
+                }
+                if (out != null) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer, position + buffer.position());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return leafHash(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.moustass.view;
+
+import com.moustass.model.SignatureQuery;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Loads the signatures of a table page by page while the user scrolls.
+ * <p>
+ * Only a window of at most {@code maxRows} rows is kept in the table:
+ * when a page is appended at the bottom, the rows that overflow the window
+ * are dropped at the top, and loaded again if the user scrolls back up.
+ * Pages are fetched from the first or last row of the window (keyset
+ * pagination) on a background thread; the table keeps showing the same
+ * rows while the window moves.
+ * </p>
+ * <p>
+ * Must be used from the JavaFX application thread.
+ * </p>
+ */
+public class SignaturePager {
+    private final TableView<SignatureView> table;
+    private final PageLoader loader;
+    private final int pageSize;
+    private final int maxRows;
+    private final Consumer<Throwable> onError;
+    private final ObservableList<SignatureView> items = FXCollections.observableArrayList();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "signature-pager");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SignatureQuery query = SignatureQuery.newestFirst();
+    // incremented by reload(): pages of a previous query are ignored
+    private int generation;
+    private boolean loading;
+    private boolean atStart = true;
+    private boolean atEnd = true;
+
+    /**
+     * Fetches a page of signatures.
+     */
+    @FunctionalInterface
+    public interface PageLoader {
+        /**
+         * Fetches the rows after, or before, an anchor row.
+         *
+         * @param query   the filter and sort order
+         * @param anchor  the first or last row of the window, {@code null} for the first page
+         * @param forward {@code true} for the rows after the anchor
+         * @param limit   the maximum number of rows
+         * @return the rows, in the order of the query
+         */
+        List<SignatureView> load(SignatureQuery query, SignatureView anchor, boolean forward, int limit);
+    }
+
+    /**
+     * Creates a pager and binds it to a table.
+     *
+     * @param table    the table showing the signatures
+     * @param loader   the function fetching a page
+     * @param pageSize the number of rows per page
+     * @param maxRows  the maximum number of rows kept in the table
+     * @param onError  called on the JavaFX application thread when a page cannot be loaded
+     */
+    public SignaturePager(TableView<SignatureView> table, PageLoader loader, int pageSize, int maxRows,
+                          Consumer<Throwable> onError) {
+        this.table = table;
+        this.loader = loader;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxRows = Math.max(this.pageSize * 3, maxRows);
+        this.onError = onError;
+        table.setItems(items);
+        // a row coming into view near an edge of the window loads the next page
+        table.setRowFactory(t -> new TableRow<>() {
+            @Override
+            public void updateIndex(int index) {
+                super.updateIndex(index);
+                if (index >= 0) {
+                    onRowShown(index);
+                }
+            }
+        });
+    }
+
+    /**
+     * Clears the table and loads the first page of a query.
+     *
+     * @param query the filter and sort order
+     */
+    public void reload(SignatureQuery query) {
+        this.query = query;
+        generation++;
+        items.clear();
+        atStart = true;
+        atEnd = false;
+        loading = false;
+        load(null, true);
+    }
+
+    /**
+     * Loads the first page of the current query again.
+     */
+    public void refresh() {
+        reload(query);
+    }
+
+    /**
+     * Returns the current query.
+     *
+     * @return the filter and sort order of the table
+     */
+    public SignatureQuery getQuery() {
+        return query;
+    }
+
+    private void onRowShown(int index) {
+        if (loading || items.isEmpty()) {
+            return;
+        }
+        int margin = pageSize / 2;
+        if (!atEnd && index >= items.size() - margin) {
+            load(items.get(items.size() - 1), true);
+        } else if (!atStart && index < margin) {
+            load(items.get(0), false);
+        }
+    }
+
+    private void load(SignatureView anchor, boolean forward) {
+        loading = true;
+        int requested = generation;
+        SignatureQuery current = query;
+        Task<List<SignatureView>> task = new Task<>() {
+            @Override
+            protected List<SignatureView> call() {
+                return loader.load(current, anchor, forward, pageSize);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (requested == generation) {
+                loading = false;
+                apply(task.getValue(), forward);
+            }
+        });
+        task.setOnFailed(event -> {
+            if (requested == generation) {
+                loading = false;
+                onError.accept(task.getException());
+            }
+        });
+        executor.execute(task);
+    }
+
+    private void apply(List<SignatureView> page, boolean forward) {
+        boolean last = page.size() < pageSize;
+        int first = firstVisibleIndex();
+        if (forward) {
+            atEnd = last;
+            items.addAll(page);
+            int overflow = items.size() - maxRows;
+            if (overflow > 0) {
+                items.remove(0, overflow);
+                atStart = false;
+                table.scrollTo(Math.max(0, first - overflow));
+            }
+        } else {
+            atStart = last;
+            items.addAll(0, page);
+            if (items.size() > maxRows) {
+                items.remove(maxRows, items.size());
+                atEnd = false;
+            }
+            table.scrollTo(first + page.size());
+        }
+    }
+
+    private int firstVisibleIndex() {
+        if (table.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+            IndexedCell<?> cell = flow.getFirstVisibleCell();
+            if (cell != null) {
+                return cell.getIndex();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stops the background loading thread.
+     */
+    public void close() {
+        generation++;
+        executor.shutdownNow();
+    }
+}
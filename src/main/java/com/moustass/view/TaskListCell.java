@@ -0,0 +1,60 @@
+package com.moustass.view;
+
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * List cell displaying a background task.
+ * <p>
+ * The cell shows the title, the progress and the message of the task,
+ * with a button to cancel it. It is bound to the properties of the task,
+ * so it follows the task without polling.
+ * </p>
+ */
+public class TaskListCell extends ListCell<Task<?>> {
+    private final Label title = new Label();
+    private final Label message = new Label();
+    private final ProgressBar progress = new ProgressBar();
+    private final Button btnCancel = new Button("✕");
+    private final VBox box = new VBox(2);
+
+    public TaskListCell() {
+        progress.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(progress, Priority.ALWAYS);
+        HBox line = new HBox(4, progress, btnCancel);
+        line.setAlignment(Pos.CENTER_LEFT);
+        message.setStyle("-fx-font-size: 10;");
+        box.getChildren().addAll(title, line, message);
+
+        btnCancel.setOnAction(event -> {
+            Task<?> task = getItem();
+            if (task != null) {
+                task.cancel();
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(Task<?> task, boolean empty) {
+        super.updateItem(task, empty);
+        title.textProperty().unbind();
+        message.textProperty().unbind();
+        progress.progressProperty().unbind();
+
+        if (empty || task == null) {
+            setGraphic(null);
+        } else {
+            title.textProperty().bind(task.titleProperty());
+            message.textProperty().bind(task.messageProperty());
+            progress.progressProperty().bind(task.progressProperty());
+            setGraphic(box);
+        }
+    }
+}
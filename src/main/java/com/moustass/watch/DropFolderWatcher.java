@@ -0,0 +1,336 @@
+package com.moustass.watch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches drop folders and signs the files written into them.
+ * <p>
+ * Scanners and exports usually write a file in several steps, each one
+ * raising an event. Events are therefore debounced: a file is only signed
+ * once it has received no event and kept the same size and modification
+ * time for the debounce delay, and once it can be opened for writing (on
+ * Windows this fails while another process still writes the file).
+ * Hidden files and the usual temporary extensions are ignored.
+ * </p>
+ * <p>
+ * Files are signed on a pool of workers; at most twice as many files as
+ * workers are handed to the pool, the others wait in the folder. A signed
+ * file is moved to the {@code signed} subdirectory of its folder, a file
+ * that cannot be signed to the {@code failed} subdirectory, so no file is
+ * signed twice. Files already present when the watcher starts are signed
+ * too.
+ * </p>
+ */
+public class DropFolderWatcher implements Runnable, Closeable {
+    public static final String SIGNED_DIR = "signed";
+    public static final String FAILED_DIR = "failed";
+
+    private static final List<String> TEMPORARY_EXTENSIONS = List.of(".part", ".tmp", ".crdownload", ".partial");
+
+    private final List<Path> directories;
+    private final Signer signer;
+    private final Listener listener;
+    private final long debounceNanos;
+    private final WatchService watchService;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore inFlight;
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Signs a file dropped in a watched folder.
+     */
+    @FunctionalInterface
+    public interface Signer {
+        /**
+         * Signs and stores a file.
+         *
+         * @param file the file to sign
+         * @throws Exception if the file cannot be signed
+         */
+        void sign(Path file) throws Exception;
+    }
+
+    /**
+     * Receives the outcome of each dropped file.
+     * <p>
+     * Callbacks are invoked from worker threads.
+     * </p>
+     */
+    public interface Listener {
+        /**
+         * Called when a file has been signed.
+         *
+         * @param file  the file, as it was dropped
+         * @param moved the path the file was moved to
+         */
+        void onSigned(Path file, Path moved);
+
+        /**
+         * Called when a file could not be signed.
+         *
+         * @param file  the file, as it was dropped
+         * @param error the cause of the failure
+         */
+        void onFailed(Path file, Exception error);
+    }
+
+    /**
+     * A file seen in a folder, waiting to be stable.
+     */
+    private static final class Pending {
+        // updated by the watch thread and the debounce thread
+        private volatile long lastChange;
+        private volatile long size;
+        private volatile long modified;
+
+        Pending(long now, BasicFileAttributes attrs) {
+            this.lastChange = now;
+            this.size = attrs.size();
+            this.modified = attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * Creates a watcher. The folders are watched once {@link #run()} is called.
+     *
+     * @param directories    the folders to watch, created if missing
+     * @param signer         the function signing a file
+     * @param listener       the listener notified of each file
+     * @param workers        the number of files signed at the same time
+     * @param debounceMillis the time a file must stay unchanged before it is signed
+     * @throws IOException if a folder cannot be created or watched
+     */
+    public DropFolderWatcher(List<Path> directories, Signer signer, Listener listener,
+                             int workers, long debounceMillis) throws IOException {
+        this.directories = List.copyOf(directories);
+        this.signer = signer;
+        this.listener = listener;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMillis));
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path directory : this.directories) {
+            Files.createDirectories(directory);
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        }
+
+        int threads = Math.max(1, workers);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "drop-folder-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "drop-folder-debounce");
+            t.setDaemon(true);
+            return t;
+        });
+        this.inFlight = new Semaphore(threads * 2);
+    }
+
+    /**
+     * Watches the folders until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        long period = Math.max(TimeUnit.NANOSECONDS.toMillis(debounceNanos) / 2, 50);
+        scheduler.scheduleWithFixedDelay(this::dispatchStableFiles, period, period, TimeUnit.MILLISECONDS);
+        for (Path directory : directories) {
+            scan(directory);
+        }
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // events were lost: the folder is listed again
+                        scan(directory);
+                    } else {
+                        seen(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed by close()
+        }
+    }
+
+    /**
+     * Stops watching. Files being signed are completed.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scan(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                seen(file);
+            }
+        } catch (IOException e) {
+            // listed again on the next overflow
+        }
+    }
+
+    private void seen(Path file) {
+        if (isIgnored(file)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return;
+            }
+            long now = System.nanoTime();
+            pending.compute(file, (path, p) -> {
+                if (p == null) {
+                    return new Pending(now, attrs);
+                }
+                p.lastChange = now;
+                return p;
+            });
+        } catch (IOException e) {
+            // deleted or renamed before it could be read
+        }
+    }
+
+    private static boolean isIgnored(Path file) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || name.startsWith("~")) {
+            return true;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        return TEMPORARY_EXTENSIONS.stream().anyMatch(lower::endsWith);
+    }
+
+    private void dispatchStableFiles() {
+        long now = System.nanoTime();
+        for (Map.Entry<Path, Pending> entry : pending.entrySet()) {
+            Path file = entry.getKey();
+            Pending p = entry.getValue();
+            if (now - p.lastChange < debounceNanos) {
+                continue;
+            }
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                pending.remove(file);
+                continue;
+            }
+            if (attrs.size() != p.size || attrs.lastModifiedTime().toMillis() != p.modified) {
+                // still written without raising events: wait for another delay
+                p.size = attrs.size();
+                p.modified = attrs.lastModifiedTime().toMillis();
+                p.lastChange = now;
+                continue;
+            }
+            if (!isWritable(file) || !inFlight.tryAcquire()) {
+                continue;
+            }
+            pending.remove(file);
+            try {
+                workers.execute(() -> {
+                    try {
+                        process(file);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // closing: the file stays in the folder
+                inFlight.release();
+                return;
+            }
+        }
+    }
+
+    private static boolean isWritable(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            return lock != null;
+        } catch (AccessDeniedException e) {
+            // a read-only file is not being written
+            return !Files.isWritable(file);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void process(Path file) {
+        try {
+            signer.sign(file);
+        } catch (Exception e) {
+            moveQuietly(file, FAILED_DIR);
+            listener.onFailed(file, e);
+            return;
+        }
+        try {
+            listener.onSigned(file, moveTo(file, SIGNED_DIR));
+        } catch (IOException e) {
+            // signed, but left in the folder: it would be signed again on restart
+            listener.onFailed(file, e);
+        }
+    }
+
+    private void moveQuietly(Path file, String subdirectory) {
+        try {
+            moveTo(file, subdirectory);
+        } catch (IOException e) {
+            // left in the folder and retried on restart
+        }
+    }
+
+    private static Path moveTo(Path file, String subdirectory) throws IOException {
+        Path target = Files.createDirectories(file.resolveSibling(subdirectory)).resolve(file.getFileName());
+        if (Files.exists(target)) {
+            // a file with the same name was dropped before
+            target = target.resolveSibling(System.currentTimeMillis() + "-" + file.getFileName());
+        }
+        return Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
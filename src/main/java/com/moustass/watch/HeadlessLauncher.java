@@ -0,0 +1,94 @@
+package com.moustass.watch;
+
+import com.moustass.config.AppConfig;
+import com.moustass.config.DatabaseConfig;
+import com.moustass.migrations.DatabaseMigrator;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.User;
+import com.moustass.repository.UserRepository;
+import com.moustass.service.AuditLogWriter;
+import com.moustass.service.SignatureLogService;
+import com.moustass.utils.CryptoUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the headless mode, started with {@code --watch}.
+ * <p>
+ * Watches the folders listed in {@code watch.dirs} (separated by
+ * {@code ;}) and signs every file dropped into them with the key of the
+ * user named by {@code watch.user}, through {@link SignatureLogService}.
+ * {@code watch.workers} files are signed at the same time (two by
+ * default), once they have stayed unchanged for {@code watch.debounce.ms}
+ * milliseconds (two seconds by default).
+ * </p>
+ */
+public final class HeadlessLauncher {
+    private HeadlessLauncher() {}
+
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_DEBOUNCE_MILLIS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        AppConfig config = AppConfig.getInstance();
+        String dirs = config.getProperty("watch.dirs");
+        String username = config.getProperty("watch.user");
+        if (dirs == null || dirs.isBlank() || username == null || username.isBlank()) {
+            System.err.println("watch.dirs et watch.user doivent être configurés");
+            System.exit(2);
+            return;
+        }
+
+        DatabaseMigrator.migrate(DatabaseConfig.getDataSource());
+        User signer = new UserRepository().findByUsername(username.trim());
+        if (signer == null) {
+            System.err.println("Utilisateur inconnu : " + username);
+            System.exit(2);
+            return;
+        }
+        // decoded once for the lifetime of the watcher
+        PrivateKey privateKey = CryptoUtils.privateKeyFromBase64(signer.getSkPrivate(),
+                SignatureAlgorithm.orDefault(signer.getSignatureAlgorithm()));
+
+        List<Path> directories = Arrays.stream(dirs.split(";"))
+                .map(String::trim)
+                .filter(d -> !d.isEmpty())
+                .map(Paths::get)
+                .toList();
+
+        SignatureLogService signatureLogService = new SignatureLogService();
+        DropFolderWatcher watcher = new DropFolderWatcher(directories,
+                file -> signatureLogService.saveFile(file.toFile(), signer, privateKey),
+                new DropFolderWatcher.Listener() {
+                    @Override
+                    public void onSigned(Path file, Path moved) {
+                        System.out.println("Signé : " + file + " -> " + moved);
+                    }
+
+                    @Override
+                    public void onFailed(Path file, Exception error) {
+                        System.err.println("Échec : " + file + " (" + error.getMessage() + ")");
+                    }
+                },
+                config.getIntProperty("watch.workers", DEFAULT_WORKERS),
+                config.getIntProperty("watch.debounce.ms", DEFAULT_DEBOUNCE_MILLIS));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // the process is exiting
+            }
+            AuditLogWriter.shutdown();
+            DatabaseConfig.shutdown();
+        }, "drop-folder-shutdown"));
+
+        System.out.println("Surveillance de " + directories + " pour " + signer.getUsername());
+        watcher.run();
+    }
+}
@@ -4,6 +4,7 @@ module com.moustass {
 
     requires java.sql;
     requires javafx.graphics;
+    requires flyway.core;
 
     opens com.moustass to javafx.fxml;
     exports com.moustass;
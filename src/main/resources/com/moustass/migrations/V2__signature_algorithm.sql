@@ -0,0 +1,2 @@
+ALTER TABLE users ADD COLUMN signature_algorithm VARCHAR(20) NOT NULL DEFAULT 'RSA_SHA256';
+ALTER TABLE signature_logs ADD COLUMN signature_algorithm VARCHAR(20) NOT NULL DEFAULT 'RSA_SHA256';
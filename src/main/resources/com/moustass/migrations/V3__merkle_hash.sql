@@ -0,0 +1,2 @@
+ALTER TABLE signature_logs ADD COLUMN merkle_root VARCHAR(255) NULL;
+ALTER TABLE signature_logs ADD COLUMN merkle_block_size INT NULL;
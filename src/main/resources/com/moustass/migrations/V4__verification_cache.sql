@@ -0,0 +1,9 @@
+CREATE TABLE verification_cache (
+    signature_id INT PRIMARY KEY,
+    file_size BIGINT NOT NULL,
+    last_modified BIGINT NOT NULL,
+    file_key VARCHAR(255) NOT NULL,
+    outcome BOOLEAN NOT NULL,
+    verified_at DATETIME NOT NULL,
+    FOREIGN KEY (signature_id) REFERENCES signature_logs(id) ON DELETE CASCADE
+);
@@ -0,0 +1,8 @@
+CREATE TABLE blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_blobs_size (size)
+);
+ALTER TABLE signature_logs ADD COLUMN blob_hash VARCHAR(64) NULL;
@@ -0,0 +1,3 @@
+ALTER TABLE blobs ADD COLUMN codec VARCHAR(20) NOT NULL DEFAULT 'identity';
+ALTER TABLE blobs ADD COLUMN stored_size BIGINT NULL;
+UPDATE blobs SET stored_size = size WHERE stored_size IS NULL;
@@ -0,0 +1,13 @@
+CREATE TABLE signature_batches (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT NOT NULL,
+    root_hash VARCHAR(255) NOT NULL,
+    signature_value TEXT NOT NULL,
+    signature_algorithm VARCHAR(20) NOT NULL,
+    file_count INT NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
+ALTER TABLE signature_logs ADD COLUMN batch_id INT NULL;
+ALTER TABLE signature_logs ADD COLUMN inclusion_proof TEXT NULL;
+ALTER TABLE signature_logs ADD CONSTRAINT fk_signature_logs_batch FOREIGN KEY (batch_id) REFERENCES signature_batches(id);
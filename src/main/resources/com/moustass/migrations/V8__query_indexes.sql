@@ -0,0 +1,5 @@
+-- Indexes matching the repository queries
+-- findAllByUserId on each log table, then sorted by date
+CREATE INDEX idx_signature_logs_user ON signature_logs (user_id, created_at);
+CREATE INDEX idx_activity_logs_user ON activity_logs (user_id, created_at);
+CREATE INDEX idx_auth_logs_user ON auth_logs (user_id, created_at);
@@ -0,0 +1,15 @@
+-- Read model of the signature listing: the username is copied on each row,
+-- so the home page reads this table alone, without joining users
+CREATE TABLE signature_listing (
+    id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    username VARCHAR(100) NOT NULL,
+    created_at DATETIME NOT NULL,
+    INDEX idx_signature_listing_created (created_at DESC, id DESC),
+    INDEX idx_signature_listing_user (user_id),
+    FOREIGN KEY (id) REFERENCES signature_logs(id) ON DELETE CASCADE
+);
+INSERT INTO signature_listing (id, user_id, file_name, username, created_at)
+SELECT sl.id, sl.user_id, sl.file_name, u.username, sl.created_at
+FROM signature_logs sl JOIN users u ON u.id = sl.user_id;
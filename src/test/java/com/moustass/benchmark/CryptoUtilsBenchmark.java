@@ -0,0 +1,109 @@
+package com.moustass.benchmark;
+
+import com.moustass.utils.CryptoUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the hot paths of {@link CryptoUtils}.
+ * <p>
+ * Each {@code legacy*} method reproduces the implementation that looked up
+ * a new provider instance on every call; it is measured next to the pooled
+ * implementation now behind the static API.
+ * </p>
+ * <p>
+ * Run from the IDE through {@link #main(String[])}, or after {@code mvn test-compile} with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main CryptoUtilsBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoUtilsBenchmark {
+    private static final String PASSWORD_INPUT = "salt" + "Password@123" + "pk".repeat(200) + "sk".repeat(800);
+
+    private String publicKeyB64;
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+    private byte[] data;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPair kp = CryptoUtils.generateKeyPair();
+        publicKey = kp.getPublic();
+        privateKey = kp.getPrivate();
+        publicKeyB64 = CryptoUtils.encodePublicKey(publicKey);
+        data = "benchmark payload".getBytes(StandardCharsets.UTF_8);
+        signature = CryptoUtils.signSha256WithRsa(data, privateKey);
+    }
+
+    @Benchmark
+    public String legacySha256Hex() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] digest = md.digest(PASSWORD_INPUT.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String pooledSha256Hex() throws NoSuchAlgorithmException {
+        return CryptoUtils.sha256Hex(PASSWORD_INPUT);
+    }
+
+    @Benchmark
+    public String legacyGenerateSalt() {
+        byte[] b = new byte[16];
+        new SecureRandom().nextBytes(b);
+        return Base64.getEncoder().encodeToString(b);
+    }
+
+    @Benchmark
+    public String pooledGenerateSalt() {
+        return CryptoUtils.generateSalt(16);
+    }
+
+    @Benchmark
+    public PublicKey legacyPublicKeyFromBase64() throws Exception {
+        byte[] keyBytes = Base64.getDecoder().decode(publicKeyB64);
+        return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(keyBytes));
+    }
+
+    @Benchmark
+    public PublicKey pooledPublicKeyFromBase64() throws Exception {
+        return CryptoUtils.publicKeyFromBase64(publicKeyB64);
+    }
+
+    @Benchmark
+    public boolean legacyVerify() throws Exception {
+        Signature sig = Signature.getInstance("SHA256withRSA");
+        sig.initVerify(publicKey);
+        sig.update(data);
+        return sig.verify(signature);
+    }
+
+    @Benchmark
+    public boolean pooledVerify() throws Exception {
+        return CryptoUtils.verifySha256WithRsa(data, signature, publicKey);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CryptoUtilsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,69 @@
+package com.moustass.benchmark;
+
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.utils.CryptoUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing key generation, signing and verification
+ * throughput of the supported {@link SignatureAlgorithm}s.
+ * <p>
+ * Run from the IDE through {@link #main(String[])}, or after {@code mvn test-compile} with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main SignatureAlgorithmBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignatureAlgorithmBenchmark {
+
+    @Param({"RSA_SHA256", "ECDSA_P256", "ED25519"})
+    public String algorithm;
+
+    private SignatureAlgorithm alg;
+    private KeyPair keyPair;
+    private byte[] digest;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        alg = SignatureAlgorithm.valueOf(algorithm);
+        keyPair = CryptoUtils.newKeyPair(alg);
+        digest = MessageDigest.getInstance("SHA-256").digest("benchmark payload".getBytes(StandardCharsets.UTF_8));
+        signature = CryptoUtils.signDigest(digest, keyPair.getPrivate(), alg);
+    }
+
+    @Benchmark
+    public KeyPair keyGeneration() {
+        return CryptoUtils.newKeyPair(alg);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return CryptoUtils.signDigest(digest, keyPair.getPrivate(), alg);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return CryptoUtils.verifyDigest(digest, signature, keyPair.getPublic(), alg);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SignatureAlgorithmBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,123 @@
+package com.moustass.cache;
+
+import com.moustass.config.UnitOfWork;
+import com.moustass.model.User;
+import com.moustass.model.UserSummary;
+import com.moustass.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingUserRepositoryTest {
+    private final AtomicLong now = new AtomicLong();
+    private UserRepository database;
+    private CachingUserRepository cache;
+
+    @BeforeEach
+    void setUp() {
+        database = Mockito.mock(UserRepository.class);
+        Mockito.when(database.findById(1)).thenAnswer(invocation -> user());
+        Mockito.when(database.findSummaryByUsername("jdoe")).thenAnswer(invocation -> UserSummary.of(user()));
+        cache = new CachingUserRepository(database, 10, 1000, now::get);
+    }
+
+    private static User user() {
+        User u = new User();
+        u.setId(1);
+        u.setUsername("jdoe");
+        u.setIsAdmin(true);
+        u.setMustChangePwd(true);
+        u.setPasswordHash("hash");
+        return u;
+    }
+
+    @Test
+    void findById_secondCall_shouldHitCache() {
+        assertEquals("jdoe", cache.findById(1).getUsername());
+        assertEquals("jdoe", cache.findById(1).getUsername());
+
+        Mockito.verify(database, Mockito.times(1)).findById(1);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void findById_shouldReturnCopies() {
+        cache.findById(1).setPasswordHash("changed");
+
+        assertEquals("hash", cache.findById(1).getPasswordHash());
+    }
+
+    @Test
+    void findById_afterTtl_shouldReload() {
+        cache.findById(1);
+        now.addAndGet(1000);
+        cache.findById(1);
+
+        Mockito.verify(database, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    void findSummaryById_shouldUseCachedUser() {
+        cache.findById(1);
+
+        UserSummary summary = cache.findSummaryById(1);
+
+        assertTrue(summary.isAdmin());
+        Mockito.verify(database, Mockito.never()).findSummaryById(1);
+    }
+
+    @Test
+    void findSummaryByUsername_secondCall_shouldHitCache() {
+        cache.findSummaryByUsername("jdoe");
+        cache.findSummaryByUsername("jdoe");
+
+        Mockito.verify(database, Mockito.times(1)).findSummaryByUsername("jdoe");
+    }
+
+    @Test
+    void updatePassword_shouldInvalidateUser() throws Exception {
+        User u = cache.findById(1);
+        cache.updatePassword(u);
+        cache.findById(1);
+
+        Mockito.verify(database).updatePassword(u);
+        Mockito.verify(database, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    void updatePassword_inTransaction_shouldInvalidateOnceCommitted() throws Exception {
+        User u = cache.findById(1);
+        UnitOfWork.inTransaction(() -> {
+            cache.updatePassword(u);
+            // not committed yet: the cached user is kept until the transaction ends
+            cache.findById(1);
+            Mockito.verify(database, Mockito.times(1)).findById(1);
+            return null;
+        });
+        cache.findById(1);
+
+        Mockito.verify(database, Mockito.times(2)).findById(1);
+    }
+
+    @Test
+    void deleteById_shouldInvalidateUsername() {
+        cache.findSummaryByUsername("jdoe");
+        cache.deleteById(1);
+        cache.findSummaryByUsername("jdoe");
+
+        Mockito.verify(database, Mockito.times(2)).findSummaryByUsername("jdoe");
+    }
+
+    @Test
+    void findByUsername_shouldNotBeCached() {
+        cache.findByUsername("jdoe");
+        cache.findByUsername("jdoe");
+
+        Mockito.verify(database, Mockito.times(2)).findByUsername("jdoe");
+    }
+}
@@ -0,0 +1,56 @@
+package com.moustass.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPairPoolTest {
+
+    private static void awaitAvailable(KeyPairPool pool, int expected) throws InterruptedException {
+        for (int i = 0; i < 200 && pool.available() < expected; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void warmUp_shouldFillPoolToCapacity() throws InterruptedException {
+        AtomicInteger generated = new AtomicInteger();
+        KeyPairPool pool = new KeyPairPool(4, 1, 2, () -> { generated.incrementAndGet(); return new KeyPair(null, null); });
+
+        pool.warmUp();
+        awaitAvailable(pool, 4);
+
+        assertEquals(4, pool.available());
+        assertEquals(4, generated.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void take_shouldNeverReturnSamePairTwice() throws InterruptedException {
+        KeyPairPool pool = new KeyPairPool(3, 1, 1, () -> new KeyPair(null, null));
+        pool.warmUp();
+        awaitAvailable(pool, 3);
+
+        Set<KeyPair> taken = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(taken.add(pool.take()));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void take_emptyPool_shouldGenerateAndRefill() throws InterruptedException {
+        KeyPairPool pool = new KeyPairPool(2, 0, 1, () -> new KeyPair(null, null));
+
+        assertNotNull(pool.take());
+        awaitAvailable(pool, 2);
+
+        assertEquals(2, pool.available());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,71 @@
+package com.moustass.cache;
+
+import com.moustass.exception.SignatureRSAException;
+import com.moustass.utils.CryptoUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.PublicKey;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicKeyCacheTest {
+    private static PublicKey key;
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        key = CryptoUtils.generateKeyPair().getPublic();
+    }
+
+    @Test
+    void get_secondCall_shouldHitCache() {
+        AtomicInteger loads = new AtomicInteger();
+        PublicKeyCache cache = new PublicKeyCache(10, id -> { loads.incrementAndGet(); return key; });
+
+        assertSame(key, cache.get(1));
+        assertSame(key, cache.get(1));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void get_overCapacity_shouldEvictLeastRecentlyUsed() {
+        AtomicInteger loads = new AtomicInteger();
+        PublicKeyCache cache = new PublicKeyCache(2, id -> { loads.incrementAndGet(); return key; });
+
+        cache.get(1);
+        cache.get(2);
+        cache.get(1);
+        cache.get(3);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(1);
+        assertEquals(3, loads.get());
+        cache.get(2);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void invalidate_shouldReloadKey() {
+        AtomicInteger loads = new AtomicInteger();
+        PublicKeyCache cache = new PublicKeyCache(10, id -> { loads.incrementAndGet(); return key; });
+
+        cache.get(1);
+        cache.invalidate(1);
+        cache.get(1);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_unknownUser_shouldThrow() {
+        PublicKeyCache cache = new PublicKeyCache(10, id -> null);
+
+        assertThrows(SignatureRSAException.class, () -> cache.get(1));
+        assertEquals(0, cache.size());
+    }
+}
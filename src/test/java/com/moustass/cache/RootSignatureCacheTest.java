@@ -0,0 +1,39 @@
+package com.moustass.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RootSignatureCacheTest {
+    private final AtomicInteger checks = new AtomicInteger();
+
+    private boolean check() {
+        checks.incrementAndGet();
+        return true;
+    }
+
+    @Test
+    void verify_sameRootTwice_shouldCheckOnce() {
+        RootSignatureCache cache = new RootSignatureCache(10);
+
+        assertTrue(cache.verify(1, "ED25519", "root", "sig", this::check));
+        assertTrue(cache.verify(1, "ED25519", "root", "sig", this::check));
+
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    void invalidate_shouldOnlyForgetTheRootsOfTheUser() {
+        RootSignatureCache cache = new RootSignatureCache(10);
+        cache.verify(1, "ED25519", "root", "sig", this::check);
+        cache.verify(12, "ED25519", "root", "sig", this::check);
+
+        cache.invalidate(1);
+        cache.verify(1, "ED25519", "root", "sig", this::check);
+        cache.verify(12, "ED25519", "root", "sig", this::check);
+
+        assertEquals(3, checks.get());
+    }
+}
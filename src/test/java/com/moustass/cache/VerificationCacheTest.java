@@ -0,0 +1,76 @@
+package com.moustass.cache;
+
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.VerificationCacheEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<Integer, VerificationCacheEntry> table = new HashMap<>();
+
+    private VerificationCache newCache() {
+        return new VerificationCache(10, table::get, e -> table.put(e.getSignatureId(), e));
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws Exception {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    void lookup_unchangedFile_shouldReturnRecordedOutcome() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "content");
+        VerificationCache cache = newCache();
+
+        assertNull(cache.lookup(1, attributes(file)));
+        cache.record(1, attributes(file), true);
+
+        assertEquals(Boolean.TRUE, cache.lookup(1, attributes(file)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void lookup_modifiedFile_shouldMiss() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "content");
+        VerificationCache cache = newCache();
+        cache.record(1, attributes(file), true);
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5_000));
+
+        assertNull(cache.lookup(1, attributes(file)));
+    }
+
+    @Test
+    void lookup_shouldLoadPersistedEntry() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "content");
+        newCache().record(7, attributes(file), false);
+
+        // a new instance, as after a restart, reads the persisted entry
+        assertEquals(Boolean.FALSE, newCache().lookup(7, attributes(file)));
+    }
+
+    @Test
+    void databaseErrors_shouldBeTreatedAsMisses() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "content");
+        VerificationCache cache = new VerificationCache(10,
+                id -> { throw new DatabaseConnectionException("down"); },
+                e -> { throw new DatabaseConnectionException("down"); });
+
+        assertNull(cache.lookup(1, attributes(file)));
+        cache.record(1, attributes(file), true);
+        assertEquals(Boolean.TRUE, cache.lookup(1, attributes(file)));
+    }
+}
@@ -40,4 +40,12 @@ class AppConfigTest {
         String value = config.getProperty("unknown.key");
         assertNull(value);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getIntProperty_nonExistingKey_shouldReturnDefault() {
+        AppConfig config = AppConfig.getInstance();
+
+        assertEquals(7, config.getIntProperty("unknown.key", 7));
+        assertEquals(7, config.getIntProperty("db.name", 7));
+    }
+}
@@ -0,0 +1,157 @@
+package com.moustass.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private final List<Connection> physical = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private Connection newPhysical() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        physical.add(connection);
+        return connection;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void getConnection_shouldReuseReturnedConnection() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 2, 100, 60_000, 60_000);
+
+        try (Connection first = pool.getConnection()) {
+            first.prepareStatement("SELECT 1");
+        }
+        try (Connection second = pool.getConnection()) {
+            second.prepareStatement("SELECT 2");
+        }
+
+        assertEquals(1, physical.size());
+        verify(physical.get(0), never()).close();
+        assertEquals(1, pool.stats().getCreated());
+        assertEquals(2, pool.stats().getBorrowed());
+        assertEquals(1, pool.stats().getIdle());
+        assertEquals(0, pool.stats().getActive());
+    }
+
+    @Test
+    void close_shouldRejectCallsOnReturnedConnection() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 60_000);
+
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("SELECT 1"));
+        assertEquals(1, pool.stats().getIdle());
+    }
+
+    @Test
+    void getConnection_whenExhausted_shouldTimeOut() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 50, 60_000, 60_000);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+        }
+
+        assertEquals(1, pool.stats().getTimeouts());
+        assertEquals(1, physical.size());
+    }
+
+    @Test
+    void close_shouldRollBackOpenTransaction() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 60_000);
+
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        when(physical.get(0).getAutoCommit()).thenReturn(false);
+        connection.close();
+
+        verify(physical.get(0)).rollback();
+        verify(physical.get(0)).setAutoCommit(true);
+    }
+
+    @Test
+    void close_shouldRestoreReadOnlyAndIsolation() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 60_000);
+
+        Connection connection = pool.getConnection();
+        when(physical.get(0).getTransactionIsolation()).thenReturn(Connection.TRANSACTION_REPEATABLE_READ);
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.close();
+
+        verify(physical.get(0)).setReadOnly(false);
+        verify(physical.get(0)).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    }
+
+    @Test
+    void close_untouchedConnection_shouldNotResetSessionState() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 60_000);
+
+        pool.getConnection().close();
+
+        verify(physical.get(0), never()).setReadOnly(anyBoolean());
+        verify(physical.get(0), never()).setTransactionIsolation(anyInt());
+    }
+
+    @Test
+    void getConnection_shouldReplaceInvalidConnection() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 60_000);
+        pool.getConnection().close();
+        when(physical.get(0).isValid(anyInt())).thenReturn(false);
+        Thread.sleep(600);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(2, physical.size());
+            verify(physical.get(0)).close();
+        }
+        assertEquals(1, pool.stats().getEvicted());
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    @Test
+    void close_shouldDiscardExpiredConnection() throws Exception {
+        pool = new ConnectionPool(this::newPhysical, 1, 100, 60_000, 1);
+        Connection connection = pool.getConnection();
+        Thread.sleep(5);
+
+        // returned after its lifetime: closed instead of pooled
+        connection.close();
+
+        verify(physical.get(0)).close();
+        assertEquals(0, pool.stats().getIdle());
+        assertEquals(0, pool.getOpenCount());
+    }
+
+    @Test
+    void getConnection_whenFactoryFails_shouldReleasePermit() throws Exception {
+        pool = new ConnectionPool(() -> {
+            throw new SQLException("down");
+        }, 1, 50, 60_000, 60_000);
+
+        assertThrows(SQLException.class, pool::getConnection);
+        assertThrows(SQLException.class, pool::getConnection);
+
+        assertEquals(0, pool.stats().getTimeouts());
+        assertEquals(0, pool.stats().getActive());
+    }
+}
@@ -0,0 +1,166 @@
+package com.moustass.config;
+
+import com.moustass.exception.DatabaseConnectionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnitOfWorkTest {
+
+    private final DatabaseConfig dbConfig = new DatabaseConfig();
+    private DataSource dataSource;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+    }
+
+    @Test
+    void inTransaction_shouldShareOneConnectionAndCommitOnce() throws Exception {
+        String result = UnitOfWork.inTransaction(dataSource, () -> {
+            try (Connection first = dbConfig.getConnection()) {
+                first.prepareStatement("INSERT 1");
+            }
+            try (Connection second = dbConfig.getConnection()) {
+                second.prepareStatement("INSERT 2");
+                // a repository managing its own transaction joins this one
+                second.setAutoCommit(false);
+                second.commit();
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        verify(dataSource, times(1)).getConnection();
+        verify(connection).setAutoCommit(false);
+        verify(connection, times(1)).commit();
+        verify(connection, never()).rollback();
+        verify(connection, times(1)).close();
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void inTransaction_whenWorkFails_shouldRollBack() throws Exception {
+        assertThrows(SQLException.class, () -> UnitOfWork.inTransaction(dataSource, () -> {
+            dbConfig.getConnection().prepareStatement("INSERT 1");
+            throw new SQLException("duplicate");
+        }));
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection).close();
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void inTransaction_whenNested_shouldJoinOuterTransaction() throws Exception {
+        UnitOfWork.inTransaction(dataSource, () -> {
+            dbConfig.getConnection();
+            return UnitOfWork.inTransaction(dataSource, () -> dbConfig.getConnection());
+        });
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    void inTransaction_whenRollbackRequested_shouldNotCommit() throws Exception {
+        assertThrows(DatabaseConnectionException.class, () -> UnitOfWork.inTransaction(dataSource, () -> {
+            dbConfig.getConnection().rollback();
+            return null;
+        }));
+
+        verify(connection, never()).commit();
+        verify(connection).rollback();
+    }
+
+    @Test
+    void inTransaction_withoutDatabaseCall_shouldNotBorrowConnection() throws Exception {
+        UnitOfWork.inTransaction(dataSource, () -> 42);
+
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    void afterCompletion_shouldRunOnceCommitted() throws Exception {
+        AtomicBoolean committedFirst = new AtomicBoolean();
+        UnitOfWork.inTransaction(dataSource, () -> {
+            try (Connection c = dbConfig.getConnection()) {
+                c.createStatement();
+            }
+            UnitOfWork.afterCompletion(() -> committedFirst.set(mockingDetails(connection).getInvocations().stream()
+                    .anyMatch(invocation -> "commit".equals(invocation.getMethod().getName()))));
+            return null;
+        });
+
+        assertTrue(committedFirst.get());
+    }
+
+    @Test
+    void afterCompletion_whenWorkFails_shouldStillRun() {
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(dataSource, () -> {
+            UnitOfWork.afterCompletion(() -> ran.set(true));
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(ran.get());
+    }
+
+    @Test
+    void afterCompletion_outsideTransaction_shouldRunAtOnce() {
+        AtomicBoolean ran = new AtomicBoolean();
+
+        UnitOfWork.afterCompletion(() -> ran.set(true));
+
+        assertTrue(ran.get());
+    }
+
+    @Test
+    void afterCompletion_whenActionFails_shouldRunTheOthersAndThrowOnceCommitted() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean();
+        IllegalStateException failure = new IllegalStateException("stale");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> UnitOfWork.inTransaction(dataSource, () -> {
+                    try (Connection c = dbConfig.getConnection()) {
+                        c.createStatement();
+                    }
+                    UnitOfWork.afterCompletion(() -> {
+                        throw failure;
+                    });
+                    UnitOfWork.afterCompletion(() -> ran.set(true));
+                    return null;
+                }));
+
+        assertSame(failure, thrown);
+        assertTrue(ran.get());
+        verify(connection).commit();
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    void afterCompletion_whenWorkAndActionFail_shouldKeepTheWorkFailure() {
+        IllegalStateException failure = new IllegalStateException("stale");
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> UnitOfWork.inTransaction(dataSource, () -> {
+                    UnitOfWork.afterCompletion(() -> {
+                        throw failure;
+                    });
+                    throw new IllegalArgumentException("boom");
+                }));
+
+        assertSame(failure, thrown.getSuppressed()[0]);
+    }
+}
@@ -0,0 +1,55 @@
+package com.moustass.migrations;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseMigratorTest {
+
+    private static final String URL = "jdbc:h2:mem:legacy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static DataSource h2() {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (p, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return DriverManager.getConnection(URL);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    void migrate_databaseCreatedWithoutFlyway_shouldApplyEveryLaterMigration() throws Exception {
+        DataSource h2 = h2();
+        // a database of the application before Flyway: the first script, applied by hand
+        try (InputStream in = DatabaseMigrator.class.getResourceAsStream("V1__create_schema.sql");
+             Connection connection = h2.getConnection();
+             Statement statement = connection.createStatement()) {
+            assertNotNull(in);
+            for (String sql : new String(in.readAllBytes(), StandardCharsets.UTF_8).split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+
+        int applied = DatabaseMigrator.migrate(h2, DatabaseMigrator.DEFAULT_BASELINE_VERSION);
+
+        assertEquals(DatabaseMigrator.scripts().size() - 1, applied);
+        try (Connection connection = h2.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM flyway_schema_history WHERE type = 'BASELINE'")) {
+            assertTrue(rs.next());
+            assertEquals("1", rs.getString(1));
+        }
+    }
+}
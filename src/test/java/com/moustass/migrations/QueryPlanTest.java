@@ -0,0 +1,211 @@
+package com.moustass.migrations;
+
+import com.moustass.config.UnitOfWork;
+import com.moustass.model.ActivityLog;
+import com.moustass.model.AuthEvent;
+import com.moustass.model.AuthLog;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.SignatureBatch;
+import com.moustass.model.SignatureLog;
+import com.moustass.model.SignatureQuery;
+import com.moustass.model.User;
+import com.moustass.model.VerificationCacheEntry;
+import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.AuthLogRepository;
+import com.moustass.repository.BlobRepository;
+import com.moustass.repository.SignatureBatchRepository;
+import com.moustass.repository.SignatureLogRepository;
+import com.moustass.repository.UserRepository;
+import com.moustass.repository.VerificationCacheRepository;
+import com.moustass.view.SignatureView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanTest {
+
+    private static final String URL = "jdbc:h2:mem:plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    /**
+     * Statements reading a whole table on purpose.
+     */
+    private static final Set<String> FULL_LISTINGS = Set.of(
+            "SELECT id, firstname, lastname, username, password_hash, salt, pk_public, sk_private, must_change_pwd, is_admin, signature_algorithm, created_at FROM users",
+            "SELECT id, user_id, event, ip_address, created_at FROM auth_logs",
+            "SELECT COUNT(*), COALESCE(SUM(size), 0), COALESCE(SUM(stored_size), 0) FROM blobs WHERE ref_count > 0",
+            // MySQL reads the descending index backwards, H2 cannot
+            "SELECT sl.id, sl.file_name, sl.username, sl.created_at FROM signature_listing sl WHERE 1 = 1 ORDER BY sl.created_at ASC, sl.id ASC LIMIT ?");
+    private static final Set<String> statements = new LinkedHashSet<>();
+    private static DataSource h2;
+
+    @BeforeAll
+    static void migrateAndRecord() throws Exception {
+        h2 = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (p, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return DriverManager.getConnection(URL);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        assertEquals(9, DatabaseMigrator.migrate(h2, "1"));
+        recordRepositoryStatements();
+    }
+
+    private static DataSource recording(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (p, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (!"getConnection".equals(method.getName())) {
+                        return result;
+                    }
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                            (c, m, a) -> {
+                                if (m.getName().startsWith("prepare") && a != null && a[0] instanceof String sql) {
+                                    statements.add(sql);
+                                }
+                                return invoke(connection, m, a);
+                            });
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void run(UnitOfWork.Work<?, Exception> call) {
+        try {
+            UnitOfWork.inTransaction(recording(h2), call);
+        } catch (Exception e) {
+            // only the statements are checked
+        }
+    }
+
+    private static void recordRepositoryStatements() {
+        UserRepository users = new UserRepository();
+        User user = new User();
+        user.setFirstname("John");
+        user.setLastname("Doe");
+        user.setUsername("jdoe");
+        user.setPasswordHash("hash");
+        user.setSalt("salt");
+        user.setPkPublic("pk");
+        user.setSkPrivate("sk");
+        user.setMustChangePwd(true);
+        user.setIsAdmin(false);
+        user.setSignatureAlgorithm(SignatureAlgorithm.ED25519);
+        run(() -> users.insert(user));
+        run(() -> users.findById(1));
+        run(() -> users.findPublicKeyById(1));
+        run(() -> users.findByUsername("jdoe"));
+        run(() -> users.findSummaryById(1));
+        run(() -> users.findSummaryByUsername("jdoe"));
+        run(users::findAll);
+        run(() -> users.updatePassword(user));
+        run(() -> users.deleteById(99));
+
+        SignatureLogRepository signatures = new SignatureLogRepository();
+        SignatureLog signature = new SignatureLog(1, "a.pdf", "hash", "sig", null);
+        signature.setSignatureAlgorithm(SignatureAlgorithm.ED25519);
+        run(() -> signatures.insert(signature));
+        run(() -> {
+            signatures.insertAll(List.of(signature));
+            return null;
+        });
+        run(() -> signatures.findById(1));
+        run(() -> signatures.findAllByUserId(1));
+        run(() -> signatures.findPageAfterId(0, 10));
+        run(() -> signatures.findLegacyPageAfterId(0, 10));
+        run(() -> signatures.updateBlobHash(1, "blob"));
+        run(signatures::countAll);
+        SignatureView anchor = new SignatureView(1, "jdoe", "a.pdf", LocalDateTime.now());
+        run(() -> signatures.findSignatures(SignatureQuery.newestFirst(), null, true, 10));
+        run(() -> signatures.findSignatures(SignatureQuery.newestFirst(), anchor, true, 10));
+        run(() -> signatures.findSignatures(SignatureQuery.newestFirst(), anchor, false, 10));
+        run(() -> signatures.findSignatures(new SignatureQuery("a", "j", true), anchor, true, 10));
+        run(() -> signatures.findSignatures(new SignatureQuery(null, null, false), null, true, 10));
+
+        ActivityLogRepository activities = new ActivityLogRepository();
+        ActivityLog activity = new ActivityLog(1, ActivityLog.TypeAction.LOGIN_SUCCESS, "login");
+        run(() -> activities.insert(activity));
+        run(() -> {
+            activities.insertAll(List.of(activity));
+            return null;
+        });
+        run(() -> activities.findById(1));
+        run(() -> activities.findAllByUserId(1));
+
+        AuthLogRepository auths = new AuthLogRepository();
+        AuthLog auth = new AuthLog();
+        auth.setUserId(1);
+        auth.setEvent(AuthEvent.SUCCESS);
+        run(() -> auths.insert(auth));
+        run(() -> {
+            auths.insertAll(List.of(auth));
+            return null;
+        });
+        run(() -> auths.findById(1));
+        run(auths::findAll);
+
+        BlobRepository blobs = new BlobRepository();
+        run(() -> blobs.existsBySize(10));
+        run(() -> blobs.acquireExisting("blob"));
+        run(() -> {
+            blobs.acquire("blob", 10, "identity", 10);
+            return null;
+        });
+        run(() -> blobs.release("blob"));
+        run(blobs::stats);
+
+        SignatureBatchRepository batches = new SignatureBatchRepository();
+        run(() -> batches.insert(new SignatureBatch(1, "root", "sig", SignatureAlgorithm.ED25519, 1)));
+        run(() -> batches.findById(1));
+
+        VerificationCacheRepository cache = new VerificationCacheRepository();
+        run(() -> cache.findBySignatureId(1));
+    }
+
+    @Test
+    void migrate_shouldApplyEveryScriptOnce() {
+        assertEquals(0, DatabaseMigrator.migrate(h2, "1"));
+    }
+
+    @Test
+    void repositoryStatements_shouldNotScanWholeTables() throws SQLException {
+        assertFalse(statements.isEmpty());
+        List<String> scans = new ArrayList<>();
+        try (Connection connection = h2.getConnection()) {
+            for (String sql : statements) {
+                if (sql.trim().toUpperCase().startsWith("INSERT") || FULL_LISTINGS.contains(sql)) {
+                    continue;
+                }
+                try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql); ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    String plan = rs.getString(1);
+                    if (plan.contains(".tableScan")) {
+                        scans.add(sql + "\n  " + plan.replace("\n", " "));
+                    }
+                }
+            }
+        }
+        assertTrue(scans.isEmpty(), "Full table scans:\n" + String.join("\n", scans));
+    }
+}
@@ -0,0 +1,71 @@
+package com.moustass.model;
+
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.MerkleHasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InclusionProofTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] hashOf(String content) {
+        return CryptoUtils.sha256Digest().digest(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodeDecode_shouldRebuildBatchRoot() {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            leaves.add(InclusionProof.leafOf(hashOf("file " + i)));
+        }
+        byte[] root = MerkleHasher.rootOfLeaves(leaves);
+        InclusionProof proof = new InclusionProof(3, 5, MerkleHasher.inclusionProofs(leaves).get(3));
+
+        InclusionProof decoded = InclusionProof.decode(proof.encode());
+
+        assertEquals(3, decoded.getIndex());
+        assertEquals(5, decoded.getSize());
+        assertArrayEquals(root, decoded.root(hashOf("file 3")));
+        assertFalse(Arrays.equals(root, decoded.root(hashOf("file 2"))));
+    }
+
+    @Test
+    void singleFileBatch_shouldHaveEmptyProof() {
+        byte[] hash = hashOf("alone");
+        InclusionProof proof = new InclusionProof(0, 1, List.of());
+
+        InclusionProof decoded = InclusionProof.decode(proof.encode());
+
+        assertTrue(decoded.getSiblings().isEmpty());
+        assertArrayEquals(InclusionProof.leafOf(hash), decoded.root(hash));
+    }
+
+    @Test
+    void batchRoot_shouldNeverBeTheRootOfAFile() throws Exception {
+        byte[] h1 = hashOf("file 1");
+        byte[] h2 = hashOf("file 2");
+        byte[] batchRoot = MerkleHasher.rootOfLeaves(List.of(InclusionProof.leafOf(h1), InclusionProof.leafOf(h2)));
+        // a file made of the two hashes, hashed in 32-byte blocks
+        Path file = Files.write(tempDir.resolve("forged.bin"), ByteBuffer.allocate(64).put(h1).put(h2).array());
+
+        assertFalse(Arrays.equals(batchRoot, MerkleHasher.root(file, 32)));
+    }
+
+    @Test
+    void decode_whenMalformed_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> InclusionProof.decode("garbage"));
+        assertThrows(IllegalArgumentException.class, () -> InclusionProof.decode("x:2:"));
+    }
+}
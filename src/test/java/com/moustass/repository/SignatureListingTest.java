@@ -0,0 +1,79 @@
+package com.moustass.repository;
+
+import com.moustass.config.UnitOfWork;
+import com.moustass.migrations.DatabaseMigrator;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.SignatureLog;
+import com.moustass.model.SignatureQuery;
+import com.moustass.model.User;
+import com.moustass.view.SignatureView;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.DriverManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureListingTest {
+
+    private static final String URL = "jdbc:h2:mem:listing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static DataSource h2;
+
+    private final UserRepository users = new UserRepository();
+    private final SignatureLogRepository signatures = new SignatureLogRepository();
+
+    @BeforeAll
+    static void migrate() {
+        h2 = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (p, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return DriverManager.getConnection(URL);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        DatabaseMigrator.migrate(h2, "1");
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setFirstname("John");
+        user.setLastname("Doe");
+        user.setUsername(username);
+        user.setPasswordHash("hash");
+        user.setSalt("salt");
+        user.setPkPublic("pk");
+        user.setSkPrivate("sk");
+        user.setMustChangePwd(false);
+        user.setIsAdmin(false);
+        user.setSignatureAlgorithm(SignatureAlgorithm.ED25519);
+        users.insert(user);
+        return users.findByUsername(username);
+    }
+
+    private static SignatureLog signature(User user, String fileName) {
+        SignatureLog signature = new SignatureLog(user.getId(), fileName, "hash", "sig", null);
+        signature.setSignatureAlgorithm(SignatureAlgorithm.ED25519);
+        return signature;
+    }
+
+    private List<SignatureView> listing(String userName) {
+        return signatures.findSignatures(new SignatureQuery(null, userName, true), null, true, 10);
+    }
+
+    @Test
+    void insert_shouldAddListingRows() {
+        UnitOfWork.inTransaction(h2, () -> {
+            User user = user("alice");
+            signatures.insert(signature(user, "a.pdf"));
+            signatures.insertAll(List.of(signature(user, "b.pdf"), signature(user, "c.pdf")));
+
+            List<SignatureView> rows = listing("alice");
+            assertEquals(3, rows.size());
+            assertTrue(rows.stream().allMatch(r -> "alice".equals(r.getUserName())));
+            return null;
+        });
+    }
+}
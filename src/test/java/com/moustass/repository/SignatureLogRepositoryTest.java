@@ -1,5 +1,74 @@
 package com.moustass.repository;
 
+import com.moustass.model.SignatureQuery;
+import com.moustass.view.SignatureView;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class SignatureLogRepositoryTest {
 
-}
\ No newline at end of file
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+
+    @Test
+    void pageSql_firstPage_shouldOnlyLimit() {
+        List<Object> params = new ArrayList<>();
+
+        String sql = SignatureLogRepository.pageSql(SignatureQuery.newestFirst(), null, true, 50, params);
+
+        assertTrue(sql.contains("FROM signature_listing sl"));
+        assertFalse(sql.contains("JOIN"));
+        assertTrue(sql.endsWith("ORDER BY sl.created_at DESC, sl.id DESC LIMIT ?"));
+        assertFalse(sql.contains("sl.created_at <"));
+        assertEquals(List.of(50), params);
+    }
+
+    @Test
+    void pageSql_nextPage_shouldSeekAfterAnchor() {
+        List<Object> params = new ArrayList<>();
+        SignatureView anchor = new SignatureView(42, "jdoe", "a.pdf", AT);
+
+        String sql = SignatureLogRepository.pageSql(SignatureQuery.newestFirst(), anchor, true, 50, params);
+
+        assertTrue(sql.contains("sl.created_at <= ? AND (sl.created_at < ? OR sl.id < ?)"));
+        assertEquals(List.of(Timestamp.valueOf(AT), Timestamp.valueOf(AT), 42, 50), params);
+    }
+
+    @Test
+    void pageSql_previousPage_shouldSeekBeforeAnchorInReverseOrder() {
+        List<Object> params = new ArrayList<>();
+        SignatureView anchor = new SignatureView(42, "jdoe", "a.pdf", AT);
+
+        String sql = SignatureLogRepository.pageSql(SignatureQuery.newestFirst(), anchor, false, 50, params);
+
+        assertTrue(sql.contains("sl.created_at >= ? AND (sl.created_at > ? OR sl.id > ?)"));
+        assertTrue(sql.endsWith("ORDER BY sl.created_at ASC, sl.id ASC LIMIT ?"));
+    }
+
+    @Test
+    void pageSql_oldestFirst_shouldSeekForwardAscending() {
+        List<Object> params = new ArrayList<>();
+        SignatureView anchor = new SignatureView(7, "jdoe", "a.pdf", AT);
+
+        String sql = SignatureLogRepository.pageSql(new SignatureQuery(null, null, false), anchor, true, 10, params);
+
+        assertTrue(sql.contains("sl.id > ?"));
+        assertTrue(sql.endsWith("ORDER BY sl.created_at ASC, sl.id ASC LIMIT ?"));
+    }
+
+    @Test
+    void pageSql_withFilters_shouldEscapeWildcards() {
+        List<Object> params = new ArrayList<>();
+
+        String sql = SignatureLogRepository.pageSql(new SignatureQuery(" 100%_done ", "jd", true), null, true, 10, params);
+
+        assertTrue(sql.contains("sl.file_name LIKE ? ESCAPE '!'"));
+        assertTrue(sql.contains("sl.username LIKE ? ESCAPE '!'"));
+        assertEquals(List.of("%100!%!_done%", "%jd%", 10), params);
+    }
+}
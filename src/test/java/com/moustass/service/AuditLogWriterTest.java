@@ -0,0 +1,187 @@
+package com.moustass.service;
+
+import com.moustass.config.UnitOfWork;
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.ActivityLog;
+import com.moustass.model.AuthEvent;
+import com.moustass.model.AuthLog;
+import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.AuthLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuditLogWriterTest {
+
+    private ActivityLogRepository activityLogRepository;
+    private AuthLogRepository authLogRepository;
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final List<ActivityLog> activities = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        activityLogRepository = mock(ActivityLogRepository.class);
+        authLogRepository = mock(AuthLogRepository.class);
+        doAnswer(i -> {
+            List<ActivityLog> batch = i.getArgument(0);
+            if (!batch.isEmpty()) {
+                batchSizes.add(batch.size());
+                activities.addAll(batch);
+            }
+            return null;
+        }).when(activityLogRepository).insertAll(anyList());
+    }
+
+    private static ActivityLog activity(int i) {
+        return new ActivityLog(i, ActivityLog.TypeAction.LOGIN_SUCCESS, "login " + i);
+    }
+
+    @Test
+    void record_inAsyncMode_shouldWriteByBatchesAndDrainOnClose() {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.ASYNC, 1000, 10, 60_000);
+
+        for (int i = 0; i < 35; i++) {
+            writer.record(activity(i));
+        }
+        writer.close();
+
+        assertEquals(35, activities.size());
+        assertEquals(35, writer.getWritten());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        assertTrue(batchSizes.size() < 35);
+        assertNotNull(activities.get(0).getCreatedAt());
+    }
+
+    @Test
+    void record_inAsyncMode_shouldFlushAfterDelay() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.ASYNC, 1000, 100, 50);
+
+        writer.record(activity(1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (activities.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, activities.size());
+        writer.close();
+    }
+
+    @Test
+    void record_inGroupCommitMode_shouldReturnOnceCommitted() throws Exception {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.GROUP_COMMIT, 1000, 100, 50);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                int id = i;
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    ActivityLog log = activity(id);
+                    writer.record(log);
+                    // committed before record returns
+                    assertTrue(activities.contains(log));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+            writer.close();
+        }
+
+        assertEquals(40, activities.size());
+    }
+
+    @Test
+    void record_inGroupCommitMode_whenInsertFails_shouldThrow() {
+        doThrow(new DatabaseConnectionException("Error db : down")).when(authLogRepository).insertAll(anyList());
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.GROUP_COMMIT, 10, 10, 50);
+        AuthLog log = new AuthLog();
+        log.setUserId(3);
+        log.setEvent(AuthEvent.SUCCESS);
+
+        assertThrows(DatabaseConnectionException.class, () -> writer.record(log));
+        assertEquals(1, writer.getFailed());
+        writer.close();
+    }
+
+    @Test
+    void record_inGroupCommitMode_whenWriterHitsAnError_shouldThrowAndKeepWriting() {
+        doThrow(new AssertionError("boom")).doNothing().when(authLogRepository).insertAll(anyList());
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.GROUP_COMMIT, 10, 10, 50);
+
+        assertThrows(DatabaseConnectionException.class, () -> writer.record(activity(1)));
+        writer.record(activity(2));
+
+        assertEquals(1, writer.getFailed());
+        assertEquals(1, writer.getWritten());
+        writer.close();
+    }
+
+    @Test
+    void record_inUnitOfWork_shouldWriteOnCallingThread() {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.ASYNC, 10, 10, 60_000);
+
+        UnitOfWork.inTransaction(mock(DataSource.class), () -> {
+            writer.record(activity(1));
+            // written in the transaction, before it commits
+            assertEquals(1, activities.size());
+            return null;
+        });
+        writer.close();
+    }
+
+    @Test
+    void record_inSyncMode_shouldWriteOnCallingThread() {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.SYNC, 10, 10, 50);
+
+        writer.record(activity(1));
+
+        assertEquals(1, activities.size());
+        verify(authLogRepository).insertAll(List.of());
+    }
+
+    @Test
+    void record_afterClose_shouldWriteOnCallingThread() {
+        AuditLogWriter writer = new AuditLogWriter(activityLogRepository, authLogRepository,
+                AuditLogWriter.Mode.ASYNC, 10, 10, 50);
+        writer.close();
+
+        writer.record(activity(1));
+
+        assertEquals(1, activities.size());
+    }
+
+    @Test
+    void parse_shouldDefaultToGroupCommitAndRejectUnknownModes() {
+        assertEquals(AuditLogWriter.Mode.ASYNC, AuditLogWriter.Mode.parse("async"));
+        assertEquals(AuditLogWriter.Mode.GROUP_COMMIT, AuditLogWriter.Mode.parse("group-commit"));
+        assertEquals(AuditLogWriter.Mode.SYNC, AuditLogWriter.Mode.parse(" sync "));
+        assertEquals(AuditLogWriter.Mode.GROUP_COMMIT, AuditLogWriter.Mode.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> AuditLogWriter.Mode.parse("later"));
+    }
+}
@@ -0,0 +1,231 @@
+package com.moustass.service;
+
+import com.moustass.exception.DatabaseConnectionException;
+import com.moustass.model.InclusionProof;
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.SignatureBatch;
+import com.moustass.model.SignatureLog;
+import com.moustass.model.User;
+import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.BlobRepository;
+import com.moustass.repository.SignatureBatchRepository;
+import com.moustass.repository.SignatureLogRepository;
+import com.moustass.storage.BlobStore;
+import com.moustass.utils.CryptoUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BatchSigningServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static KeyPair keyPair;
+
+    private SignatureLogRepository signatureLogRepository;
+    private ActivityLogRepository activityLogRepository;
+    private BlobRepository blobRepository;
+    private BlobStore blobStore;
+    private User signer;
+    private final List<SignatureLog> inserted = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final BatchSigningService.Listener listener = new BatchSigningService.Listener() {
+        @Override
+        public void onFile(Path file, boolean signed, String message, int done, int total) {
+            if (!signed) failures.incrementAndGet();
+        }
+
+        @Override
+        public void onFinished(int signed, int failed, boolean cancelled) {
+            // counts are checked on the returned value
+        }
+    };
+
+    @BeforeAll
+    static void generateKey() {
+        keyPair = CryptoUtils.newKeyPair(SignatureAlgorithm.ED25519);
+    }
+
+    @BeforeEach
+    void setUp() {
+        signatureLogRepository = mock(SignatureLogRepository.class);
+        activityLogRepository = mock(ActivityLogRepository.class);
+        blobRepository = mock(BlobRepository.class);
+        blobStore = new BlobStore(tempDir.resolve("blobs"), blobRepository);
+        signer = new User();
+        signer.setId(7);
+        signer.setSignatureAlgorithm(SignatureAlgorithm.ED25519);
+    }
+
+    private List<Path> writeFiles(int count) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve("in"));
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(Files.writeString(dir.resolve("invoice-" + i + ".txt"), "invoice " + i));
+        }
+        return files;
+    }
+
+    @Test
+    void sign_shouldSignEveryFileAndInsertByBatches() throws Exception {
+        doAnswer(i -> {
+            List<SignatureLog> batch = i.getArgument(0);
+            assertTrue(batch.size() <= 4);
+            inserted.addAll(batch);
+            return null;
+        }).when(signatureLogRepository).insertAll(anyList());
+        List<Path> files = writeFiles(25);
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 2, 3, 2, 4);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        assertEquals(25, signed);
+        assertEquals(0, failures.get());
+        assertEquals(25, inserted.size());
+        for (SignatureLog log : inserted) {
+            assertEquals(7, log.getUserId());
+            byte[] hash = CryptoUtils.fromB64(log.getFileHash());
+            assertTrue(CryptoUtils.verifyDigest(hash, CryptoUtils.fromB64(log.getSignatureValue()),
+                    keyPair.getPublic(), SignatureAlgorithm.ED25519));
+            assertTrue(Files.exists(blobStore.locate(log.getBlobHash())));
+        }
+        verify(activityLogRepository, atLeastOnce()).insertAll(anyList());
+    }
+
+    @Test
+    void sign_shouldReportMissingFileAndSignTheOthers() throws Exception {
+        List<Path> files = new ArrayList<>(writeFiles(3));
+        files.add(1, tempDir.resolve("missing.txt"));
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 1, 1, 1, 10);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        assertEquals(3, signed);
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    void sign_whenInsertFails_shouldReleaseBlobs() throws Exception {
+        doThrow(new DatabaseConnectionException("Error db : down")).when(signatureLogRepository).insertAll(anyList());
+        List<Path> files = writeFiles(5);
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 2, 2, 4, 100);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        assertEquals(0, signed);
+        assertEquals(5, failures.get());
+        verify(blobRepository, times(5)).release(anyString());
+        verify(activityLogRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void sign_whenTraceFails_shouldFailTheFiles() throws Exception {
+        doThrow(new DatabaseConnectionException("Error db : down")).when(activityLogRepository).insertAll(anyList());
+        List<Path> files = writeFiles(3);
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 1, 1, 1, 10);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        // the signatures are rolled back with their trace
+        assertEquals(0, signed);
+        assertEquals(3, failures.get());
+        verify(blobRepository, times(3)).release(anyString());
+    }
+
+    @Test
+    void sign_whenSigningFailsWithoutMessage_shouldFailTheFiles() throws Exception {
+        User broken = spy(signer);
+        doThrow(new IllegalStateException()).when(broken).getId();
+        List<Path> files = writeFiles(3);
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 1, 1, 1, 10);
+
+        int signed = service.sign(files, broken, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        assertEquals(0, signed);
+        assertEquals(3, failures.get());
+        verify(blobRepository, times(3)).release(anyString());
+        verify(signatureLogRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void sign_whenCancelled_shouldSkipPendingFiles() throws Exception {
+        List<Path> files = writeFiles(10);
+        BatchSigningService.Handle handle = new BatchSigningService.Handle();
+        handle.cancel();
+        BatchSigningService service = new BatchSigningService(
+                signatureLogRepository, activityLogRepository, blobStore, 2, 2, 2, 10);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), handle, listener);
+
+        assertEquals(0, signed);
+        assertTrue(handle.isDone());
+        verify(signatureLogRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void sign_inMerkleMode_shouldSignOneRootPerBatchWithProofs() throws Exception {
+        SignatureBatchRepository signatureBatchRepository = mock(SignatureBatchRepository.class);
+        List<SignatureBatch> batches = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(i -> {
+            SignatureBatch batch = i.getArgument(0);
+            batch.setId(batches.size() + 1);
+            batches.add(batch);
+            return true;
+        }).when(signatureBatchRepository).insert(any());
+        doAnswer(i -> inserted.addAll(i.getArgument(0))).when(signatureLogRepository).insertAll(anyList());
+        List<Path> files = writeFiles(23);
+        BatchSigningService service = new BatchSigningService(signatureLogRepository, activityLogRepository,
+                signatureBatchRepository, blobStore, 2, 2, 4, 8, true);
+
+        int signed = service.sign(files, signer, keyPair.getPrivate(), new BatchSigningService.Handle(), listener);
+
+        assertEquals(23, signed);
+        assertEquals(23, inserted.size());
+        assertTrue(batches.size() >= 3 && batches.size() < 23);
+        for (SignatureLog log : inserted) {
+            SignatureBatch batch = batches.get(log.getBatchId() - 1);
+            assertEquals(batch.getSignatureValue(), log.getSignatureValue());
+            byte[] root = InclusionProof.decode(log.getInclusionProof()).root(CryptoUtils.fromB64(log.getFileHash()));
+            assertEquals(batch.getRootHash(), CryptoUtils.b64(root));
+            assertTrue(CryptoUtils.verifyDigest(root, CryptoUtils.fromB64(log.getSignatureValue()),
+                    keyPair.getPublic(), SignatureAlgorithm.ED25519));
+        }
+    }
+
+    @Test
+    void collectFiles_shouldWalkDirectories() throws Exception {
+        List<Path> files = writeFiles(3);
+        Path nested = Files.createDirectories(tempDir.resolve("in/sub"));
+        Files.writeString(nested.resolve("deep.txt"), "deep");
+        Path single = Files.writeString(tempDir.resolve("single.txt"), "single");
+
+        List<Path> collected = BatchSigningService.collectFiles(List.of(tempDir.resolve("in"), single));
+
+        assertEquals(5, collected.size());
+        assertTrue(collected.containsAll(files));
+        assertTrue(collected.contains(nested.resolve("deep.txt")));
+        assertTrue(collected.contains(single));
+    }
+}
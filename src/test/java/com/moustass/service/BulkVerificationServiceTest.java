@@ -0,0 +1,171 @@
+package com.moustass.service;
+
+import com.moustass.model.SignatureLog;
+import com.moustass.model.VerificationResult;
+import com.moustass.repository.SignatureLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BulkVerificationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SignatureLogRepository repository;
+    private SignatureLogService signatureLogService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = mock(SignatureLogRepository.class);
+        signatureLogService = mock(SignatureLogService.class);
+        File stored = Files.writeString(tempDir.resolve("stored"), "content").toFile();
+        when(signatureLogService.fileToDownload(any(SignatureLog.class))).thenReturn(stored);
+    }
+
+    private void givenSignatures(int count) {
+        List<SignatureLog> page = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            SignatureLog signature = new SignatureLog();
+            signature.setId(i);
+            page.add(signature);
+        }
+        when(repository.findPageAfterId(eq(0), anyInt())).thenReturn(page);
+        when(repository.findPageAfterId(eq(count), anyInt())).thenReturn(Collections.emptyList());
+    }
+
+    /**
+     * Records what the listener receives.
+     */
+    private static final class Recorder implements BulkVerificationService.Listener {
+        final List<VerificationResult> results = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicBoolean doneAboveTotal = new AtomicBoolean();
+        volatile int finishedDone = -1;
+        volatile int finishedTotal = -1;
+        volatile boolean cancelled;
+
+        @Override
+        public void onResults(List<VerificationResult> batch, int done, int total) {
+            calls.incrementAndGet();
+            results.addAll(batch);
+            if (done > total) doneAboveTotal.set(true);
+        }
+
+        @Override
+        public void onFinished(int done, int total, boolean cancelled) {
+            finishedDone = done;
+            finishedTotal = total;
+            this.cancelled = cancelled;
+        }
+    }
+
+    @Test
+    void verifyAll_shouldReportEveryResult() throws Exception {
+        givenSignatures(20);
+        when(repository.countAll()).thenReturn(20);
+        when(signatureLogService.isFileOk(any(SignatureLog.class), anyBoolean())).thenReturn(true);
+        Recorder recorder = new Recorder();
+
+        BulkVerificationService.Handle handle = new BulkVerificationService(repository, signatureLogService, 0)
+                .verifyAll(recorder);
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertEquals(20, recorder.results.size());
+        assertTrue(recorder.results.stream().allMatch(r -> r.getStatus() == VerificationResult.Status.OK));
+        assertEquals(20, recorder.finishedDone);
+        assertEquals(20, recorder.finishedTotal);
+        assertFalse(recorder.cancelled);
+    }
+
+    @Test
+    void verifyAll_signaturesAddedDuringRun_shouldNotExceedTotal() throws Exception {
+        givenSignatures(10);
+        // counted before three more signatures were added
+        when(repository.countAll()).thenReturn(7);
+        when(signatureLogService.isFileOk(any(SignatureLog.class), anyBoolean())).thenReturn(true);
+        Recorder recorder = new Recorder();
+
+        BulkVerificationService.Handle handle = new BulkVerificationService(repository, signatureLogService, 0)
+                .verifyAll(recorder);
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertFalse(recorder.doneAboveTotal.get());
+        assertEquals(10, recorder.finishedDone);
+        assertEquals(10, recorder.finishedTotal);
+    }
+
+    @Test
+    void verifyAll_shouldCoalesceResults() throws Exception {
+        givenSignatures(50);
+        when(repository.countAll()).thenReturn(50);
+        when(signatureLogService.isFileOk(any(SignatureLog.class), anyBoolean())).thenReturn(false);
+        Recorder recorder = new Recorder();
+
+        // the interval never elapses: every result is delivered by the final flush
+        BulkVerificationService.Handle handle = new BulkVerificationService(repository, signatureLogService, 60_000)
+                .verifyAll(recorder);
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertEquals(1, recorder.calls.get());
+        assertEquals(50, recorder.results.size());
+        assertTrue(recorder.results.stream().allMatch(r -> r.getStatus() == VerificationResult.Status.CORRUPTED));
+    }
+
+    @Test
+    void cancel_shouldSkipPendingFiles() throws Exception {
+        givenSignatures(200);
+        when(repository.countAll()).thenReturn(200);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(signatureLogService.isFileOk(any(SignatureLog.class), anyBoolean())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+        Recorder recorder = new Recorder();
+
+        BulkVerificationService.Handle handle = new BulkVerificationService(repository, signatureLogService, 0)
+                .verifyAll(recorder);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        handle.cancel();
+        release.countDown();
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertTrue(recorder.cancelled);
+        assertTrue(recorder.finishedDone < 200);
+    }
+
+    @Test
+    void verifyAll_missingFile_shouldReportMissing() throws Exception {
+        givenSignatures(1);
+        when(repository.countAll()).thenReturn(1);
+        when(signatureLogService.fileToDownload(any(SignatureLog.class))).thenReturn(tempDir.resolve("absent").toFile());
+        Recorder recorder = new Recorder();
+
+        BulkVerificationService.Handle handle = new BulkVerificationService(repository, signatureLogService, 0)
+                .verifyAll(recorder);
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertEquals(VerificationResult.Status.MISSING, recorder.results.get(0).getStatus());
+        verify(signatureLogService, never()).isFileOk(any(SignatureLog.class), anyBoolean());
+    }
+}
@@ -1,7 +1,9 @@
 package com.moustass.service;
 
 import com.moustass.model.User;
+import com.moustass.model.UserSummary;
 import com.moustass.repository.ActivityLogRepository;
+import com.moustass.repository.AuthLogRepository;
 import com.moustass.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -19,6 +21,11 @@ class CreateAccountServiceTest {
         f.set(target, value);
     }
 
+    private static AuditLogWriter syncWriter(ActivityLogRepository activityLogRepository) {
+        return new AuditLogWriter(activityLogRepository, Mockito.mock(AuthLogRepository.class),
+                AuditLogWriter.Mode.SYNC, 1, 1, 1);
+    }
+
     @Test
     void createAccount_success()
             throws NoSuchFieldException, IllegalAccessException, IllegalArgumentException, SQLException, NoSuchAlgorithmException {
@@ -27,16 +34,15 @@ class CreateAccountServiceTest {
         UserRepository mockUserRepo = Mockito.mock(UserRepository.class);
         ActivityLogRepository mockActRepo = Mockito.mock(ActivityLogRepository.class);
 
-        Mockito.when(mockUserRepo.findByUsername("jdoe")).thenReturn(null);
+        Mockito.when(mockUserRepo.findSummaryByUsername("jdoe")).thenReturn(null);
         Mockito.when(mockUserRepo.insert(Mockito.any())).thenAnswer(invocation -> {
             User u = invocation.getArgument(0);
             u.setId(42);
             return true;
         });
-        Mockito.when(mockActRepo.insert(Mockito.any())).thenReturn(true);
 
         setPrivateField(svc, "userRepository", mockUserRepo);
-        setPrivateField(svc, "activityLogRepository", mockActRepo);
+        setPrivateField(svc, "auditLogWriter", syncWriter(mockActRepo));
 
         User u = svc.createAccount("John","Doe","jdoe","StrongPwd!123","StrongPwd!123", null, false);
 
@@ -44,6 +50,7 @@ class CreateAccountServiceTest {
         Assertions.assertEquals(42, u.getId());
         Assertions.assertEquals("jdoe", u.getUsername());
         Mockito.verify(mockUserRepo).insert(Mockito.any());
+        Mockito.verify(mockActRepo).insertAll(Mockito.anyList());
     }
 
     @Test
@@ -52,9 +59,10 @@ class CreateAccountServiceTest {
         UserRepository mockUserRepo = Mockito.mock(UserRepository.class);
         ActivityLogRepository mockActRepo = Mockito.mock(ActivityLogRepository.class);
 
-        Mockito.when(mockUserRepo.findByUsername("jdoe")).thenReturn(new User());
+        Mockito.when(mockUserRepo.findSummaryByUsername("jdoe"))
+                .thenReturn(new UserSummary(7, "jdoe", "John", "Doe", false, false, null));
         setPrivateField(svc, "userRepository", mockUserRepo);
-        setPrivateField(svc, "activityLogRepository", mockActRepo);
+        setPrivateField(svc, "auditLogWriter", syncWriter(mockActRepo));
 
         Assertions.assertThrows(IllegalArgumentException.class, () ->
                 svc.createAccount("John","Doe","jdoe","StrongPwd!123","StrongPwd!123", null, false)
@@ -67,13 +75,12 @@ class CreateAccountServiceTest {
         UserRepository mockUserRepo = Mockito.mock(UserRepository.class);
         ActivityLogRepository mockActRepo = Mockito.mock(ActivityLogRepository.class);
 
-        Mockito.when(mockUserRepo.findByUsername("jdoe")).thenReturn(null);
-        User admin = new User();
-        admin.setIsAdmin(true);
-        Mockito.when(mockUserRepo.findById(1)).thenReturn(admin);
+        Mockito.when(mockUserRepo.findSummaryByUsername("jdoe")).thenReturn(null);
+        UserSummary admin = new UserSummary(1, "admin", "Admin", "Admin", true, false, null);
+        Mockito.when(mockUserRepo.findSummaryById(1)).thenReturn(admin);
 
         setPrivateField(svc, "userRepository", mockUserRepo);
-        setPrivateField(svc, "activityLogRepository", mockActRepo);
+        setPrivateField(svc, "auditLogWriter", syncWriter(mockActRepo));
 
         Assertions.assertThrows(IllegalArgumentException.class, () ->
                 svc.createAccount("John","Doe","jdoe","StrongPwd!123","StrongPwd!123", 1, false)
@@ -86,9 +93,9 @@ class CreateAccountServiceTest {
         UserRepository mockUserRepo = Mockito.mock(UserRepository.class);
         ActivityLogRepository mockActRepo = Mockito.mock(ActivityLogRepository.class);
 
-        Mockito.when(mockUserRepo.findByUsername("jdoe")).thenReturn(null);
+        Mockito.when(mockUserRepo.findSummaryByUsername("jdoe")).thenReturn(null);
         setPrivateField(svc, "userRepository", mockUserRepo);
-        setPrivateField(svc, "activityLogRepository", mockActRepo);
+        setPrivateField(svc, "auditLogWriter", syncWriter(mockActRepo));
 
         Assertions.assertThrows(IllegalArgumentException.class, () ->
                 svc.createAccount("John","Doe","jdoe","pass1","pass2", null, false)
@@ -0,0 +1,125 @@
+package com.moustass.service;
+
+import com.moustass.model.DownloadResult;
+import com.moustass.model.SignatureLog;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.MerkleHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DownloadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SignatureLogService signatureLogService;
+    private DownloadService downloadService;
+    private SignatureLog signature;
+    private Path stored;
+    private byte[] content;
+    private final AtomicLong lastProgress = new AtomicLong();
+
+    private final DownloadService.Listener listener = (done, total, bytesPerSecond) -> lastProgress.set(done);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[300_000];
+        new Random(5).nextBytes(content);
+        stored = Files.write(tempDir.resolve("stored.bin"), content);
+        signature = new SignatureLog(1, "file.bin", null, null, null);
+        signature.setId(10);
+
+        signatureLogService = mock(SignatureLogService.class);
+        when(signatureLogService.storedPath(signature)).thenReturn(stored);
+        when(signatureLogService.openStoredFile(signature)).thenAnswer(i -> Files.newInputStream(stored));
+        downloadService = new DownloadService(signatureLogService);
+    }
+
+    @Test
+    void download_withoutVerify_shouldTransferFile() throws Exception {
+        Path destination = tempDir.resolve("out.bin");
+
+        DownloadResult result = downloadService.download(signature, destination, false, new DownloadService.Handle(), listener);
+
+        assertEquals(DownloadResult.Status.OK, result.getStatus());
+        assertFalse(result.isVerified());
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(content.length, lastProgress.get());
+        verify(signatureLogService, never()).openStoredFile(any());
+    }
+
+    @Test
+    void download_withVerify_shouldCheckHashOfCopiedBytes() throws Exception {
+        byte[] expected = CryptoUtils.sha256(stored);
+        when(signatureLogService.verifyHash(eq(signature), argThat(h -> Arrays.equals(h, expected)))).thenReturn(true);
+        Path destination = tempDir.resolve("out.bin");
+
+        DownloadResult result = downloadService.download(signature, destination, true, new DownloadService.Handle(), listener);
+
+        assertEquals(DownloadResult.Status.OK, result.getStatus());
+        assertTrue(result.isVerified());
+        assertArrayEquals(content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void download_merkleFileWithVerify_shouldCheckMerkleRoot() throws Exception {
+        signature.setMerkleBlockSize(16 * 1024);
+        byte[] expected = MerkleHasher.root(stored, 16 * 1024);
+        when(signatureLogService.verifyHash(eq(signature), argThat(h -> Arrays.equals(h, expected)))).thenReturn(true);
+
+        DownloadResult result = downloadService.download(signature, tempDir.resolve("out.bin"), true,
+                new DownloadService.Handle(), listener);
+
+        assertEquals(DownloadResult.Status.OK, result.getStatus());
+    }
+
+    @Test
+    void download_corruptedFile_shouldNotWriteDestination() throws Exception {
+        when(signatureLogService.verifyHash(eq(signature), any())).thenReturn(false);
+        Path destination = tempDir.resolve("out.bin");
+
+        DownloadResult result = downloadService.download(signature, destination, true, new DownloadService.Handle(), listener);
+
+        assertEquals(DownloadResult.Status.CORRUPTED, result.getStatus());
+        assertFalse(Files.exists(destination));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void download_cancelled_shouldNotWriteDestination() {
+        DownloadService.Handle handle = new DownloadService.Handle();
+        handle.cancel();
+        Path destination = tempDir.resolve("out.bin");
+
+        DownloadResult result = downloadService.download(signature, destination, false, handle, listener);
+
+        assertEquals(DownloadResult.Status.CANCELLED, result.getStatus());
+        assertFalse(Files.exists(destination));
+    }
+
+    @Test
+    void download_missingFile_shouldReportError() throws Exception {
+        Files.delete(stored);
+        Path destination = tempDir.resolve("out.bin");
+
+        DownloadResult result = downloadService.download(signature, destination, false, new DownloadService.Handle(), listener);
+
+        assertEquals(DownloadResult.Status.ERROR, result.getStatus());
+        assertEquals("Fichier introuvable", result.getMessage());
+        assertFalse(Files.exists(destination));
+    }
+}
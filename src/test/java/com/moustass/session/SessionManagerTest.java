@@ -1,9 +1,13 @@
 package com.moustass.session;
 
 import com.moustass.model.User;
+import com.moustass.utils.CryptoUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.security.KeyPair;
+import java.security.PrivateKey;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SessionManagerTest {
@@ -74,4 +78,29 @@ class SessionManagerTest {
                 () -> assertNull(SessionManager.getCurrentUsername())
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPrivateKey_shouldDecodeOncePerSession() throws Exception {
+        KeyPair kp = CryptoUtils.generateKeyPair();
+        User user = createUser();
+        user.setSkPrivate(CryptoUtils.encodePrivateKey(kp.getPrivate()));
+        SessionManager.login(user);
+
+        PrivateKey first = SessionManager.getPrivateKey();
+
+        assertEquals(kp.getPrivate(), first);
+        assertSame(first, SessionManager.getPrivateKey());
+    }
+
+    @Test
+    void getPrivateKey_afterLogout_shouldReturnNull() throws Exception {
+        User user = createUser();
+        user.setSkPrivate(CryptoUtils.encodePrivateKey(CryptoUtils.generateKeyPair().getPrivate()));
+        SessionManager.login(user);
+        SessionManager.getPrivateKey();
+
+        SessionManager.logout();
+
+        assertNull(SessionManager.getPrivateKey());
+    }
+}
@@ -0,0 +1,252 @@
+package com.moustass.storage;
+
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.model.StorageStats;
+import com.moustass.repository.BlobRepository;
+import com.moustass.utils.CryptoUtils;
+import com.moustass.utils.FileIngestPipeline;
+import com.moustass.utils.MerkleHasher;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static KeyPair keyPair;
+
+    @BeforeAll
+    static void generateKey() {
+        keyPair = CryptoUtils.newKeyPair(SignatureAlgorithm.ED25519);
+    }
+
+    /** In-memory reference counts, standing for the {@code blobs} table. */
+    static class InMemoryBlobRepository extends BlobRepository {
+        final Map<String, Long> sizes = new HashMap<>();
+        final Map<String, Integer> refs = new HashMap<>();
+
+        @Override
+        public boolean existsBySize(long size) {
+            return refs.keySet().stream().anyMatch(h -> sizes.get(h) == size);
+        }
+
+        @Override
+        public boolean acquireExisting(String hash) {
+            if (!refs.containsKey(hash)) return false;
+            refs.merge(hash, 1, Integer::sum);
+            return true;
+        }
+
+        final Map<String, Long> storedSizes = new HashMap<>();
+
+        @Override
+        public void acquire(String hash, long size, String codec, long storedSize) {
+            sizes.put(hash, size);
+            storedSizes.putIfAbsent(hash, storedSize);
+            refs.merge(hash, 1, Integer::sum);
+        }
+
+        @Override
+        public StorageStats stats() {
+            return new StorageStats(refs.size(),
+                    refs.keySet().stream().mapToLong(sizes::get).sum(),
+                    refs.keySet().stream().mapToLong(storedSizes::get).sum());
+        }
+
+        @Override
+        public boolean release(String hash) {
+            if (refs.merge(hash, -1, Integer::sum) == 0) {
+                refs.remove(hash);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final AtomicInteger copies = new AtomicInteger();
+
+    private final BlobStore.Ingest ingest = (source, destination, codec) -> {
+        if (destination != null) copies.incrementAndGet();
+        return FileIngestPipeline.ingest(source, destination, keyPair.getPrivate(), SignatureAlgorithm.ED25519, codec);
+    };
+
+    @Test
+    void store_sameContentTwice_shouldCopyOnce() throws Exception {
+        InMemoryBlobRepository repository = new InMemoryBlobRepository();
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), repository);
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "same content");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "same content");
+
+        BlobStore.Stored s1 = store.store(first, ingest);
+        BlobStore.Stored s2 = store.store(second, ingest);
+
+        assertFalse(s1.isDeduplicated());
+        assertTrue(s2.isDeduplicated());
+        assertEquals(s1.getHash(), s2.getHash());
+        assertEquals(1, copies.get());
+        assertEquals(2, repository.refs.get(s1.getHash()));
+        assertEquals(CryptoUtils.toHex(CryptoUtils.sha256(first)), s1.getHash());
+        assertEquals("same content", Files.readString(store.pathOf(s1.getHash())));
+    }
+
+    @Test
+    void store_sameContentInMerkleMode_shouldShareTheBlobUnderTheRoot() throws Exception {
+        InMemoryBlobRepository repository = new InMemoryBlobRepository();
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), repository);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "same content ".repeat(1000));
+        BlobStore.Ingest merkle = (source, destination, codec) ->
+                FileIngestPipeline.ingestMerkle(source, destination, keyPair.getPrivate(), SignatureAlgorithm.ED25519, 1024);
+
+        BlobStore.Stored first = store.store(file, merkle);
+        BlobStore.Stored second = store.store(file, merkle);
+
+        assertTrue(second.isDeduplicated());
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(CryptoUtils.toHex(MerkleHasher.root(file, 1024)), second.getHash());
+        assertEquals(2, repository.refs.get(first.getHash()));
+    }
+
+    @Test
+    void store_sameSizeDifferentContent_shouldStoreBoth() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository());
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "content 1");
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "content 2");
+
+        BlobStore.Stored s1 = store.store(first, ingest);
+        BlobStore.Stored s2 = store.store(second, ingest);
+
+        assertNotEquals(s1.getHash(), s2.getHash());
+        assertFalse(s2.isDeduplicated());
+        assertEquals("content 1", Files.readString(store.pathOf(s1.getHash())));
+        assertEquals("content 2", Files.readString(store.pathOf(s2.getHash())));
+    }
+
+    @Test
+    void release_lastReference_shouldDeleteBlob() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository());
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "content");
+        String hash = store.store(source, ingest).getHash();
+        store.store(source, ingest);
+
+        store.release(hash);
+        assertTrue(Files.exists(store.pathOf(hash)));
+
+        store.release(hash);
+        assertFalse(Files.exists(store.pathOf(hash)));
+    }
+
+    @Test
+    void store_shouldNotLeaveTemporaryFiles() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository());
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "content");
+        String hash = store.store(source, ingest).getHash();
+
+        try (var files = Files.walk(tempDir.resolve("blobs"))) {
+            assertEquals(hash, files.filter(Files::isRegularFile)
+                    .map(p -> p.getFileName().toString()).reduce("", String::concat));
+        }
+    }
+
+    @Test
+    void store_shouldWriteBlobsUnderShardedPath() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository());
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "content");
+
+        String hash = store.store(source, ingest).getHash();
+
+        assertEquals(tempDir.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash),
+                store.locate(hash));
+        assertTrue(Files.exists(store.locate(hash)));
+    }
+
+    @Test
+    void reshard_shouldMoveFlatBlob() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository());
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "content");
+        String hash = store.store(source, ingest).getHash();
+        Path flat = store.resolver().flat(hash);
+        Files.move(store.pathOf(hash), flat);
+        assertEquals(flat, store.locate(hash));
+
+        assertTrue(store.reshard(hash));
+
+        assertFalse(Files.exists(flat));
+        assertEquals("content", Files.readString(store.locate(hash)));
+        assertEquals(store.pathOf(hash), store.locate(hash));
+    }
+
+    @Test
+    void store_withDeflate_shouldCompressAndDecodeOriginalBytes() throws Exception {
+        InMemoryBlobRepository repository = new InMemoryBlobRepository();
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), repository, new DeflateCodec());
+        String text = "<signed><line>same xml line</line></signed>\n".repeat(2_000);
+        Path source = Files.writeString(tempDir.resolve("a.xml"), text);
+
+        BlobStore.Stored stored = store.store(source, ingest);
+        Path blob = store.locate(stored.getHash());
+
+        assertTrue(blob.getFileName().toString().endsWith(".deflate"));
+        assertEquals(CryptoUtils.toHex(CryptoUtils.sha256(source)), stored.getHash());
+        try (InputStream in = BlobStore.open(blob)) {
+            assertEquals(text, new String(in.readAllBytes()));
+        }
+        StorageStats stats = store.stats();
+        assertEquals(text.length(), stats.getOriginalSize());
+        assertEquals(Files.size(blob), stats.getStoredSize());
+        assertTrue(stats.getRatio() > 10);
+    }
+
+    @Test
+    void link_encodedBlob_shouldRecordOriginalSize() throws Exception {
+        Path root = tempDir.resolve("blobs");
+        String text = "compressible line\n".repeat(2_000);
+        Path source = Files.writeString(tempDir.resolve("a.txt"), text);
+        String hash = new BlobStore(root, new InMemoryBlobRepository(), new DeflateCodec()).store(source, ingest).getHash();
+        // a blob on disk without its row, as found by the storage migration
+        InMemoryBlobRepository repository = new InMemoryBlobRepository();
+
+        assertTrue(new BlobStore(root, repository).link(hash));
+
+        assertEquals(text.length(), repository.sizes.get(hash));
+        assertEquals(Files.size(new BlobStore(root, repository).locate(hash)), repository.storedSizes.get(hash));
+    }
+
+    @Test
+    void adopt_shouldLeaveTheLegacyFileReadable() throws Exception {
+        InMemoryBlobRepository repository = new InMemoryBlobRepository();
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), repository);
+        Path legacy = Files.writeString(tempDir.resolve("legacy.txt"), "legacy content");
+        String hash = CryptoUtils.toHex(CryptoUtils.sha256(legacy));
+
+        store.adopt(legacy, hash);
+
+        // still read under its name until the signature is linked to the blob
+        assertEquals("legacy content", Files.readString(legacy));
+        assertEquals("legacy content", Files.readString(store.locate(hash)));
+        assertEquals(1, repository.refs.get(hash));
+    }
+
+    @Test
+    void release_shouldDeleteEncodedBlob() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("blobs"), new InMemoryBlobRepository(), new DeflateCodec());
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "content");
+        String hash = store.store(source, ingest).getHash();
+        Path blob = store.locate(hash);
+
+        store.release(hash);
+
+        assertFalse(Files.exists(blob));
+    }
+}
@@ -0,0 +1,37 @@
+package com.moustass.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedPathResolverTest {
+
+    private static final String HASH = "abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolve_shouldUseTwoLevelsOfHashPrefix() {
+        ShardedPathResolver resolver = new ShardedPathResolver(tempDir);
+
+        assertEquals(tempDir.resolve("ab").resolve("cd").resolve(HASH), resolver.resolve(HASH));
+    }
+
+    @Test
+    void locate_shouldFallBackToFlatLayout() throws Exception {
+        ShardedPathResolver resolver = new ShardedPathResolver(tempDir);
+        assertEquals(resolver.resolve(HASH), resolver.locate(HASH));
+
+        Files.writeString(resolver.flat(HASH), "old");
+        assertEquals(resolver.flat(HASH), resolver.locate(HASH));
+
+        Files.createDirectories(resolver.resolve(HASH).getParent());
+        Files.writeString(resolver.resolve(HASH), "new");
+        assertEquals(resolver.resolve(HASH), resolver.locate(HASH));
+    }
+}
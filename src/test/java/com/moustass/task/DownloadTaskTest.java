@@ -0,0 +1,88 @@
+package com.moustass.task;
+
+import com.moustass.model.DownloadResult;
+import com.moustass.service.DownloadService;
+import javafx.concurrent.Worker;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DownloadTaskTest {
+    private final Path destination = Path.of("contract.pdf");
+    private DownloadService downloadService;
+
+    @BeforeAll
+    static void startJavaFx() throws Exception {
+        JavaFxThread.start();
+    }
+
+    @BeforeEach
+    void setUp() {
+        downloadService = mock(DownloadService.class);
+    }
+
+    @Test
+    void run_shouldReportProgressAndReturnTheResult() throws Exception {
+        DownloadResult ok = new DownloadResult(3, DownloadResult.Status.OK, 100, 5, true, null);
+        when(downloadService.download(eq(3), eq(destination), eq(true), any(), any())).thenAnswer(invocation -> {
+            DownloadService.Listener listener = invocation.getArgument(4);
+            listener.onProgress(50, 100, 1024 * 1024);
+            return ok;
+        });
+        DownloadTask task = new DownloadTask(downloadService, 3, destination, true);
+
+        task.run();
+
+        assertEquals(Worker.State.SUCCEEDED, JavaFxThread.awaitEnd(task));
+        assertSame(ok, task.get());
+        assertEquals(0.5, JavaFxThread.call(task::getProgress));
+        assertTrue(JavaFxThread.call(task::getMessage).endsWith("Mo/s)"));
+    }
+
+    @Test
+    void run_failingDownload_shouldFailTheTask() throws Exception {
+        when(downloadService.download(eq(3), eq(destination), eq(false), any(), any()))
+                .thenThrow(new IllegalStateException("unknown signature"));
+        DownloadTask task = new DownloadTask(downloadService, 3, destination, false);
+
+        task.run();
+
+        assertEquals(Worker.State.FAILED, JavaFxThread.awaitEnd(task));
+        assertEquals("unknown signature", JavaFxThread.call(task::getException).getMessage());
+    }
+
+    @Test
+    void cancel_shouldCancelTheDownload() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        when(downloadService.download(eq(3), eq(destination), eq(false), any(), any())).thenAnswer(invocation -> {
+            DownloadService.Handle handle = invocation.getArgument(3);
+            started.countDown();
+            while (!handle.isCancelled()) {
+                Thread.sleep(5);
+            }
+            stopped.countDown();
+            return new DownloadResult(3, DownloadResult.Status.CANCELLED, 0, 0, false, null);
+        });
+        DownloadTask task = new DownloadTask(downloadService, 3, destination, false);
+        Thread worker = new Thread(task);
+        worker.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        task.cancel();
+
+        // the copy is stopped through the handle, between two chunks
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(task));
+        worker.join(10_000);
+    }
+}
@@ -0,0 +1,71 @@
+package com.moustass.task;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Starts the JavaFX toolkit for the task tests and runs code on its thread.
+ * <p>
+ * The tests run headless, on the Monocle platform configured in the pom.
+ * </p>
+ */
+final class JavaFxThread {
+    private static boolean started;
+
+    private JavaFxThread() {}
+
+    static synchronized void start() throws Exception {
+        if (!started) {
+            CompletableFuture<Void> ready = new CompletableFuture<>();
+            try {
+                Platform.startup(() -> ready.complete(null));
+            } catch (IllegalStateException e) {
+                // already started by another test class
+                ready.complete(null);
+            }
+            ready.get(10, TimeUnit.SECONDS);
+            started = true;
+        }
+    }
+
+    static <T> T call(Supplier<T> supplier) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(supplier.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits until a task ends and its final state is set on the JavaFX thread.
+     */
+    static Worker.State awaitEnd(Task<?> task) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Worker.State state = call(task::getState);
+        while (!isEnd(state) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            state = call(task::getState);
+        }
+        return state;
+    }
+
+    private static boolean isEnd(Worker.State state) {
+        return state == Worker.State.SUCCEEDED || state == Worker.State.FAILED || state == Worker.State.CANCELLED;
+    }
+
+    static void run(Runnable runnable) throws Exception {
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+}
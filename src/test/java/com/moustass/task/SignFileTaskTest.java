@@ -0,0 +1,77 @@
+package com.moustass.task;
+
+import com.moustass.exception.FileStorageException;
+import com.moustass.service.SignatureLogService;
+import javafx.concurrent.Worker;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SignFileTaskTest {
+    private final File file = new File("contract.pdf");
+    private SignatureLogService signatureLogService;
+
+    @BeforeAll
+    static void startJavaFx() throws Exception {
+        JavaFxThread.start();
+    }
+
+    @BeforeEach
+    void setUp() {
+        signatureLogService = mock(SignatureLogService.class);
+    }
+
+    @Test
+    void run_shouldSignTheFile() throws Exception {
+        SignFileTask task = new SignFileTask(signatureLogService, file);
+
+        task.run();
+
+        assertEquals(Worker.State.SUCCEEDED, JavaFxThread.awaitEnd(task));
+        assertEquals("Fichier signé", JavaFxThread.call(task::getMessage));
+        verify(signatureLogService).saveFile(file);
+    }
+
+    @Test
+    void run_failingSignature_shouldFailTheTask() throws Exception {
+        doThrow(new FileStorageException("Error: disk full")).when(signatureLogService).saveFile(file);
+        SignFileTask task = new SignFileTask(signatureLogService, file);
+
+        task.run();
+
+        assertEquals(Worker.State.FAILED, JavaFxThread.awaitEnd(task));
+        assertInstanceOf(FileStorageException.class, JavaFxThread.call(task::getException));
+    }
+
+    @Test
+    void cancel_shouldInterruptTheSignature() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }).when(signatureLogService).saveFile(file);
+        SignFileTask task = new SignFileTask(signatureLogService, file);
+        Thread worker = new Thread(task);
+        worker.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        task.cancel();
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(task));
+        worker.join(10_000);
+    }
+}
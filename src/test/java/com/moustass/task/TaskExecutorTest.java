@@ -0,0 +1,85 @@
+package com.moustass.task;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskExecutorTest {
+
+    @BeforeAll
+    static void startJavaFx() throws Exception {
+        JavaFxThread.start();
+    }
+
+    /** Task running until it is released or interrupted. */
+    private static final class BlockingTask extends Task<String> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean ran = new AtomicBoolean();
+
+        @Override
+        protected String call() throws Exception {
+            ran.set(true);
+            started.countDown();
+            release.await();
+            return "done";
+        }
+    }
+
+    @Test
+    void submit_shouldRunTaskAndListItUntilItEnds() throws Exception {
+        TaskExecutor executor = new TaskExecutor(1);
+        BlockingTask task = new BlockingTask();
+
+        JavaFxThread.run(() -> executor.submit(task));
+        assertTrue(task.started.await(10, TimeUnit.SECONDS));
+        assertTrue(JavaFxThread.call(() -> executor.getTasks().contains(task)));
+        task.release.countDown();
+
+        assertEquals(Worker.State.SUCCEEDED, JavaFxThread.awaitEnd(task));
+        assertEquals("done", task.get());
+        assertTrue(JavaFxThread.call(() -> executor.getTasks().isEmpty()));
+    }
+
+    @Test
+    void cancel_runningTask_shouldRemoveIt() throws Exception {
+        TaskExecutor executor = new TaskExecutor(1);
+        BlockingTask task = new BlockingTask();
+        JavaFxThread.run(() -> executor.submit(task));
+        assertTrue(task.started.await(10, TimeUnit.SECONDS));
+
+        JavaFxThread.run(task::cancel);
+
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(task));
+        assertTrue(JavaFxThread.call(() -> executor.getTasks().isEmpty()));
+    }
+
+    @Test
+    void cancelAll_shouldCancelRunningAndQueuedTasks() throws Exception {
+        TaskExecutor executor = new TaskExecutor(1);
+        BlockingTask running = new BlockingTask();
+        BlockingTask queued = new BlockingTask();
+        JavaFxThread.run(() -> {
+            executor.submit(running);
+            executor.submit(queued);
+        });
+        assertTrue(running.started.await(10, TimeUnit.SECONDS));
+        assertEquals(2, JavaFxThread.call(() -> executor.getTasks().size()));
+
+        JavaFxThread.run(executor::cancelAll);
+
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(running));
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(queued));
+        assertTrue(JavaFxThread.call(() -> executor.getTasks().isEmpty()));
+        // the worker freed by the cancellation skips the cancelled task
+        Thread.sleep(50);
+        assertFalse(queued.ran.get());
+    }
+}
@@ -0,0 +1,75 @@
+package com.moustass.task;
+
+import com.moustass.exception.SignatureRSAException;
+import com.moustass.service.SignatureLogService;
+import javafx.concurrent.Worker;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VerifyFileTaskTest {
+    private SignatureLogService signatureLogService;
+
+    @BeforeAll
+    static void startJavaFx() throws Exception {
+        JavaFxThread.start();
+    }
+
+    @BeforeEach
+    void setUp() {
+        signatureLogService = mock(SignatureLogService.class);
+    }
+
+    @Test
+    void run_shouldReturnTheOutcome() throws Exception {
+        when(signatureLogService.isFileOk(7, true)).thenReturn(false);
+        VerifyFileTask task = new VerifyFileTask(signatureLogService, 7, "contract.pdf", true);
+
+        task.run();
+
+        assertEquals(Worker.State.SUCCEEDED, JavaFxThread.awaitEnd(task));
+        assertFalse(task.get());
+    }
+
+    @Test
+    void run_unreadableFile_shouldFailTheTask() throws Exception {
+        when(signatureLogService.isFileOk(7, false)).thenThrow(new SignatureRSAException("Error : unreadable"));
+        VerifyFileTask task = new VerifyFileTask(signatureLogService, 7, "contract.pdf", false);
+
+        task.run();
+
+        assertEquals(Worker.State.FAILED, JavaFxThread.awaitEnd(task));
+        assertInstanceOf(SignatureRSAException.class, JavaFxThread.call(task::getException));
+    }
+
+    @Test
+    void cancel_shouldInterruptTheVerification() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(signatureLogService.isFileOk(7, false)).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return true;
+        });
+        VerifyFileTask task = new VerifyFileTask(signatureLogService, 7, "contract.pdf", false);
+        Thread worker = new Thread(task);
+        worker.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        task.cancel();
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(Worker.State.CANCELLED, JavaFxThread.awaitEnd(task));
+        worker.join(10_000);
+    }
+}
@@ -1,6 +1,7 @@
 package com.moustass.utils;
 
 import org.junit.jupiter.api.Assertions;
+import com.moustass.model.SignatureAlgorithm;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -165,4 +166,71 @@ class CryptoUtilsTest {
 
         assertEquals(keyPair.getPrivate(), decoded);
     }
+
+    @Test
+    void verifyFile_shouldStreamAndMatchInMemorySignature() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair();
+        byte[] data = new byte[200_000];
+        new java.util.Random(7).nextBytes(data);
+        File tempFile = File.createTempFile("verify", ".bin");
+        Files.write(tempFile.toPath(), data);
+
+        byte[] signature = CryptoUtils.signSha256WithRsa(data, keyPair.getPrivate());
+
+        assertTrue(CryptoUtils.verifySha256WithRsa(tempFile.toPath(), signature, keyPair.getPublic()));
+
+        data[100] ^= 1;
+        Files.write(tempFile.toPath(), data);
+        assertFalse(CryptoUtils.verifySha256WithRsa(tempFile.toPath(), signature, keyPair.getPublic()));
+
+        tempFile.delete();
+    }
+
+    @Test
+    void toHex_shouldMatchFormattedBytes() {
+        byte[] bytes = new byte[]{0, 1, 15, 16, (byte) 0x7f, (byte) 0x80, (byte) 0xff};
+
+        StringBuilder expected = new StringBuilder();
+        for (byte b : bytes) expected.append(String.format("%02x", b));
+
+        assertEquals(expected.toString(), CryptoUtils.toHex(bytes));
+    }
+
+    @Test
+    void sha256Hex_knownVector() throws NoSuchAlgorithmException {
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+                CryptoUtils.sha256Hex("hello"));
+    }
+
+    @Test
+    void signDigest_rsa_shouldMatchSha256WithRsaOverContent() throws Exception {
+        KeyPair keyPair = CryptoUtils.generateKeyPair();
+        byte[] data = "important data".getBytes();
+        byte[] digest = java.security.MessageDigest.getInstance("SHA-256").digest(data);
+
+        byte[] fromDigest = CryptoUtils.signDigest(digest, keyPair.getPrivate(), SignatureAlgorithm.RSA_SHA256);
+
+        assertArrayEquals(CryptoUtils.signSha256WithRsa(data, keyPair.getPrivate()), fromDigest);
+        assertTrue(CryptoUtils.verifySha256WithRsa(data, fromDigest, keyPair.getPublic()));
+    }
+
+    @Test
+    void signDigest_and_verifyDigest_allAlgorithms() throws Exception {
+        for (SignatureAlgorithm algorithm : SignatureAlgorithm.values()) {
+            assertSignDigestRoundtrip(algorithm);
+        }
+    }
+
+    private static void assertSignDigestRoundtrip(SignatureAlgorithm algorithm) throws Exception {
+        KeyPair keyPair = CryptoUtils.newKeyPair(algorithm);
+        PublicKey pub = CryptoUtils.publicKeyFromBase64(CryptoUtils.encodePublicKey(keyPair.getPublic()), algorithm);
+        PrivateKey priv = CryptoUtils.privateKeyFromBase64(CryptoUtils.encodePrivateKey(keyPair.getPrivate()), algorithm);
+        byte[] digest = java.security.MessageDigest.getInstance("SHA-256").digest("payload".getBytes());
+        byte[] other = java.security.MessageDigest.getInstance("SHA-256").digest("other".getBytes());
+
+        byte[] signature = CryptoUtils.signDigest(digest, priv, algorithm);
+
+        assertTrue(CryptoUtils.verifyDigest(digest, signature, pub, algorithm), algorithm.name());
+        assertFalse(CryptoUtils.verifyDigest(other, signature, pub, algorithm), algorithm.name());
+    }
 }
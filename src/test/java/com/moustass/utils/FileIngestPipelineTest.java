@@ -0,0 +1,92 @@
+package com.moustass.utils;
+
+import com.moustass.model.SignatureAlgorithm;
+import com.moustass.storage.DeflateCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileIngestPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void ingest_shouldHashSignAndCopyInOnePass() throws Exception {
+        byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+        Path source = tempDir.resolve("source.bin");
+        Files.write(source, content);
+        Path destination = tempDir.resolve("store").resolve("source.bin");
+        KeyPair kp = CryptoUtils.generateKeyPair();
+
+        FileIngestPipeline.Result result = FileIngestPipeline.ingest(source, destination, kp.getPrivate());
+
+        assertArrayEquals(CryptoUtils.sha256(source.toFile()), result.getHash());
+        assertTrue(CryptoUtils.verifySha256WithRsa(content, result.getSignature(), kp.getPublic()));
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(content.length, result.getSize());
+    }
+
+    @Test
+    void ingest_withoutDestination_shouldOnlyHashAndSign() throws Exception {
+        Path source = tempDir.resolve("source.txt");
+        Files.writeString(source, "hello");
+        KeyPair kp = CryptoUtils.generateKeyPair();
+
+        FileIngestPipeline.Result result = FileIngestPipeline.ingest(source, null, kp.getPrivate());
+
+        assertTrue(CryptoUtils.verifySha256WithRsa("hello".getBytes(), result.getSignature(), kp.getPublic()));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void ingestMerkle_shouldSignTheRootAndCopy() throws Exception {
+        byte[] content = new byte[200_000];
+        new Random(7).nextBytes(content);
+        Path source = tempDir.resolve("big.bin");
+        Files.write(source, content);
+        Path destination = tempDir.resolve("store").resolve("big.bin");
+        KeyPair kp = CryptoUtils.generateKeyPair();
+
+        FileIngestPipeline.Result result = FileIngestPipeline.ingestMerkle(
+                source, destination, kp.getPrivate(), SignatureAlgorithm.RSA_SHA256, 16 * 1024);
+
+        assertArrayEquals(MerkleHasher.root(source, 16 * 1024), result.getHash());
+        assertEquals(16 * 1024, result.getMerkleBlockSize());
+        assertTrue(CryptoUtils.verifyDigest(result.getHash(), result.getSignature(), kp.getPublic(),
+                SignatureAlgorithm.RSA_SHA256));
+        assertArrayEquals(content, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void ingest_withCodec_shouldHashOriginalBytesAndEncodeCopy() throws Exception {
+        String text = "compressible line of text\n".repeat(10_000);
+        Path source = tempDir.resolve("source.txt");
+        Files.writeString(source, text);
+        Path destination = tempDir.resolve("store").resolve("source.txt.deflate");
+        KeyPair kp = CryptoUtils.generateKeyPair();
+        DeflateCodec codec = new DeflateCodec();
+
+        FileIngestPipeline.Result result = FileIngestPipeline.ingest(
+                source, destination, kp.getPrivate(), SignatureAlgorithm.RSA_SHA256, codec);
+
+        assertArrayEquals(CryptoUtils.sha256(source), result.getHash());
+        assertTrue(CryptoUtils.verifySha256WithRsa(text.getBytes(), result.getSignature(), kp.getPublic()));
+        assertSame(codec, result.getCodec());
+        assertEquals(Files.size(destination), result.getStoredSize());
+        assertTrue(result.getStoredSize() < result.getSize() / 10);
+        try (InputStream in = codec.decode(Files.newInputStream(destination))) {
+            assertEquals(text, new String(in.readAllBytes()));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.moustass.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleHasherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void root_shouldFollowTheTreeShape() throws Exception {
+        byte[] content = new byte[25];
+        new Random(1).nextBytes(content);
+        Path file = tempDir.resolve("small.bin");
+        Files.write(file, content);
+
+        // 3 leaves of 10, 10 and 5 bytes: root = node(node(l0, l1), l2)
+        byte[] l0 = MerkleHasher.leafHash(content, 0, 10);
+        byte[] l1 = MerkleHasher.leafHash(content, 10, 10);
+        byte[] l2 = MerkleHasher.leafHash(content, 20, 5);
+        byte[] expected = MerkleHasher.nodeHash(MerkleHasher.nodeHash(l0, l1), l2);
+
+        assertArrayEquals(expected, MerkleHasher.root(file, 10));
+    }
+
+    @Test
+    void root_shouldMatchBuilderForAnyLeafCount() throws Exception {
+        byte[] content = new byte[1000];
+        new Random(2).nextBytes(content);
+        for (int length = 0; length <= content.length; length += 97) {
+            Path file = tempDir.resolve("file-" + length);
+            Files.write(file, Arrays.copyOf(content, length));
+
+            MerkleHasher.Builder builder = new MerkleHasher.Builder(64);
+            for (int offset = 0; offset < length; offset += 30) {
+                builder.update(content, offset, Math.min(30, length - offset));
+            }
+
+            assertArrayEquals(builder.root(), MerkleHasher.root(file, 64), "length " + length);
+        }
+    }
+
+    @Test
+    void root_shouldDifferFromFlatHashAndDetectChanges() throws Exception {
+        byte[] content = new byte[4096];
+        new Random(3).nextBytes(content);
+        Path file = tempDir.resolve("data.bin");
+        Files.write(file, content);
+        byte[] root = MerkleHasher.root(file, 512);
+
+        assertFalse(Arrays.equals(CryptoUtils.sha256(file), root));
+        content[3000] ^= 1;
+        Files.write(file, content);
+        assertFalse(Arrays.equals(root, MerkleHasher.root(file, 512)));
+    }
+
+    @Test
+    void root_withOutput_shouldCopyEveryBlock() throws Exception {
+        byte[] content = new byte[100_003];
+        new Random(4).nextBytes(content);
+        Path source = tempDir.resolve("source.bin");
+        Path copy = tempDir.resolve("copy.bin");
+        Files.write(source, content);
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertArrayEquals(MerkleHasher.root(source, 4096), MerkleHasher.root(in, out, 4096));
+        }
+        assertArrayEquals(content, Files.readAllBytes(copy));
+    }
+
+    @Test
+    void root_ofEmptyFile_shouldBeHashOfEmptyString() throws Exception {
+        Path file = Files.createFile(tempDir.resolve("empty"));
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                CryptoUtils.toHex(MerkleHasher.root(file, 1024)));
+    }
+
+    @Test
+    void inclusionProofs_shouldRebuildRootForEveryLeafAndSize() {
+        for (int size = 1; size <= 17; size++) {
+            List<byte[]> leaves = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                byte[] data = {(byte) i, (byte) size};
+                leaves.add(MerkleHasher.leafHash(data, 0, data.length));
+            }
+            byte[] root = MerkleHasher.rootOfLeaves(leaves);
+            List<List<byte[]>> proofs = MerkleHasher.inclusionProofs(leaves);
+
+            for (int i = 0; i < size; i++) {
+                assertArrayEquals(root, MerkleHasher.rootFromProof(leaves.get(i), i, size, proofs.get(i)),
+                        "leaf " + i + " of " + size);
+            }
+        }
+    }
+
+    @Test
+    void rootFromProof_shouldRejectWrongPositionOrTamperedProof() {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            byte[] data = {(byte) i};
+            leaves.add(MerkleHasher.leafHash(data, 0, 1));
+        }
+        byte[] root = MerkleHasher.rootOfLeaves(leaves);
+        List<byte[]> proof = MerkleHasher.inclusionProofs(leaves).get(2);
+
+        assertFalse(Arrays.equals(root, MerkleHasher.rootFromProof(leaves.get(2), 3, 6, proof)));
+        assertNull(MerkleHasher.rootFromProof(leaves.get(2), 6, 6, proof));
+        assertNull(MerkleHasher.rootFromProof(leaves.get(2), 2, 6, proof.subList(0, 1)));
+
+        List<byte[]> tampered = new ArrayList<>(proof);
+        tampered.set(0, leaves.get(0));
+        assertFalse(Arrays.equals(root, MerkleHasher.rootFromProof(leaves.get(2), 2, 6, tampered)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.moustass.watch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DropFolderWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DropFolderWatcher watcher;
+    private final Map<String, String> signedContent = new ConcurrentHashMap<>();
+    private final List<Path> failed = new CopyOnWriteArrayList<>();
+
+    private final DropFolderWatcher.Listener listener = new DropFolderWatcher.Listener() {
+        @Override
+        public void onSigned(Path file, Path moved) {
+            // checked through the signed content
+        }
+
+        @Override
+        public void onFailed(Path file, Exception error) {
+            failed.add(file);
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    private void start(Path inbox, DropFolderWatcher.Signer signer) throws IOException {
+        watcher = new DropFolderWatcher(List.of(inbox), signer, listener, 2, 300);
+        Thread thread = new Thread(watcher, "watcher-test");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met in time");
+    }
+
+    @Test
+    void watcher_shouldSignDroppedFileOnceAndMoveIt() throws Exception {
+        Path inbox = tempDir.resolve("inbox");
+        start(inbox, file -> signedContent.merge(file.getFileName().toString(), Files.readString(file), (a, b) -> a + "|" + b));
+
+        Path file = inbox.resolve("invoice.txt");
+        // written in several steps, each one closer than the debounce delay
+        Files.writeString(file, "part1");
+        Thread.sleep(100);
+        Files.writeString(file, "-part2", StandardOpenOption.APPEND);
+        Thread.sleep(100);
+        Files.writeString(file, "-part3", StandardOpenOption.APPEND);
+
+        waitUntil(() -> Files.exists(inbox.resolve(DropFolderWatcher.SIGNED_DIR).resolve("invoice.txt")));
+        assertEquals("part1-part2-part3", signedContent.get("invoice.txt"));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void watcher_shouldSignFilesPresentAtStartAndIgnoreTemporaryFiles() throws Exception {
+        Path inbox = Files.createDirectories(tempDir.resolve("inbox"));
+        Files.writeString(inbox.resolve("existing.pdf"), "existing");
+        Files.writeString(inbox.resolve("upload.part"), "partial");
+        start(inbox, file -> signedContent.put(file.getFileName().toString(), Files.readString(file)));
+
+        waitUntil(() -> signedContent.containsKey("existing.pdf"));
+        Thread.sleep(500);
+        assertFalse(signedContent.containsKey("upload.part"));
+        assertTrue(Files.exists(inbox.resolve("upload.part")));
+    }
+
+    @Test
+    void watcher_whenSigningFails_shouldMoveFileToFailed() throws Exception {
+        Path inbox = tempDir.resolve("inbox");
+        start(inbox, file -> {
+            throw new IllegalStateException("no key");
+        });
+
+        Files.writeString(inbox.resolve("broken.txt"), "content");
+
+        waitUntil(() -> Files.exists(inbox.resolve(DropFolderWatcher.FAILED_DIR).resolve("broken.txt")));
+        assertEquals(1, failed.size());
+    }
+}